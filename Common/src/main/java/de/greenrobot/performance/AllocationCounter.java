@@ -0,0 +1,118 @@
+package de.greenrobot.performance;
+
+import android.os.Debug;
+import java.lang.reflect.Method;
+
+/**
+ * Counts bytes and, if supported, objects allocated by the current thread between {@link
+ * #begin()} and the getters. On Android uses {@link Debug} alloc counting, on a JVM host (e.g. when
+ * running with Robolectric) the HotSpot extension of {@code ThreadMXBean}.
+ * <p/>
+ * Note: on Android alloc counting slows down allocations, so only enable it when interested in
+ * allocations, not for timing runs.
+ */
+abstract class AllocationCounter {
+
+    static final long UNSUPPORTED = -1;
+
+    /**
+     * Returns a counter for the current runtime, or null if allocations can not be counted.
+     */
+    static AllocationCounter create() {
+        if ("Dalvik".equals(System.getProperty("java.vm.name"))) {
+            // both Dalvik and ART report "Dalvik"
+            return new AndroidAllocationCounter();
+        }
+        try {
+            return new JvmAllocationCounter();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Starts counting allocations of the current thread. */
+    abstract void begin();
+
+    /** Stops counting, call after reading the results. */
+    void end() {
+    }
+
+    /** Bytes allocated by the current thread since {@link #begin()}. */
+    abstract long getAllocatedBytes();
+
+    /** Objects allocated by the current thread since {@link #begin()}, or {@link #UNSUPPORTED}. */
+    abstract long getAllocatedObjects();
+
+    @SuppressWarnings("deprecation")
+    private static class AndroidAllocationCounter extends AllocationCounter {
+
+        @Override
+        void begin() {
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+        }
+
+        @Override
+        void end() {
+            Debug.stopAllocCounting();
+        }
+
+        @Override
+        long getAllocatedBytes() {
+            return Debug.getThreadAllocSize();
+        }
+
+        @Override
+        long getAllocatedObjects() {
+            return Debug.getThreadAllocCount();
+        }
+    }
+
+    /**
+     * Uses reflection as java.lang.management is not part of the Android SDK.
+     */
+    private static class JvmAllocationCounter extends AllocationCounter {
+
+        private final Object threadMXBean;
+        private final Method getThreadAllocatedBytes;
+        private long startBytes;
+
+        JvmAllocationCounter() throws Exception {
+            Class<?> factoryClass = Class.forName("java.lang.management.ManagementFactory");
+            threadMXBean = factoryClass.getMethod("getThreadMXBean").invoke(null);
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (!beanClass.isInstance(threadMXBean)) {
+                throw new UnsupportedOperationException("No HotSpot ThreadMXBean");
+            }
+            getThreadAllocatedBytes = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            // fail early if allocation measurement is disabled
+            if (currentThreadAllocatedBytes() < 0) {
+                throw new UnsupportedOperationException("Thread allocation measurement disabled");
+            }
+        }
+
+        private long currentThreadAllocatedBytes() {
+            try {
+                return (Long) getThreadAllocatedBytes.invoke(threadMXBean,
+                        Thread.currentThread().getId());
+            } catch (Exception e) {
+                throw new RuntimeException("Could not get allocated bytes", e);
+            }
+        }
+
+        @Override
+        void begin() {
+            startBytes = currentThreadAllocatedBytes();
+        }
+
+        @Override
+        long getAllocatedBytes() {
+            return currentThreadAllocatedBytes() - startBytes;
+        }
+
+        @Override
+        long getAllocatedObjects() {
+            return UNSUPPORTED;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package de.greenrobot.performance;
 
 import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
 
 import org.junit.After;
 import org.junit.Before;
@@ -10,9 +13,17 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 import de.greenrobot.performance.Benchmark.Type;
 import de.greenrobot.performance.common.BuildConfig;
+import org.greenrobot.essentials.io.FileUtils;
 
 /**
  * Base test case including some helper methods when running a performance test.
@@ -24,19 +35,221 @@ public abstract class BasePerfTestCase {
     public static final int ONE_BY_ONE_MODIFIER = 10;
     public static final int DEFAULT_QUERY_COUNT = 1000;
     public static final int RUNS = 8;
+    /** Warm up until this many runs are steady, see {@link Benchmark#warmUpUntilSteady}. */
+    public static final int WARM_UP_WINDOW = 3;
+    /** Maximum coefficient of variation (standard deviation / mean) of steady runs. */
+    public static final double WARM_UP_MAX_VARIATION = 0.1;
+    public static final int MAX_WARM_UP_RUNS = 10;
+
+    /**
+     * Instrumentation argument to count allocations per phase, e.g. pass
+     * {@code -e allocationCounting true}. Off by default as it slows down allocations.
+     */
+    public static final String ARG_ALLOCATION_COUNTING = "allocationCounting";
+    /**
+     * Instrumentation argument to run one-by-one and query phases for the given time in ms instead
+     * of a fixed number of operations, e.g. {@code -e throughputMillis 2000}. Reports ops/s and
+     * ns/op for these phases, see {@link #hasNextOperation(int, int)}.
+     */
+    public static final String ARG_THROUGHPUT_MILLIS = "throughputMillis";
+    /**
+     * Instrumentation arguments to run each scenario for a geometric series of batch sizes (and
+     * so also one-by-one counts and entities to query), e.g. {@code -e sweepFrom 1000 -e sweepTo
+     * 1000000 -e sweepFactor 10}. Results for each size are written to separate files, medians per
+     * size and fitted scaling exponents to &lt;LogTag&gt;-&lt;runName&gt;-sweep.tsv.
+     */
+    public static final String ARG_SWEEP_FROM = "sweepFrom";
+    public static final String ARG_SWEEP_TO = "sweepTo";
+    public static final String ARG_SWEEP_FACTOR = "sweepFactor";
+    public static final double DEFAULT_SWEEP_FACTOR = 10;
+    /**
+     * Instrumentation argument (or system property "perf.outputDir") to write result files to the
+     * given directory instead of the external files directory of the app, e.g. when running on the
+     * JVM, see {@link #getOutputDirectory(Context)}.
+     */
+    public static final String ARG_OUTPUT_DIR = "outputDir";
+    /**
+     * Instrumentation arguments to select the {@link EntityValueGenerator.Profile} of entity
+     * values (default realistic) and the ratio of null strings and blobs, e.g. {@code -e
+     * valueProfile legacy}. Written to the results as column "values". The null ratio must be 0
+     * for now: the string and blob columns of SimpleEntityNotNull, used by all modules, do not
+     * accept null.
+     */
+    public static final String ARG_VALUE_PROFILE = "valueProfile";
+    public static final String ARG_NULL_RATIO = "nullRatio";
+    /**
+     * Instrumentation argument to select the {@link IndexDistribution} of indexed queries, e.g.
+     * {@code -e keyDistribution zipf:0.99}, see {@link IndexDistribution#parse(String)}. Default
+     * is uniform. Written to the results as column "key-distribution".
+     */
+    public static final String ARG_KEY_DISTRIBUTION = "keyDistribution";
+    /**
+     * Instrumentation argument to select the {@link StringProfile} of indexed strings and entity
+     * strings, e.g. {@code -e stringProfile cjk}. Default is ascii. Several profiles (comma
+     * separated, or "all") run each scenario once per profile, the profile is appended to the run
+     * name. Written to the results as column "strings".
+     */
+    public static final String ARG_STRING_PROFILE = "stringProfile";
+    /**
+     * Instrumentation argument to set the length (in code points) of indexed strings and entity
+     * strings, e.g. {@code -e stringLength 1000} or a range {@code -e stringLength 5-50}. Default
+     * is the length range of the string profile for indexed strings and the length distribution
+     * of the value profile for entity strings.
+     */
+    public static final String ARG_STRING_LENGTH = "stringLength";
+    /**
+     * Instrumentation argument to run each scenario for the given string lengths (like {@link
+     * #ARG_STRING_LENGTH}) instead of dataset sizes, e.g. {@code -e sweepStringLengths
+     * 10,100,1000,10000}. Medians per length and fitted scaling exponents are written to
+     * &lt;LogTag&gt;-&lt;runName&gt;-length-sweep.tsv.
+     */
+    public static final String ARG_SWEEP_STRING_LENGTHS = "sweepStringLengths";
+    /**
+     * Instrumentation argument to set the directory of the {@link DatasetCache} (default is the
+     * cache directory of the app), e.g. to share it between modules, or "false" to generate test
+     * data in memory for each run.
+     */
+    public static final String ARG_DATASET_CACHE = "datasetCache";
+    /**
+     * Instrumentation argument to set the number of threads generating test data (default is the
+     * number of available processors), see {@link ParallelGenerator}.
+     */
+    public static final String ARG_GENERATOR_THREADS = "generatorThreads";
+    /**
+     * Instrumentation argument to set the number of threads of concurrent scenarios, e.g. {@code
+     * -e threads 8}, see {@link #runConcurrently(Metric, int, int,
+     * ConcurrentDriver.WorkerFactory)}. The concurrent read/write scenario runs with 1, 2, 4, ...
+     * up to this many reader threads, see {@link #getReaderCounts()}.
+     */
+    public static final String ARG_THREADS = "threads";
+    public static final int DEFAULT_THREADS = 4;
+    /**
+     * Instrumentation arguments of the SQLite modules (Sqlite, sqlcipher) to run each scenario for
+     * all combinations of the given journal modes and synchronous settings, e.g. {@code -e
+     * journalModes delete,wal -e synchronousModes all}, see {@link SqliteConfiguration}. Unset
+     * modes keep the platform default. Written to the results as column "config".
+     */
+    public static final String ARG_JOURNAL_MODES = "journalModes";
+    public static final String ARG_SYNCHRONOUS_MODES = "synchronousModes";
+    /** Entities inserted or updated by one transaction of the concurrent read/write scenario. */
+    public static final int CONCURRENT_WRITE_BATCH_SIZE = 100;
+    /** Duration of a concurrent read/write run if {@link #ARG_THROUGHPUT_MILLIS} is not set. */
+    public static final long DEFAULT_CONCURRENT_MILLIS = 3000;
+    /**
+     * Instrumentation arguments to set the target rates of the open-loop scenario in operations
+     * per second, e.g. {@code -e writeRate 500 -e readRate 2000}, see {@link OpenLoopDriver}.
+     * Runs for the time set by {@link #ARG_THROUGHPUT_MILLIS}, or {@link
+     * #DEFAULT_OPEN_LOOP_MILLIS}. Increase the rates over several runs to find where a database
+     * saturates.
+     */
+    public static final String ARG_WRITE_RATE = "writeRate";
+    public static final String ARG_READ_RATE = "readRate";
+    public static final double DEFAULT_WRITE_RATE = 500;
+    public static final double DEFAULT_READ_RATE = 2000;
+    public static final long DEFAULT_OPEN_LOOP_MILLIS = 5000;
+    /**
+     * Instrumentation argument to set the rows of the large table streaming scenario, e.g. {@code
+     * -e largeCount 5000000}. Sweeping dataset sizes (see {@link #ARG_SWEEP_FROM}) overrides it.
+     */
+    public static final String ARG_LARGE_COUNT = "largeCount";
+    public static final int DEFAULT_LARGE_COUNT = 1000000;
+    /**
+     * Instrumentation arguments to set the rows and the rows per page of the paging scenario, e.g.
+     * {@code -e pagingCount 200000 -e pageSize 20}. Sweeping dataset sizes overrides the rows.
+     */
+    public static final String ARG_PAGING_COUNT = "pagingCount";
+    public static final String ARG_PAGE_SIZE = "pageSize";
+    public static final int DEFAULT_PAGING_COUNT = 100000;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    /**
+     * Children of each parent of the relations scenario; there are {@link #getBatchSize()}
+     * children in total.
+     */
+    public static final int RELATION_CHILDREN_PER_PARENT = 10;
+
+    /** Run names are used in result file names, see {@link BenchmarkReport}. */
+    enum Scenario {
+        INDEXED_QUERY("indexed-query", "Indexed Queries"),
+        ONE_BY_ONE("1by1", "One-by-one CRUD"),
+        BATCH("batch", "Batch CRUD"),
+        OPEN_LOOP("open-loop", "Open-loop Load"),
+        CONCURRENT("concurrent", "Concurrent Reads and Writes"),
+        LARGE("large", "Large Table Streaming"),
+        PAGING("paging", "Paging"),
+        RELATIONS("relations", "Relations");
+
+        final String runName;
+        final String title;
+
+        Scenario(String runName, String title) {
+            this.runName = runName;
+            this.title = title;
+        }
+    }
 
     private Benchmark benchmark;
+    private EntityValueGenerator valueGenerator;
+    private StringGenerator stringGenerator;
+    private StringProfile stringProfile;
+    private IndexDistribution indexDistribution;
+    /** Null until read from {@link #ARG_DATASET_CACHE}, see {@link #getDatasetCache()}. */
+    private Boolean datasetCacheEnabled;
+    private DatasetCache datasetCache;
+    private DatasetCache.Values preparedValues;
+    private ParallelGenerator parallelGenerator;
+    private int runCount;
+    /** Negative until read from {@link #ARG_THROUGHPUT_MILLIS}, 0 if disabled. */
+    private long throughputNanos = -1;
+    private long phaseDeadlineNanos;
+    private int phaseOperations;
+    /** If the current phase did all its operations before the deadline in throughput mode. */
+    private boolean phaseOperationsExhausted;
+    /** Batch size of the current sweep step, 0 if not sweeping. */
+    private int sweepSize;
+    /** String length of the current sweep step, 0 if not sweeping string lengths. */
+    private int sweepStringLength;
+    /** Current database configuration, null if not configurable, see getConfigurations(). */
+    private String configuration;
+    /** Reader threads of the current concurrent read/write run. */
+    private int readerCount;
+    /** Samples memory of the current streaming phase, see startStreamingClock(). */
+    private MemorySampler memorySampler;
 
+    /**
+     * The number of entities of batch runs and to query, also determines the one-by-one count.
+     * Returns the current size if sweeping, see {@link #ARG_SWEEP_FROM}.
+     */
     protected int getBatchSize() {
-        return DEFAULT_BATCH_SIZE;
+        return sweepSize > 0 ? sweepSize : DEFAULT_BATCH_SIZE;
     }
 
     protected int getOneByOneCount() {
-        return getBatchSize() / ONE_BY_ONE_MODIFIER;
+        return isThroughputMode() ? getThroughputCapacity() : getBatchSize() / ONE_BY_ONE_MODIFIER;
     }
 
     protected int getQueryCount() {
-        return DEFAULT_QUERY_COUNT;
+        return isThroughputMode() ? getThroughputCapacity() : DEFAULT_QUERY_COUNT;
+    }
+
+    /**
+     * In throughput mode the maximum number of operations of a phase, e.g. entities prepared for
+     * one-by-one creation. Should not be reached within the time limit, stopping the clock logs a
+     * warning if a phase did all its operations before.
+     */
+    protected int getThroughputCapacity() {
+        return DEFAULT_BATCH_SIZE * ONE_BY_ONE_MODIFIER;
+    }
+
+    /**
+     * If one-by-one and query phases run for a fixed time, see {@link #ARG_THROUGHPUT_MILLIS}.
+     */
+    protected boolean isThroughputMode() {
+        if (throughputNanos < 0) {
+            String throughputMillis = getArgument(ARG_THROUGHPUT_MILLIS);
+            throughputNanos = throughputMillis != null
+                    ? Math.max(0, Long.parseLong(throughputMillis)) * 1000000 : 0;
+        }
+        return throughputNanos > 0;
     }
 
     /**
@@ -52,89 +265,452 @@ public abstract class BasePerfTestCase {
 
     @After
     public void tearDown() throws Exception {
+        if (parallelGenerator != null) {
+            parallelGenerator.shutdown();
+        }
     }
 
     protected Context getTargetContext() {
         return InstrumentationRegistry.getTargetContext();
     }
 
-    @Test
-    public void testIndexedStringEntityQueries() throws Exception {
-        //noinspection PointlessBooleanExpression
-        if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
-            log("Performance tests are disabled.");
-            return;
+    /**
+     * Returns the value of the given instrumentation argument, if not set the value of the
+     * system property "perf.&lt;key&gt;", or null.
+     */
+    public static String getArgument(String key) {
+        Bundle arguments;
+        try {
+            arguments = InstrumentationRegistry.getArguments();
+        } catch (IllegalStateException e) {
+            // not run by an instrumentation, e.g. on the JVM using Robolectric
+            arguments = null;
         }
+        String value = arguments != null ? arguments.getString(key) : null;
+        return value != null ? value : System.getProperty("perf." + key);
+    }
 
-        setUpBenchmark("indexed-query");
-        onRunSetup();
-
-        log("--------Indexed Queries: Start");
-        doIndexedStringEntityQueries();
-        benchmark.logResults();
-        log("--------Indexed Queries: End");
+    /**
+     * Creates the generator for entity values selected by {@link #ARG_VALUE_PROFILE} and {@link
+     * #ARG_NULL_RATIO}.
+     */
+    public static EntityValueGenerator createValueGenerator() {
+        return createValueGenerator(getStringProfiles().get(0), 0);
     }
 
-    @Test
-    public void testOneByOneCrud() throws Exception {
-        //noinspection PointlessBooleanExpression
-        if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
-            log("Performance tests are disabled.");
-            return;
+    /**
+     * Like {@link #createValueGenerator()}, using the given string profile.
+     *
+     * @param fixedStringLength if positive all strings have this length, otherwise lengths are
+     * set by {@link #ARG_STRING_LENGTH} or the value profile.
+     */
+    public static EntityValueGenerator createValueGenerator(StringProfile stringProfile,
+            int fixedStringLength) {
+        String profileName = getArgument(ARG_VALUE_PROFILE);
+        String nullRatioValue = getArgument(ARG_NULL_RATIO);
+        EntityValueGenerator.Profile profile = profileName != null
+                ? EntityValueGenerator.Profile.valueOf(profileName.toUpperCase(Locale.US))
+                : EntityValueGenerator.Profile.REALISTIC;
+        double nullRatio = nullRatioValue != null ? Double.parseDouble(nullRatioValue) : 0;
+        if (nullRatio > 0) {
+            // fail before a run instead of with a constraint violation while inserting
+            throw new IllegalArgumentException("Null ratio " + nullRatio + " is not supported,"
+                    + " the columns of SimpleEntityNotNull do not accept null");
+        }
+        int[] lengths = fixedStringLength > 0 ? new int[] { fixedStringLength, fixedStringLength }
+                : parseStringLength(getArgument(ARG_STRING_LENGTH));
+        if (lengths == null) {
+            return new EntityValueGenerator(profile, nullRatio, stringProfile);
         }
+        return new EntityValueGenerator(profile, nullRatio, stringProfile, lengths[0],
+                lengths[1]);
+    }
 
-        setUpBenchmark("1by1");
-        onRunSetup();
+    /**
+     * Returns the string profiles selected by {@link #ARG_STRING_PROFILE}, at least one.
+     */
+    protected static List<StringProfile> getStringProfiles() {
+        String names = getArgument(ARG_STRING_PROFILE);
+        if (names == null) {
+            return Collections.singletonList(StringProfile.ASCII);
+        }
+        if ("all".equals(names)) {
+            return Arrays.asList(StringProfile.values());
+        }
+        List<StringProfile> profiles = new ArrayList<>();
+        for (String name : names.split(",")) {
+            profiles.add(StringProfile.parse(name));
+        }
+        return profiles;
+    }
 
-        log("--------One-by-one CRUD: Start");
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
-            doOneByOneCrudRun(getOneByOneCount());
+    /**
+     * Parses a length like "100" or a range like "5-50", returns null if the value is null.
+     */
+    private static int[] parseStringLength(String value) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf('-');
+        if (separator < 0) {
+            int length = Integer.parseInt(value.trim());
+            return new int[] { length, length };
+        }
+        return new int[] { Integer.parseInt(value.substring(0, separator).trim()),
+                Integer.parseInt(value.substring(separator + 1).trim()) };
+    }
 
-            benchmark.commit();
+    /**
+     * Returns the directory set with {@link #ARG_OUTPUT_DIR}, or the external files directory of
+     * the given context.
+     */
+    public static File getOutputDirectory(Context context) {
+        String outputDir = getArgument(ARG_OUTPUT_DIR);
+        if (outputDir == null) {
+            // TODO ut: can not use ext. storage root directory as M+ requires runtime permission
+            return context.getExternalFilesDir(null);
         }
-        benchmark.logResults();
-        log("--------One-by-one CRUD: End");
+        File directory = new File(outputDir);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RuntimeException("Could not create output directory " + directory);
+        }
+        return directory;
+    }
+
+    @Test
+    public void testIndexedStringEntityQueries() throws Exception {
+        runScenario(Scenario.INDEXED_QUERY);
+    }
+
+    @Test
+    public void testOneByOneCrud() throws Exception {
+        runScenario(Scenario.ONE_BY_ONE);
     }
 
     @Test
     public void testBatchCrud() throws Exception {
+        runScenario(Scenario.BATCH);
+    }
+
+    @Test
+    public void testOpenLoop() throws Exception {
+        runScenario(Scenario.OPEN_LOOP);
+    }
+
+    @Test
+    public void testConcurrentReadWrite() throws Exception {
+        runScenario(Scenario.CONCURRENT);
+    }
+
+    @Test
+    public void testLargeTableStreaming() throws Exception {
+        runScenario(Scenario.LARGE);
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+        runScenario(Scenario.PAGING);
+    }
+
+    @Test
+    public void testRelations() throws Exception {
+        runScenario(Scenario.RELATIONS);
+    }
+
+    private void runScenario(Scenario scenario) throws Exception {
         //noinspection PointlessBooleanExpression
         if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
             log("Performance tests are disabled.");
             return;
         }
 
-        setUpBenchmark("batch");
-        onRunSetup();
+        List<String> configurations = getConfigurations();
+        if (configurations == null) {
+            configurations = Collections.singletonList(null);
+        }
+        List<StringProfile> profiles = getStringProfiles();
+        try {
+            for (String configuration : configurations) {
+                this.configuration = configuration;
+                for (int i = 0; i < profiles.size(); i++) {
+                    setStringProfile(profiles.get(i));
+                    String runName = scenario.runName;
+                    if (configurations.size() > 1) {
+                        runName += "-" + configuration;
+                    }
+                    if (profiles.size() > 1) {
+                        runName += "-" + stringProfile.getName();
+                    }
+                    // set up again for each configuration
+                    runSweep(scenario, runName, i == 0);
+                }
+            }
+        } finally {
+            configuration = null;
+        }
+    }
 
-        log("--------Batch CRUD: Start");
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
-            doBatchCrudRun(getBatchSize());
+    private void runSweep(Scenario scenario, String runName, boolean firstRunSetup)
+            throws Exception {
+        int[] sweepSizes = getSweepSizes();
+        int[] sweepStringLengths = getSweepStringLengths();
+        int[] readerCounts = null;
+        if (scenario == Scenario.CONCURRENT) {
+            // always sweeps its reader threads, so a suite run with another sweep does not fail
+            if (sweepSizes != null || sweepStringLengths != null) {
+                Log.w(getLogTag(), "Ignoring the sweep of dataset sizes or string lengths, "
+                        + scenario.title + " sweeps reader threads");
+                sweepSizes = null;
+                sweepStringLengths = null;
+            }
+            readerCounts = getReaderCounts();
+        }
+        int sweeps = (sweepSizes != null ? 1 : 0) + (sweepStringLengths != null ? 1 : 0)
+                + (readerCounts != null ? 1 : 0);
+        if (sweeps > 1) {
+            throw new IllegalArgumentException(
+                    "Sweep only one of dataset sizes or string lengths");
+        }
+        if (sweeps == 0) {
+            runScenario(scenario, runName, firstRunSetup);
+            return;
+        }
+
+        int[] sweepValues;
+        String parameter;
+        String fileSuffix;
+        if (readerCounts != null) {
+            sweepValues = readerCounts;
+            parameter = "readers";
+            fileSuffix = "readers-sweep";
+        } else if (sweepStringLengths != null) {
+            sweepValues = sweepStringLengths;
+            parameter = "len";
+            fileSuffix = "length-sweep";
+        } else {
+            sweepValues = sweepSizes;
+            parameter = "n";
+            fileSuffix = "sweep";
+        }
+        SizeSweep sweep = new SizeSweep(parameter);
+        try {
+            for (int i = 0; i < sweepValues.length; i++) {
+                if (readerCounts != null) {
+                    readerCount = sweepValues[i];
+                } else if (sweepStringLengths != null) {
+                    setSweepStringLength(sweepValues[i]);
+                } else {
+                    sweepSize = sweepValues[i];
+                }
+                runScenario(scenario, runName + "-" + parameter + sweepValues[i],
+                        firstRunSetup && i == 0);
+                sweep.add(sweepValues[i], benchmark.getMeasurements());
+            }
+        } finally {
+            sweepSize = 0;
+            setSweepStringLength(0);
+            readerCount = 0;
+        }
+        List<SizeSweep.Fit> fits = sweep.fit();
+        log(sweep.format(fits));
+        File sweepFile = new File(getOutputDirectory(getTargetContext()),
+                String.format("%s-%s-%s.tsv", getLogTag(), runName, fileSuffix));
+        String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date());
+        String[][] fixedColumns = { { "device", Build.MODEL }, { "time", time } };
+        FileUtils.appendUtf8(sweepFile, sweep.toTsv(fits, fixedColumns));
+    }
+
+    private void runScenario(Scenario scenario, String runName, boolean firstRunSetup)
+            throws Exception {
+        int operationsPerPhase;
+        switch (scenario) {
+            case INDEXED_QUERY:
+                operationsPerPhase = getQueryCount();
+                break;
+            case ONE_BY_ONE:
+                operationsPerPhase = getOneByOneCount();
+                break;
+            case OPEN_LOOP:
+            case CONCURRENT:
+            case LARGE:
+            case PAGING:
+                // operations depend on the rates or the time, reported per run
+                operationsPerPhase = 0;
+                break;
+            default:
+                operationsPerPhase = getBatchSize();
+        }
+        setUpBenchmark(runName, operationsPerPhase);
+        if (firstRunSetup) {
+            onRunSetup();
+        }
 
-            benchmark.commit();
+        String title = scenario.title + " ("
+                + (configuration != null ? "config " + configuration + ", " : "")
+                + "strings " + getStringGenerator()
+                + (sweepSize > 0 ? ", size " + sweepSize : "")
+                + (readerCount > 0 ? ", readers " + readerCount : "") + ")";
+        log("--------" + title + ": Start");
+        switch (scenario) {
+            case INDEXED_QUERY:
+                doIndexedStringEntityQueries();
+                break;
+            case ONE_BY_ONE:
+                while (startNextRun()) {
+                    doOneByOneCrudRun(getOneByOneCount());
+                    benchmark.commit();
+                }
+                break;
+            case BATCH:
+                while (startNextRun()) {
+                    doBatchCrudRun(getBatchSize());
+                    benchmark.commit();
+                }
+                break;
+            case OPEN_LOOP:
+                while (startNextRun()) {
+                    doOpenLoopRun();
+                    benchmark.commit();
+                }
+                break;
+            case CONCURRENT:
+                while (startNextRun()) {
+                    doConcurrentReadWriteRun(readerCount);
+                    benchmark.commit();
+                }
+                break;
+            case LARGE:
+                doLargeTableStreaming(getLargeCount());
+                break;
+            case PAGING:
+                doPaging(getPagingCount(), getPageSize());
+                break;
+            case RELATIONS:
+                while (startNextRun()) {
+                    doRelationsRun(
+                            Math.max(1, getBatchSize() / RELATION_CHILDREN_PER_PARENT),
+                            RELATION_CHILDREN_PER_PARENT);
+                    benchmark.commit();
+                }
+                break;
         }
         benchmark.logResults();
-        log("--------Batch CRUD: End");
+        log("--------" + title + ": End");
+    }
+
+    /**
+     * Returns the dataset sizes to sweep over, or null if no sweep is configured, see {@link
+     * #ARG_SWEEP_FROM}.
+     */
+    protected static int[] getSweepSizes() {
+        String from = getArgument(ARG_SWEEP_FROM);
+        String to = getArgument(ARG_SWEEP_TO);
+        if (from == null || to == null) {
+            return null;
+        }
+        String factor = getArgument(ARG_SWEEP_FACTOR);
+        return SizeSweep.geometricSizes(Integer.parseInt(from), Integer.parseInt(to),
+                factor != null ? Double.parseDouble(factor) : DEFAULT_SWEEP_FACTOR);
+    }
+
+    /**
+     * Returns the string lengths to sweep over, or null if not configured, see {@link
+     * #ARG_SWEEP_STRING_LENGTHS}.
+     */
+    protected static int[] getSweepStringLengths() {
+        String value = getArgument(ARG_SWEEP_STRING_LENGTHS);
+        if (value == null) {
+            return null;
+        }
+        String[] lengths = value.split(",");
+        int[] sweepLengths = new int[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            sweepLengths[i] = Integer.parseInt(lengths[i].trim());
+        }
+        return sweepLengths;
     }
 
     protected void onRunSetup() throws Exception {
         // no additional setup
     }
 
-    private void setUpBenchmark(String runName) {
-        // TODO ut: can not use ext. storage root directory as M+ requires runtime permission
-        File outputFile = new File(getTargetContext().getExternalFilesDir(null),
+    /**
+     * Override to run each scenario with several database configurations, e.g. {@link
+     * SqliteConfiguration}s selected by {@link #ARG_JOURNAL_MODES}. {@link #onRunSetup()} is
+     * called again for each configuration, apply {@link #getConfiguration()} there. Several
+     * configurations are appended to the run name. Returns null (the default) to run once.
+     */
+    protected List<String> getConfigurations() {
+        return null;
+    }
+
+    /**
+     * Returns the current database configuration, see {@link #getConfigurations()}. Written to
+     * the results as column "config". Null if not configurable.
+     */
+    protected String getConfiguration() {
+        return configuration;
+    }
+
+    private void setUpBenchmark(String runName, int operationsPerPhase) {
+        File outputFile = new File(getOutputDirectory(getTargetContext()),
                 String.format("%s-%s.tsv", getLogTag(), runName));
         benchmark = new Benchmark(outputFile, getLogTag());
-        benchmark.addFixedColumnDevice();
+        benchmark.addFixedColumnDevice()
+                .addFixedColumn("values", getValueGenerator().toString())
+                .addFixedColumn("strings", getStringGenerator().toString())
+                .addFixedColumn("key-distribution", getIndexDistribution().getName())
+                .warmUpUntilSteady(WARM_UP_WINDOW, WARM_UP_MAX_VARIATION, getMaxWarmUpRuns());
+        if (configuration != null) {
+            benchmark.addFixedColumn("config", configuration);
+        }
+        if (isThroughputMode()) {
+            benchmark.addFixedColumn("throughput-ms", Long.toString(throughputNanos / 1000000));
+        } else {
+            benchmark.operationsPerPhase(operationsPerPhase);
+        }
+        runCount = 0;
+        if (Boolean.parseBoolean(getArgument(ARG_ALLOCATION_COUNTING))) {
+            benchmark.enableAllocationCounting();
+        }
+    }
+
+    /**
+     * Override to limit warm-up runs, e.g. for very slow databases.
+     */
+    protected int getMaxWarmUpRuns() {
+        return MAX_WARM_UP_RUNS;
+    }
+
+    /**
+     * Returns true if another run should be done: while warming up until results are steady, then
+     * for {@link #RUNS} measured runs. Call {@link #commitRun()} at the end of each run.
+     */
+    protected boolean startNextRun() {
+        runCount++;
+        if (benchmark.isWarmingUp()) {
+            log("----Run " + runCount + " (warm up)");
+            return true;
+        }
+        int measuredRuns = benchmark.getMeasuredRuns();
+        if (measuredRuns < RUNS) {
+            log("----Run " + (measuredRuns + 1) + " of " + RUNS);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the results of the current run, see {@link #startNextRun()}.
+     */
+    protected void commitRun() {
+        benchmark.commit();
     }
 
     /**
      * Create entities with a string property, populate them with {@link
-     * StringGenerator#createFixedRandomStrings(int)}. Then query for the fixed set of indexes given
-     * by {@link StringGenerator#getFixedRandomIndices(int, int)}. See existing tests for guidance.
+     * #getFixedRandomStrings(int)}. Then query for the fixed set of indexes given
+     * by {@link #createQueryIndices(int, int)}. See existing tests for guidance.
      */
     protected void doIndexedStringEntityQueries() throws Exception {
         log("doIndexedStringEntityQueries NOT implemented");
@@ -154,12 +730,622 @@ public abstract class BasePerfTestCase {
         log("doBatchCrudRun NOT implemented");
     }
 
+    /**
+     * Insert {@link #getBatchSize()} entities, then write and read single entities at the rates
+     * of {@link #getWriteRate()} and {@link #getReadRate()} using {@link
+     * #runOpenLoop(OpenLoopDriver)}. Delete all. See existing tests for guidance.
+     */
+    protected void doOpenLoopRun() throws Exception {
+        log("doOpenLoopRun NOT implemented");
+    }
+
+    /**
+     * Insert {@link #getBatchSize()} indexed string entities (see {@link
+     * #doIndexedStringEntityQueries()}), then run {@link #runReadersAndWriter(int,
+     * ConcurrentDriver.WorkerFactory)}: the writer alternately inserts and updates {@link
+     * #CONCURRENT_WRITE_BATCH_SIZE} entities in a transaction (built before, see {@link
+     * #getWriterBatchCount(int)}), readers query indexed strings. Delete all. Enable concurrent
+     * reads if the database supports it, e.g. write-ahead logging for SQLite.
+     */
+    protected void doConcurrentReadWriteRun(int readerCount) throws Exception {
+        log("doConcurrentReadWriteRun NOT implemented");
+    }
+
+    /**
+     * Insert count entities in transactions of {@link #getBatchSize()} (see {@link
+     * #createWriterValues(long)}), not measured. Then for each run (see {@link #startNextRun()})
+     * read all of them between {@link #startStreamingClock()} and {@link
+     * #stopStreamingClock(int, int)} without keeping them, e.g. iterating a cursor or a lazy
+     * list, feeding each into the {@link #getBlackhole()}. Delete all. See existing tests for
+     * guidance.
+     */
+    protected void doLargeTableStreaming(int count) throws Exception {
+        log("doLargeTableStreaming NOT implemented");
+    }
+
+    /**
+     * Insert count entities in transactions of {@link #getBatchSize()} (see {@link
+     * #createWriterValues(long)}), not measured. Then for each run (see {@link #startNextRun()})
+     * read all of them in pages of pageSize ordered by id twice, recording each page's latency
+     * (see {@link #startPagingClock(int)}): as {@link Type#PAGING_OFFSET} using LIMIT and OFFSET,
+     * and as {@link Type#PAGING_KEYSET} querying ids greater than the last id of the previous
+     * page. Use what the query API of the library offers. Delete all.
+     */
+    protected void doPaging(int count, int pageSize) throws Exception {
+        log("doPaging NOT implemented");
+    }
+
+    /**
+     * Insert parentCount parents with childrenPerParent children each (parent of child i is
+     * i / childrenPerParent, names and values taken from {@link #createValues(long)}), not
+     * measured. Read all of them as {@link Type#RELATION_JOIN} (parents with their children
+     * loaded eagerly, by the library if it can, otherwise by a join), {@link Type#RELATION_LAZY}
+     * (parents, then the children of each through the lazy to-many relation or a query per
+     * parent) and {@link Type#RELATION_TO_ONE} (children, then the parent of each), feeding all
+     * names and values into the {@link #getBlackhole()}. Clear entity caches before each phase.
+     * Delete all. See existing tests for guidance.
+     */
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        log("doRelationsRun NOT implemented");
+    }
+
+    protected EntityValueGenerator getValueGenerator() {
+        if (valueGenerator == null) {
+            valueGenerator = createValueGenerator(getStringProfile(), sweepStringLength);
+        }
+        return valueGenerator;
+    }
+
+    /**
+     * Returns the current string profile, see {@link #ARG_STRING_PROFILE}.
+     */
+    protected StringProfile getStringProfile() {
+        if (stringProfile == null) {
+            stringProfile = getStringProfiles().get(0);
+        }
+        return stringProfile;
+    }
+
+    /**
+     * Returns the generator of indexed strings, see {@link #getFixedRandomStrings(int)}.
+     */
+    protected StringGenerator getStringGenerator() {
+        if (stringGenerator == null) {
+            StringProfile profile = getStringProfile();
+            int[] lengths = sweepStringLength > 0
+                    ? new int[] { sweepStringLength, sweepStringLength }
+                    : parseStringLength(getArgument(ARG_STRING_LENGTH));
+            stringGenerator = lengths != null
+                    ? new StringGenerator(profile, lengths[0], lengths[1])
+                    : new StringGenerator(profile);
+        }
+        return stringGenerator;
+    }
+
+    private void setStringProfile(StringProfile profile) {
+        stringProfile = profile;
+        resetGenerators();
+    }
+
+    private void setSweepStringLength(int length) {
+        if (sweepStringLength != length) {
+            sweepStringLength = length;
+            resetGenerators();
+        }
+    }
+
+    private void resetGenerators() {
+        valueGenerator = null;
+        stringGenerator = null;
+        preparedValues = null;
+    }
+
+    /**
+     * Returns the values of the test entity with the given id, see {@link EntityValueGenerator}.
+     * Values of ids up to the batch (or one-by-one) count are prepared in parallel on first use,
+     * or read from the {@link DatasetCache} if enabled.
+     */
+    protected EntityValues createValues(long id) {
+        int count = Math.max(getBatchSize(), getOneByOneCount());
+        if (preparedValues == null || preparedValues.size() < count) {
+            preparedValues = null; // allow GC of the previous values first
+            preparedValues = prepareValues(getValueGenerator(), count, getDatasetCache(),
+                    getParallelGenerator());
+        }
+        if (id >= 0 && id < preparedValues.size()) {
+            return preparedValues.get((int) id);
+        }
+        return getValueGenerator().create(id);
+    }
+
+    /**
+     * Returns the values of the ids 0 to count - 1, read from the given cache or, if it is null,
+     * generated in parallel.
+     */
+    public static DatasetCache.Values prepareValues(final EntityValueGenerator valueGenerator,
+            int count, DatasetCache cache, ParallelGenerator parallelGenerator) {
+        if (cache != null) {
+            return cache.getValues(valueGenerator, count);
+        }
+        EntityValues[] values = new EntityValues[count];
+        parallelGenerator.fill(values, 0, new ParallelGenerator.Factory<EntityValues>() {
+            @Override
+            public EntityValues create(int index) {
+                return valueGenerator.create(index);
+            }
+        });
+        return DatasetCache.wrap(values);
+    }
+
+    /**
+     * Returns the values of the entity with the given id written by the concurrent read/write
+     * and the large table scenarios. Ids keep growing while values repeat every {@link
+     * #getBatchSize()} entities, so they are read from the prepared values instead of generated
+     * while measuring.
+     */
+    protected EntityValues createWriterValues(long id) {
+        EntityValues values = createValues(id % getBatchSize());
+        return new EntityValues(id, values.simpleBoolean, values.simpleByte, values.simpleShort,
+                values.simpleInt, values.simpleLong, values.simpleFloat, values.simpleDouble,
+                values.simpleString, values.simpleByteArray);
+    }
+
+    /**
+     * The number of batches of {@link #CONCURRENT_WRITE_BATCH_SIZE} entities the writer of the
+     * concurrent read/write scenario cycles through: they are built before measuring with the
+     * values of {@link #createWriterValues(long)}, the writer only sets new ids before inserting.
+     */
+    public static int getWriterBatchCount(int batchSize) {
+        return Math.max(1, batchSize / CONCURRENT_WRITE_BATCH_SIZE);
+    }
+
+    /**
+     * Returns the first count strings of {@link #getStringGenerator()} (by default {@link
+     * StringGenerator#createFixedRandomStrings(int)}), read from the {@link DatasetCache} if
+     * enabled.
+     */
+    protected DatasetCache.Strings getFixedRandomStrings(int count) {
+        DatasetCache cache = getDatasetCache();
+        if (cache == null) {
+            return DatasetCache.wrap(getStringGenerator().createStrings(count,
+                    getParallelGenerator()));
+        }
+        return cache.getStrings(getStringGenerator(), count);
+    }
+
+    /**
+     * Returns the cache of pre-generated test data, or null if disabled by {@link
+     * #ARG_DATASET_CACHE}.
+     */
+    protected DatasetCache getDatasetCache() {
+        if (datasetCacheEnabled == null) {
+            datasetCache = createDatasetCache(getTargetContext(), getParallelGenerator());
+            datasetCacheEnabled = datasetCache != null;
+        }
+        return datasetCache;
+    }
+
+    /**
+     * Returns a cache in the directory set by {@link #ARG_DATASET_CACHE} (by default in the cache
+     * directory of the given context), or null if disabled.
+     */
+    public static DatasetCache createDatasetCache(Context context,
+            ParallelGenerator parallelGenerator) {
+        String directory = getArgument(ARG_DATASET_CACHE);
+        if ("false".equals(directory)) {
+            return null;
+        }
+        return new DatasetCache(directory != null ? new File(directory)
+                : new File(context.getCacheDir(), "datasets"), parallelGenerator);
+    }
+
+    /**
+     * Returns the generator to create test data with, see {@link #ARG_GENERATOR_THREADS}.
+     */
+    protected ParallelGenerator getParallelGenerator() {
+        if (parallelGenerator == null) {
+            parallelGenerator = createParallelGenerator();
+        }
+        return parallelGenerator;
+    }
+
+    /**
+     * Returns a generator using the threads set by {@link #ARG_GENERATOR_THREADS}, by default one
+     * per processor. Shut it down when done.
+     */
+    public static ParallelGenerator createParallelGenerator() {
+        String threads = getArgument(ARG_GENERATOR_THREADS);
+        return new ParallelGenerator(threads != null ? Integer.parseInt(threads)
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    protected IndexDistribution getIndexDistribution() {
+        if (indexDistribution == null) {
+            String spec = getArgument(ARG_KEY_DISTRIBUTION);
+            indexDistribution = spec != null ? IndexDistribution.parse(spec)
+                    : IndexDistribution.uniform();
+        }
+        return indexDistribution;
+    }
+
+    /**
+     * Returns the indices of the entities to query, from 0 to maxIndex (inclusive), see {@link
+     * #getIndexDistribution()}.
+     */
+    protected int[] createQueryIndices(int count, int maxIndex) {
+        return getIndexDistribution().createIndices(count, maxIndex);
+    }
+
+    /**
+     * Returns the blackhole to feed all values read (e.g. entity properties) into, so reading
+     * them can not be optimized away, see {@link Benchmark#getBlackhole()}.
+     */
+    protected Blackhole getBlackhole() {
+        return benchmark.getBlackhole();
+    }
+
     protected void startClock() {
         benchmark.start();
+        phaseOperations = 0;
+        phaseOperationsExhausted = false;
+        phaseDeadlineNanos = isThroughputMode() ? System.nanoTime() + throughputNanos : 0;
     }
 
+    /**
+     * Loop condition for phases doing single operations, use like
+     * {@code for (int i = 0; hasNextOperation(i, count); i++)}. Returns if there are operations
+     * left, in throughput mode additionally if there is time left (but always does at least one
+     * operation).
+     */
+    protected boolean hasNextOperation(int index, int count) {
+        if (index >= count) {
+            if (phaseDeadlineNanos != 0 && System.nanoTime() < phaseDeadlineNanos) {
+                phaseOperationsExhausted = true;
+            }
+            return false;
+        }
+        if (index > 0 && phaseDeadlineNanos != 0 && System.nanoTime() >= phaseDeadlineNanos) {
+            return false;
+        }
+        phaseOperations = index + 1;
+        return true;
+    }
+
+    /**
+     * The number of operations done by the current or last phase using {@link
+     * #hasNextOperation(int, int)}, e.g. entities created before the time ran out.
+     */
+    protected int getOperationCount() {
+        return phaseOperations;
+    }
+
+    /**
+     * Stops the clock; in throughput mode also reports the throughput of the operations counted by
+     * {@link #hasNextOperation(int, int)}, and logs a warning if they ran out before the time was
+     * up, as the phase then did not run for the full time.
+     */
     protected void stopClock(Type type) {
-        benchmark.stop(type);
+        stopClock(type.getMetric());
+    }
+
+    /**
+     * Stops the clock for a metric registered by the library module, see {@link MetricRegistry}.
+     */
+    protected void stopClock(Metric metric) {
+        benchmark.stop(metric, isThroughputMode() ? phaseOperations : 0);
+        if (phaseOperationsExhausted) {
+            Log.w(getLogTag(), metric.getName() + " did all " + phaseOperations + " operations"
+                    + " before the time was up, its ops/s are understated: raise the throughput"
+                    + " capacity (" + getThroughputCapacity() + ") or lower "
+                    + ARG_THROUGHPUT_MILLIS);
+            phaseOperationsExhausted = false;
+        }
+    }
+
+    /**
+     * Returns the number of threads of concurrent scenarios, see {@link #ARG_THREADS}.
+     */
+    protected static int getThreadCount() {
+        String threads = getArgument(ARG_THREADS);
+        return threads != null ? Integer.parseInt(threads) : DEFAULT_THREADS;
+    }
+
+    /**
+     * Returns the reader thread counts of the concurrent read/write scenario: powers of two up to
+     * {@link #getThreadCount()}, and the thread count itself.
+     */
+    public static int[] getReaderCounts() {
+        int threadCount = getThreadCount();
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Illegal thread count " + threadCount);
+        }
+        List<Integer> counts = new ArrayList<>();
+        for (int count = 1; count < threadCount; count *= 2) {
+            counts.add(count);
+        }
+        counts.add(threadCount);
+        int[] readerCounts = new int[counts.size()];
+        for (int i = 0; i < readerCounts.length; i++) {
+            readerCounts[i] = counts.get(i);
+        }
+        return readerCounts;
+    }
+
+    /**
+     * Duration of concurrent read/write runs: the time set by {@link #ARG_THROUGHPUT_MILLIS}, or
+     * {@link #DEFAULT_CONCURRENT_MILLIS}.
+     */
+    public static long getConcurrentMillis() {
+        String throughputMillis = getArgument(ARG_THROUGHPUT_MILLIS);
+        long millis = throughputMillis != null ? Long.parseLong(throughputMillis) : 0;
+        return millis > 0 ? millis : DEFAULT_CONCURRENT_MILLIS;
+    }
+
+    /**
+     * Runs one writer and readerCount readers at once for {@link #getConcurrentMillis()}, see
+     * {@link #runReadersAndWriter(Benchmark, int, long, ConcurrentDriver.WorkerFactory)}.
+     */
+    protected ConcurrentDriver.Result runReadersAndWriter(int readerCount,
+            ConcurrentDriver.WorkerFactory factory) {
+        // prepare values now, not on the writer thread while measuring
+        createValues(0);
+        return runReadersAndWriter(benchmark, readerCount, getConcurrentMillis(), factory);
+    }
+
+    /**
+     * Runs a writer (thread index 0) and readers (thread indices 1 to readerCount) at once for
+     * the given time as phase {@link Type#CONCURRENT_WRITE}. Reports the writer's transaction
+     * latencies and entities written per second (each operation writing {@link
+     * #CONCURRENT_WRITE_BATCH_SIZE} entities), latency percentiles over all readers and queries
+     * per second as {@link Type#CONCURRENT_READ}; logs per-thread stats.
+     */
+    public static ConcurrentDriver.Result runReadersAndWriter(final Benchmark benchmark,
+            int readerCount, long durationMillis, ConcurrentDriver.WorkerFactory factory) {
+        ConcurrentDriver driver = new ConcurrentDriver(readerCount + 1)
+                .durationMillis(durationMillis);
+        ConcurrentDriver.Result result = driver.run(factory, new Runnable() {
+            @Override
+            public void run() {
+                benchmark.start();
+            }
+        });
+        ConcurrentDriver.Recorder[] recorders = result.getRecorders();
+        LatencyHistogram readHistogram = new LatencyHistogram();
+        long reads = 0;
+        for (int i = 1; i < recorders.length; i++) {
+            readHistogram.add(recorders[i].getHistogram());
+            reads += recorders[i].getOperations();
+        }
+        benchmark.record(Type.CONCURRENT_WRITE.getMetric(), recorders[0].getHistogram());
+        benchmark.record(Type.CONCURRENT_READ.getMetric(), readHistogram);
+        benchmark.stop(Type.CONCURRENT_WRITE.getMetric(),
+                recorders[0].getOperations() * CONCURRENT_WRITE_BATCH_SIZE);
+        long elapsedNanos = result.getElapsedNanos();
+        benchmark.add(Benchmark.registerOperationsPerSecond(Type.CONCURRENT_READ.getMetric()),
+                elapsedNanos > 0 ? reads * 1000000000L / elapsedNanos : 0);
+        benchmark.log(result.format());
+        return result;
+    }
+
+    /**
+     * Runs operations on multiple threads at once as one phase, see {@link ConcurrentDriver}. The
+     * clock is started once all workers are created. Reports the time of the phase, the total
+     * throughput and latency percentiles over all threads, logs per-thread stats.
+     *
+     * @param operationsPerThread in throughput mode threads run for the configured time instead.
+     */
+    protected ConcurrentDriver.Result runConcurrently(Metric metric, int threadCount,
+            int operationsPerThread, ConcurrentDriver.WorkerFactory factory) {
+        ConcurrentDriver driver = new ConcurrentDriver(threadCount);
+        if (isThroughputMode()) {
+            driver.durationMillis(throughputNanos / 1000000);
+        } else {
+            driver.operationsPerThread(operationsPerThread);
+        }
+        ConcurrentDriver.Result result = driver.run(factory, new Runnable() {
+            @Override
+            public void run() {
+                benchmark.start();
+            }
+        });
+        benchmark.record(metric, result.getHistogram());
+        benchmark.stop(metric, result.getOperations());
+        log(result.format());
+        return result;
+    }
+
+    /**
+     * Rows of the large table streaming scenario, see {@link #ARG_LARGE_COUNT}. Returns the
+     * current size if sweeping.
+     */
+    protected int getLargeCount() {
+        if (sweepSize > 0) {
+            return sweepSize;
+        }
+        String count = getArgument(ARG_LARGE_COUNT);
+        return count != null ? Integer.parseInt(count) : DEFAULT_LARGE_COUNT;
+    }
+
+    /**
+     * Rows of the paging scenario, see {@link #ARG_PAGING_COUNT}. Returns the current size if
+     * sweeping.
+     */
+    protected int getPagingCount() {
+        if (sweepSize > 0) {
+            return sweepSize;
+        }
+        String count = getArgument(ARG_PAGING_COUNT);
+        return count != null ? Integer.parseInt(count) : DEFAULT_PAGING_COUNT;
+    }
+
+    /**
+     * Rows per page of the paging scenario, see {@link #ARG_PAGE_SIZE}.
+     */
+    protected int getPageSize() {
+        String pageSize = getArgument(ARG_PAGE_SIZE);
+        return pageSize != null ? Integer.parseInt(pageSize) : DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Starts the clock for paging through count rows in pages of {@link #getPageSize()}. Record
+     * the latency of each page into the returned instance, then call {@link
+     * #stopPagingClock(Type, PageLatencies)}.
+     */
+    protected PageLatencies startPagingClock(int count) {
+        return startPaging(benchmark, PageLatencies.getPageCount(count, getPageSize()));
+    }
+
+    protected void stopPagingClock(Type type, PageLatencies pages) {
+        stopPaging(benchmark, type, pages);
+    }
+
+    public static PageLatencies startPaging(Benchmark benchmark, int pageCount) {
+        PageLatencies pages = new PageLatencies(pageCount);
+        benchmark.start();
+        return pages;
+    }
+
+    /**
+     * Stops the clock as the given phase reporting pages per second and page latency percentiles,
+     * and the mean page latency of each tenth of the pages (NAME-tenth1 to NAME-tenth10), which
+     * grows with the page index if the database has to skip the rows of previous pages.
+     */
+    public static void stopPaging(Benchmark benchmark, Type type, PageLatencies pages) {
+        Metric metric = type.getMetric();
+        benchmark.record(metric, pages.getHistogram());
+        benchmark.stop(metric, pages.getPageCount());
+        for (int segment = 0; segment < PageLatencies.SEGMENTS; segment++) {
+            Metric segmentMetric = MetricRegistry.register(
+                    metric.getName() + "-tenth" + (segment + 1),
+                    Metric.Unit.NANOS_PER_OPERATION, metric.getGroup(),
+                    metric.getDisplayOrder() + 3 + segment);
+            benchmark.add(segmentMetric, pages.getSegmentMeanNanos(segment));
+        }
+        benchmark.log(metric.getName() + ": " + pages.format());
+    }
+
+    /**
+     * Starts the clock and a {@link MemorySampler} for phase {@link Type#STREAM_READ}.
+     */
+    protected void startStreamingClock() {
+        memorySampler = startStreaming(benchmark);
+    }
+
+    /**
+     * Stops the clock and the memory sampler, see {@link #stopStreaming(Benchmark,
+     * MemorySampler, int, int)}.
+     */
+    protected void stopStreamingClock(int rows, int windowFills) {
+        stopStreaming(benchmark, memorySampler, rows, windowFills);
+        memorySampler = null;
+    }
+
+    /**
+     * Starts the clock (after running GC) and samples memory from then on. Pass the returned
+     * sampler to {@link #stopStreaming(Benchmark, MemorySampler, int, int)}.
+     */
+    public static MemorySampler startStreaming(Benchmark benchmark) {
+        benchmark.start();
+        MemorySampler sampler = new MemorySampler();
+        sampler.start();
+        return sampler;
+    }
+
+    /**
+     * Stops the clock as phase {@link Type#STREAM_READ} reporting rows per second, then the
+     * sampler, reporting the peak increase of the Java heap (NAME-peak-heap) and of the native
+     * heap (NAME-peak-native); these should not grow with the rows if nothing is retained.
+     *
+     * @param windowFills cursor windows filled (see {@link CursorWindowCounter}), reported as
+     * NAME-window-fills unless negative (not supported by the database).
+     */
+    public static void stopStreaming(Benchmark benchmark, MemorySampler sampler, int rows,
+            int windowFills) {
+        Metric metric = Type.STREAM_READ.getMetric();
+        benchmark.stop(metric, rows);
+        sampler.stop();
+        benchmark.add(registerStreamingMetric("peak-heap", Metric.Unit.BYTES, 3),
+                sampler.getPeakHeapBytes());
+        benchmark.add(registerStreamingMetric("peak-native", Metric.Unit.BYTES, 4),
+                sampler.getPeakNativeBytes());
+        if (windowFills >= 0) {
+            benchmark.add(registerStreamingMetric("window-fills", Metric.Unit.COUNT, 5),
+                    windowFills);
+        }
+    }
+
+    private static Metric registerStreamingMetric(String suffix, Metric.Unit unit,
+            int displayOffset) {
+        Metric metric = Type.STREAM_READ.getMetric();
+        return MetricRegistry.register(metric.getName() + "-" + suffix, unit, metric.getGroup(),
+                metric.getDisplayOrder() + displayOffset);
+    }
+
+    /**
+     * Target writes per second of the open-loop scenario, see {@link #ARG_WRITE_RATE}.
+     */
+    protected double getWriteRate() {
+        String rate = getArgument(ARG_WRITE_RATE);
+        return rate != null ? Double.parseDouble(rate) : DEFAULT_WRITE_RATE;
+    }
+
+    /**
+     * Target reads per second of the open-loop scenario, see {@link #ARG_READ_RATE}.
+     */
+    protected double getReadRate() {
+        String rate = getArgument(ARG_READ_RATE);
+        return rate != null ? Double.parseDouble(rate) : DEFAULT_READ_RATE;
+    }
+
+    /**
+     * Creates a driver running for the throughput time if set, otherwise {@link
+     * #DEFAULT_OPEN_LOOP_MILLIS}. Add streams, then pass it to {@link
+     * #runOpenLoop(OpenLoopDriver)}.
+     */
+    protected OpenLoopDriver createOpenLoopDriver() {
+        return new OpenLoopDriver(
+                isThroughputMode() ? throughputNanos / 1000000 : DEFAULT_OPEN_LOOP_MILLIS);
+    }
+
+    /**
+     * Runs the streams of the driver as phase {@link Type#OPEN_LOOP}. Per stream reports
+     * latency percentiles measured from the intended start (with the stream's metric), service
+     * time percentiles (NAME-service) and the achieved rate (NAME-ops/s); logs a summary.
+     */
+    protected List<OpenLoopDriver.StreamResult> runOpenLoop(OpenLoopDriver driver) {
+        List<OpenLoopDriver.StreamResult> results = driver.run(new Runnable() {
+            @Override
+            public void run() {
+                benchmark.start();
+            }
+        });
+        int operations = 0;
+        for (OpenLoopDriver.StreamResult result : results) {
+            Metric metric = result.getMetric();
+            Metric serviceMetric = MetricRegistry.register(metric.getName() + "-service",
+                    Metric.Unit.MILLIS, metric.getGroup(), metric.getDisplayOrder() + 3);
+            benchmark.record(metric, result.getHistogram());
+            benchmark.record(serviceMetric, result.getServiceHistogram());
+            operations += result.getOperations();
+        }
+        benchmark.stop(Type.OPEN_LOOP.getMetric(), operations);
+        for (OpenLoopDriver.StreamResult result : results) {
+            benchmark.add(Benchmark.registerOperationsPerSecond(result.getMetric()),
+                    result.getOperationsPerSecond());
+            log(result.format());
+        }
+        return results;
+    }
+
+    /**
+     * Records the duration of a single operation, see {@link Benchmark#record(Type, long)}.
+     */
+    protected void recordOperation(Type type, long nanos) {
+        benchmark.record(type, nanos);
+    }
+
+    protected void recordOperation(Metric metric, long nanos) {
+        benchmark.record(metric, nanos);
     }
 
     /**
@@ -5,84 +5,138 @@ import android.os.SystemClock;
 import android.util.Log;
 import android.util.Pair;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import org.greenrobot.essentials.StringUtils;
-import org.greenrobot.essentials.io.FileUtils;
+import java.util.Random;
 
+/**
+ * Measures {@link Metric}s over multiple runs and appends the results of each run to a {@link
+ * ResultFile}, exported to a TSV file.
+ * The phases of {@link Type} are built in, others can be registered using {@link MetricRegistry}.
+ */
 public class Benchmark {
 
+    /** Percentiles reported for per-operation latencies, see {@link #record(Metric, long)}. */
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p99.9" };
+
     private final List<Pair<String, String>> fixedColumns = new ArrayList<>();
     private final List<Pair<String, String>> values = new ArrayList<>();
-    private final Map<Integer, List<Long>> measurements = new HashMap<>();
+    public static final String RESULT_FILE_EXTENSION = ".jsonl";
+
     private final File file;
+    private final ResultFile resultFile;
     private final SimpleDateFormat dateFormat;
-    private final char separator = '\t';
     private final String logTag;
 
-    private String[] headers;
+    private final GcStats gcStatsAtStart;
+    private final GcStats gcStatsAtStop;
+    private final Blackhole blackhole = new Blackhole();
+
+    /** Indexed by {@link Metric#getId()}, grows if metrics are registered later. */
+    private MetricData[] metricData;
     private boolean storeThreadTime;
+    private boolean tsvExport = true;
+    private AllocationCounter allocationCounter;
+    private int operationsPerPhase;
 
     private boolean started;
     private long threadTimeMillis;
     private long timeMillis;
+    private long timeNanos;
     private int runs;
+    private int measuredRuns;
     private int warmUpRuns;
+    private SteadyStateDetector steadyStateDetector;
+    private int maxWarmUpRuns;
+    private boolean warmedUp;
+    private long lastChecksum;
 
+    /**
+     * @param file TSV file; results are stored in a {@link ResultFile} next to it (same name with
+     * extension {@value #RESULT_FILE_EXTENSION}), the TSV file is exported from it after each run
+     * unless {@link #disableTsvExport()} is called. Runs of an existing TSV file without a result
+     * file are imported.
+     */
     public Benchmark(File file, String logTag) {
         this.file = file;
         this.logTag = logTag;
         dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
-        checkForLastHeader(file);
+        gcStatsAtStart = GcStats.create();
+        gcStatsAtStop = GcStats.create();
+        metricData = new MetricData[MetricRegistry.size()];
+        resultFile = new ResultFile(getResultFile(file));
+        if (resultFile.getLastColumns() == null && file.exists()) {
+            // TSV of a version before the result file: keep its runs, the TSV is regenerated
+            try {
+                resultFile.importTsv(file);
+                resultFile.commit();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not import results of TSV file " + file, e);
+            }
+        }
     }
 
-    private void checkForLastHeader(File file) {
-        String contents = null;
-        try {
-            contents = FileUtils.readUtf8(file);
-        } catch (FileNotFoundException e) {
-            // OK
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    static File getResultFile(File tsvFile) {
+        String name = tsvFile.getName();
+        if (name.endsWith(".tsv")) {
+            name = name.substring(0, name.length() - ".tsv".length());
         }
-        if (contents == null) {
-            return;
+        return new File(tsvFile.getParentFile(), name + RESULT_FILE_EXTENSION);
+    }
+
+    /**
+     * Ignores the results of the given number of first runs.
+     */
+    public Benchmark warmUpRuns(int warmUpRuns) {
+        this.warmUpRuns = warmUpRuns;
+        return this;
+    }
+
+    /**
+     * Ignores the results of runs until the times of the last {@code window} runs of every type
+     * vary by at most the given coefficient of variation (standard deviation / mean), but for at
+     * most {@code maxWarmUpRuns} runs. The number of warm-up runs needed is added as a column.
+     */
+    public Benchmark warmUpUntilSteady(int window, double maxCoefficientOfVariation,
+            int maxWarmUpRuns) {
+        this.steadyStateDetector = new SteadyStateDetector(window, maxCoefficientOfVariation);
+        this.maxWarmUpRuns = maxWarmUpRuns;
+        this.warmedUp = maxWarmUpRuns <= 0;
+        if (warmedUp) {
+            addFixedColumn("warm-up-runs", "0");
         }
+        return this;
+    }
 
-        String[] lines = StringUtils.split(contents, '\n');
-        for (int i = lines.length - 1; i >= 0; i--) {
-            String[] columnValues = StringUtils.split(lines[i], separator);
-            if (columnValues.length > 1) {
-                boolean longValueFound = false;
-                for (String value : columnValues) {
-                    try {
-                        //noinspection ResultOfMethodCallIgnored
-                        Long.parseLong(value);
-                        longValueFound = true;
-                        break;
-                    } catch (NumberFormatException e) {
-                        // OK, header candidate
-                    }
-                }
-                if (!longValueFound) {
-                    headers = columnValues;
-                    break;
-                }
-            }
+    /**
+     * If the next run committed will be ignored as a warm-up run.
+     */
+    public boolean isWarmingUp() {
+        if (steadyStateDetector != null) {
+            return !warmedUp;
         }
+        return runs < warmUpRuns;
     }
 
-    public Benchmark warmUpRuns(int warmUpRuns) {
-        this.warmUpRuns = warmUpRuns;
+    /**
+     * The number of committed runs which were not warm-up runs.
+     */
+    public int getMeasuredRuns() {
+        return measuredRuns;
+    }
+
+    /**
+     * Only writes the {@link ResultFile}; the TSV file can be created later using {@link
+     * ResultFile#exportTsv(File)}.
+     */
+    public Benchmark disableTsvExport() {
+        this.tsvExport = false;
         return this;
     }
 
@@ -96,6 +150,32 @@ public class Benchmark {
         return this;
     }
 
+    /**
+     * Counts bytes and objects allocated by the calling thread during each phase. As counting
+     * may slow down allocations on Android, better enable it only for dedicated runs.
+     */
+    public Benchmark enableAllocationCounting() {
+        allocationCounter = AllocationCounter.create();
+        if (allocationCounter == null) {
+            log("Allocation counting is not supported on this runtime.");
+        }
+        return this;
+    }
+
+    public Benchmark disableAllocationCounting() {
+        allocationCounter = null;
+        return this;
+    }
+
+    /**
+     * The number of operations (e.g. entities inserted) a phase performs, used to report
+     * allocations per operation. Zero (the default) reports totals only.
+     */
+    public Benchmark operationsPerPhase(int operationsPerPhase) {
+        this.operationsPerPhase = operationsPerPhase;
+        return this;
+    }
+
     public Benchmark addFixedColumn(String key, String value) {
         fixedColumns.add(new Pair<>(key, value));
         return this;
@@ -106,19 +186,39 @@ public class Benchmark {
         return this;
     }
 
+    /**
+     * Returns the blackhole to feed all values read in a run into. If used, its checksum is
+     * written with the results of each run (column "checksum") and reset on {@link #commit()}.
+     */
+    public Blackhole getBlackhole() {
+        return blackhole;
+    }
+
     public void start() {
         if (started) {
             throw new RuntimeException("Already started");
         }
         started = true;
         prepareForNextRun();
+        addFixedValuesIfFirst();
+        if (gcStatsAtStart != null) {
+            gcStatsAtStart.update();
+        }
+        // right before the clock, so the allocations of reading GC stats are not counted
+        if (allocationCounter != null) {
+            allocationCounter.begin();
+        }
+        threadTimeMillis = SystemClock.currentThreadTimeMillis();
+        timeMillis = SystemClock.elapsedRealtime();
+        timeNanos = System.nanoTime();
+    }
+
+    private void addFixedValuesIfFirst() {
         if (values.isEmpty()) {
             values.addAll(fixedColumns);
             String startTime = dateFormat.format(new Date());
             values.add(new Pair<>("time", startTime));
         }
-        threadTimeMillis = SystemClock.currentThreadTimeMillis();
-        timeMillis = SystemClock.elapsedRealtime();
     }
 
     /**
@@ -136,59 +236,312 @@ public class Benchmark {
     }
 
     public void stop(Type type) {
+        stop(type.getMetric(), 0);
+    }
+
+    /**
+     * Like {@link #stop(Metric, int)}, additionally reports the throughput of the phase.
+     */
+    public void stop(Type type, int operations) {
+        stop(type.getMetric(), operations);
+    }
+
+    public void stop(Metric metric) {
+        stop(metric, 0);
+    }
+
+    /**
+     * Stops the clock started by {@link #start()} and adds the elapsed time for the given metric,
+     * which must use {@link Metric.Unit#MILLIS}.
+     *
+     * @param operations if greater than 0, the number of operations done by the phase to report
+     * ops/s and ns/op (e.g. for phases running for a fixed time), and allocations per operation
+     * instead of {@link #operationsPerPhase(int)}.
+     */
+    public void stop(Metric metric, int operations) {
+        if (metric.getUnit() != Metric.Unit.MILLIS) {
+            throw new IllegalArgumentException("Not a time metric: " + metric);
+        }
+        long nanos = System.nanoTime() - timeNanos;
         long time = SystemClock.elapsedRealtime() - timeMillis;
         long timeThread = SystemClock.currentThreadTimeMillis() - threadTimeMillis;
+        // right after the clock, before anything else allocates, e.g. reading GC stats
+        long allocatedBytes = 0;
+        long allocatedObjects = 0;
+        if (allocationCounter != null) {
+            allocatedBytes = allocationCounter.getAllocatedBytes();
+            allocatedObjects = allocationCounter.getAllocatedObjects();
+            allocationCounter.end();
+        }
+        if (gcStatsAtStop != null) {
+            gcStatsAtStop.update();
+        }
         if (!started) {
             throw new RuntimeException("Not started");
         }
         started = false;
 
-        String name = type.name();
+        String name = metric.getName();
+        MetricData data = getData(metric);
         log(String.format(Locale.US, "%s: %d ms (thread: %d ms)", name, time, timeThread));
         values.add(new Pair<>(name, Long.toString(time)));
         if (storeThreadTime) {
             values.add(new Pair<>(name + "-thread", Long.toString(timeThread)));
         }
+        data.runMeasurements.add(time);
+
+        if (gcStatsAtStop != null) {
+            long gcCount = addGcColumns(name);
+            if (gcCount == 0) {
+                data.runGcFreeMeasurements.add(time);
+            }
+        }
+
+        if (allocationCounter != null) {
+            addAllocationColumns(name, allocatedBytes, allocatedObjects,
+                    operations > 0 ? operations : operationsPerPhase);
+            data.runAllocationMeasurements.add(allocatedBytes);
+        }
+
+        addPercentileColumns(metric, data);
+
+        if (operations > 0) {
+            addThroughput(metric, operations, nanos);
+        }
+    }
+
+    /**
+     * Adds the throughput metrics of the given time metric, named NAME-ops/s and NAME-ns/op.
+     */
+    private void addThroughput(Metric metric, int operations, long nanos) {
+        Metric operationsPerSecond = registerOperationsPerSecond(metric);
+        Metric nanosPerOperation = registerNanosPerOperation(metric);
+        long perSecond = nanos > 0 ? operations * 1000000000L / nanos : 0;
+        long perOperation = nanos / operations;
+        log(String.format(Locale.US, "%s: %d ops in %d ms, %d ops/s, %.2f \u00b5s/op",
+                metric.getName(), operations, nanos / 1000000, perSecond,
+                nanos / 1000.0 / operations));
+        values.add(new Pair<>(operationsPerSecond.getName(), Long.toString(perSecond)));
+        values.add(new Pair<>(nanosPerOperation.getName(), Long.toString(perOperation)));
+        getData(operationsPerSecond).runMeasurements.add(perSecond);
+        getData(nanosPerOperation).runMeasurements.add(perOperation);
+    }
+
+    /**
+     * Adds a value computed by the caller for the current run, e.g. the throughput of a phase.
+     */
+    public void add(Metric metric, long value) {
+        String name = metric.getName();
+        log(String.format(Locale.US, "%s: %d %s", name, value, metric.getUnit().getSymbol()));
+        addFixedValuesIfFirst();
+        values.add(new Pair<>(name, Long.toString(value)));
+        getData(metric).runMeasurements.add(value);
+    }
+
+    static Metric registerOperationsPerSecond(Metric timeMetric) {
+        return MetricRegistry.register(timeMetric.getName() + "-ops/s",
+                Metric.Unit.OPERATIONS_PER_SECOND, timeMetric.getGroup(),
+                timeMetric.getDisplayOrder() + 1);
+    }
+
+    static Metric registerNanosPerOperation(Metric timeMetric) {
+        return MetricRegistry.register(timeMetric.getName() + "-ns/op",
+                Metric.Unit.NANOS_PER_OPERATION, timeMetric.getGroup(),
+                timeMetric.getDisplayOrder() + 2);
+    }
+
+    private MetricData getData(Metric metric) {
+        int id = metric.getId();
+        if (id >= metricData.length) {
+            metricData = Arrays.copyOf(metricData, MetricRegistry.size());
+        }
+        MetricData data = metricData[id];
+        if (data == null) {
+            data = new MetricData();
+            metricData[id] = data;
+        }
+        return data;
+    }
+
+    /**
+     * Adds the number and duration of garbage collections during the timed window, logs a warning
+     * if there were any.
+     *
+     * @return the number of garbage collections.
+     */
+    private long addGcColumns(String name) {
+        long gcCount = gcStatsAtStop.count - gcStatsAtStart.count;
+        long gcTime = gcStatsAtStop.timeMillis - gcStatsAtStart.timeMillis;
+        values.add(new Pair<>(name + "-gc-count", Long.toString(gcCount)));
+        values.add(new Pair<>(name + "-gc-time", Long.toString(gcTime)));
+        long blockingCount = GcStats.UNSUPPORTED;
+        if (gcStatsAtStop.blockingCount != GcStats.UNSUPPORTED) {
+            blockingCount = gcStatsAtStop.blockingCount - gcStatsAtStart.blockingCount;
+            values.add(new Pair<>(name + "-gc-blocking", Long.toString(blockingCount)));
+        }
+        if (gcCount > 0) {
+            log(String.format(Locale.US, "%s: %d GC(s) during measurement, %d ms, %s blocking",
+                    name, gcCount, gcTime,
+                    blockingCount == GcStats.UNSUPPORTED ? "?" : Long.toString(blockingCount)));
+        }
+        return gcCount;
+    }
+
+    private void addAllocationColumns(String name, long allocatedBytes, long allocatedObjects,
+            int operations) {
+        StringBuilder message = new StringBuilder(name).append(" allocated: ")
+                .append(allocatedBytes).append(" bytes");
+        values.add(new Pair<>(name + "-alloc-bytes", Long.toString(allocatedBytes)));
+        if (allocatedObjects != AllocationCounter.UNSUPPORTED) {
+            message.append(", ").append(allocatedObjects).append(" objects");
+            values.add(new Pair<>(name + "-alloc-objects", Long.toString(allocatedObjects)));
+        }
+        if (operations > 0) {
+            long bytesPerOperation = allocatedBytes / operations;
+            message.append(" (").append(bytesPerOperation).append(" bytes/op)");
+            values.add(new Pair<>(name + "-bytes/op", Long.toString(bytesPerOperation)));
+        }
+        log(message.toString());
+    }
+
+    /**
+     * Records the latency of a single operation of the given type, e.g. one insert of a
+     * one-by-one run measured using {@link System#nanoTime()}. Percentiles of the recorded values
+     * are added to the results of the current run and logged by {@link #logResults()}.
+     * <p/>
+     * May be called between {@link #start()} and {@link #stop(Metric)} of the same metric; keep
+     * in mind that taking the time itself adds some overhead to the measured phase.
+     */
+    public void record(Type type, long nanos) {
+        record(type.getMetric(), nanos);
+    }
+
+    public void record(Metric metric, long nanos) {
+        getRunHistogram(metric).record(nanos);
+    }
+
+    /**
+     * Records all latencies of the given histogram, e.g. merged from multiple threads, see {@link
+     * ConcurrentDriver}.
+     */
+    public void record(Metric metric, LatencyHistogram histogram) {
+        getRunHistogram(metric).add(histogram);
+    }
+
+    private LatencyHistogram getRunHistogram(Metric metric) {
+        MetricData data = getData(metric);
+        if (data.runHistogram == null) {
+            data.runHistogram = new LatencyHistogram();
+        }
+        return data.runHistogram;
+    }
+
+    /**
+     * Adds percentile columns for operations recorded for the given metric during this run (if
+     * any), then folds them into the histogram pending for commit.
+     */
+    private void addPercentileColumns(Metric metric, MetricData data) {
+        LatencyHistogram histogram = data.runHistogram;
+        if (histogram == null || histogram.isEmpty()) {
+            return;
+        }
+        String name = metric.getName();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            values.add(new Pair<>(name + "-" + PERCENTILE_NAMES[i],
+                    Long.toString(histogram.getValueAtPercentile(PERCENTILES[i]))));
+        }
+        values.add(new Pair<>(name + "-max", Long.toString(histogram.getMaxValue())));
 
-        List<Long> typeMeasurements = measurements.get(type.ordinal());
-        if (typeMeasurements == null) {
-            typeMeasurements = new ArrayList<>();
-            measurements.put(type.ordinal(), typeMeasurements);
+        if (data.pendingHistogram == null) {
+            data.pendingHistogram = new LatencyHistogram();
         }
-        typeMeasurements.add(time);
+        data.pendingHistogram.add(histogram);
+        histogram.reset();
     }
 
     public void commit() {
+        // operations recorded outside of a start/stop pair
+        for (int id = 0; id < metricData.length; id++) {
+            if (metricData[id] != null) {
+                addPercentileColumns(MetricRegistry.get(id), metricData[id]);
+            }
+        }
+
+        long checksum = blackhole.getChecksum();
+        if (checksum != 0) {
+            addFixedValuesIfFirst();
+            values.add(new Pair<>("checksum", Long.toString(checksum)));
+            blackhole.reset();
+            if (lastChecksum != 0 && lastChecksum != checksum) {
+                log(String.format("Checksum %s differs from %s of the previous run", checksum,
+                        lastChecksum));
+            }
+            lastChecksum = checksum;
+        }
+
+        boolean warmUp = checkWarmUp();
         runs++;
-        if (runs > warmUpRuns) {
+        for (MetricData data : metricData) {
+            if (data != null) {
+                data.commitRun(!warmUp);
+            }
+        }
+        if (!warmUp) {
+            measuredRuns++;
+
             log(String.format("Writing results for run %s", runs));
             String[] collectedHeaders = getAllFirsts(values);
-            if (!Arrays.equals(collectedHeaders, headers)) {
-                headers = collectedHeaders;
-                String line = StringUtils.join(headers, "" + separator) + '\n';
+            String[] collectedValues = getAllSeconds(values);
+            resultFile.addRun(collectedHeaders, collectedValues);
+            try {
+                resultFile.commit();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write results to result file", e);
+            }
+            if (tsvExport) {
+                // generated from the committed runs, so it never has a partially written run
                 try {
-                    FileUtils.appendUtf8(file, line);
+                    resultFile.exportTsv(file);
                 } catch (IOException e) {
-                    throw new RuntimeException("Could not write header in benchmark file", e);
+                    throw new RuntimeException("Could not write results to TSV file", e);
                 }
             }
-
-            StringBuilder line = new StringBuilder();
-            for (Pair<String, String> pair : values) {
-                line.append(pair.second).append(separator);
-            }
-            line.append('\n');
-            try {
-                FileUtils.appendUtf8(file, line);
-            } catch (IOException e) {
-                throw new RuntimeException("Could not write header in benchmark file", e);
-            }
         } else {
             log(String.format("Ignoring results for run %s (warm up)", runs));
         }
         values.clear();
     }
 
+    /**
+     * Returns if the current run is a warm-up run. In steady state mode also checks if the
+     * current run reached steady state, so following runs are measured.
+     */
+    private boolean checkWarmUp() {
+        if (steadyStateDetector == null) {
+            return runs < warmUpRuns;
+        }
+        if (warmedUp) {
+            return false;
+        }
+        for (int id = 0; id < metricData.length; id++) {
+            MetricData data = metricData[id];
+            // only times, the tolerance of the clock resolution does not fit counts, bytes or ops/s
+            if (data != null && !data.runMeasurements.isEmpty()
+                    && MetricRegistry.get(id).getUnit() == Metric.Unit.MILLIS) {
+                steadyStateDetector.add(id, data.runMeasurements.sum());
+            }
+        }
+        int warmUpRunsNeeded = runs + 1;
+        boolean steady = steadyStateDetector.isSteady();
+        if (steady || warmUpRunsNeeded >= maxWarmUpRuns) {
+            warmedUp = true;
+            log(String.format(Locale.US, steady ? "Steady state after %d warm-up runs"
+                    : "No steady state after %d warm-up runs, giving up", warmUpRunsNeeded));
+            addFixedColumn("warm-up-runs", Integer.toString(warmUpRunsNeeded));
+        }
+        return true;
+    }
+
     private String[] getAllFirsts(List<Pair<String, String>> columns) {
         String[] firsts = new String[columns.size()];
         for (int i = 0; i < firsts.length; i++) {
@@ -197,6 +550,14 @@ public class Benchmark {
         return firsts;
     }
 
+    private String[] getAllSeconds(List<Pair<String, String>> columns) {
+        String[] seconds = new String[columns.size()];
+        for (int i = 0; i < seconds.length; i++) {
+            seconds[i] = columns.get(i).second;
+        }
+        return seconds;
+    }
+
     /**
      * Convenience method to create a debug log message.
      */
@@ -205,25 +566,57 @@ public class Benchmark {
     }
 
     /**
-     * Logs the collected results grouped by measurement type, displays the median over all runs.
+     * Logs the collected results grouped by metric group, displays the median over all runs.
      */
     public void logResults() {
         StringBuilder results = new StringBuilder();
         results.append("----Results").append("\n");
-        results.append("All values in [ms]").append("\n\n");
+        results.append("Per-operation percentiles in [ns]").append("\n\n");
 
-        // go through results by enum ordinal so results are sorted as expected
-        for (int type = 0; type < Type.values().length; type++) {
-            List<Long> typeMeasurements = measurements.get(type);
-            if (typeMeasurements == null) {
+        String group = null;
+        for (Metric metric : MetricRegistry.getMetrics()) {
+            int id = metric.getId();
+            MetricData data = id < metricData.length ? metricData[id] : null;
+            if (data == null || (data.measurements.isEmpty() && data.totalHistogram == null)) {
                 continue;
             }
+            if (!metric.getGroup().equals(group)) {
+                group = metric.getGroup();
+                results.append("--").append(group).append("\n");
+            }
 
-            results.append(Type.values()[type].name()).append("\n");
-            for (Long measurement : typeMeasurements) {
-                results.append(measurement).append("\n");
+            results.append(metric).append("\n");
+            LongList measurements = data.measurements;
+            if (!measurements.isEmpty()) {
+                long[] values = measurements.toArray();
+                for (long value : values) {
+                    results.append(value).append("\n");
+                }
+                results.append(Statistics.median(values)).append(" MEDIAN");
+                appendMedianInterval(results, values);
+                results.append("\n");
+                if (gcStatsAtStop != null && metric.getUnit() == Metric.Unit.MILLIS) {
+                    appendGcFreeMedian(results, data.gcFreeMeasurements, values.length);
+                }
+            }
+            if (!data.allocationMeasurements.isEmpty()) {
+                double medianBytes = Statistics.median(data.allocationMeasurements.toArray());
+                results.append(medianBytes).append(" MEDIAN allocated bytes");
+                if (operationsPerPhase > 0) {
+                    results.append(String.format(Locale.US, " (%.1f bytes/op)",
+                            medianBytes / operationsPerPhase));
+                }
+                results.append("\n");
+            }
+            LatencyHistogram histogram = data.totalHistogram;
+            if (histogram != null) {
+                results.append(histogram.getTotalCount()).append(" ops");
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    results.append(", ").append(PERCENTILE_NAMES[i]).append(' ')
+                            .append(histogram.getValueAtPercentile(PERCENTILES[i]));
+                }
+                results.append(", max ").append(histogram.getMaxValue()).append("\n");
             }
-            results.append(getMedian(typeMeasurements)).append(" MEDIAN").append("\n");
             results.append("\n");
         }
 
@@ -231,31 +624,127 @@ public class Benchmark {
         log(results.toString());
     }
 
-    private double getMedian(List<Long> unsorted) {
-        // sort ascending
-        Collections.sort(unsorted);
-        Long[] values = new Long[unsorted.size()];
-        values = unsorted.toArray(values);
-        // get median
-        int middle = values.length / 2;
-        if (values.length % 2 == 1) {
-            return values[middle];
-        } else {
-            return (values[middle - 1] + values[middle]) / 2.0;
+    private void appendMedianInterval(StringBuilder results, long[] values) {
+        if (values.length > 1) {
+            double[] interval = Statistics.bootstrapMedianInterval(values,
+                    BenchmarkComparison.DEFAULT_CONFIDENCE, Statistics.DEFAULT_RESAMPLES,
+                    new Random(StringGenerator.SEED));
+            results.append(String.format(Locale.US, " [%.1f, %.1f] 95%% CI", interval[0],
+                    interval[1]));
+        }
+    }
+
+    /**
+     * Returns the values of all committed runs by metric name, e.g. to compare them using
+     * {@link BenchmarkComparison}.
+     */
+    public MeasurementSet getMeasurements() {
+        MeasurementSet set = new MeasurementSet(logTag);
+        for (Metric metric : MetricRegistry.getMetrics()) {
+            if (metric.getId() < metricData.length && metricData[metric.getId()] != null) {
+                LongList measurements = metricData[metric.getId()].measurements;
+                for (int i = 0; i < measurements.size(); i++) {
+                    set.add(metric.getName(), measurements.get(i));
+                }
+            }
+        }
+        return set;
+    }
+
+    private void appendGcFreeMedian(StringBuilder results, LongList gcFree, int runCount) {
+        if (gcFree.isEmpty()) {
+            results.append("GC in all ").append(runCount).append(" runs").append("\n");
+        } else if (gcFree.size() < runCount) {
+            results.append(Statistics.median(gcFree.toArray())).append(" MEDIAN without GC (")
+                    .append(gcFree.size()).append(" of ").append(runCount).append(" runs)")
+                    .append("\n");
+        }
+    }
+
+    /** Values of a metric; values of the current run are only kept if it is not a warm-up run. */
+    private static class MetricData {
+        final LongList measurements = new LongList();
+        final LongList allocationMeasurements = new LongList();
+        /** Measurements of phases without any GC during the timed window. */
+        final LongList gcFreeMeasurements = new LongList();
+        final LongList runMeasurements = new LongList(4);
+        final LongList runAllocationMeasurements = new LongList(4);
+        final LongList runGcFreeMeasurements = new LongList(4);
+        LatencyHistogram runHistogram;
+        /** Operations of the current run, added to the total once the run is committed. */
+        LatencyHistogram pendingHistogram;
+        LatencyHistogram totalHistogram;
+
+        void commitRun(boolean keep) {
+            if (keep) {
+                measurements.addAll(runMeasurements);
+                allocationMeasurements.addAll(runAllocationMeasurements);
+                gcFreeMeasurements.addAll(runGcFreeMeasurements);
+                if (pendingHistogram != null && !pendingHistogram.isEmpty()) {
+                    if (totalHistogram == null) {
+                        totalHistogram = new LatencyHistogram();
+                    }
+                    totalHistogram.add(pendingHistogram);
+                }
+            }
+            runMeasurements.clear();
+            runAllocationMeasurements.clear();
+            runGcFreeMeasurements.clear();
+            if (pendingHistogram != null) {
+                pendingHistogram.reset();
+            }
         }
     }
 
+    /**
+     * Built-in benchmark phases, each backed by a time {@link Metric} named like the constant.
+     */
     // Note: order determines the order in logResults()
     public enum Type {
-        QUERY_INDEXED,
-        ONE_BY_ONE_CREATE,
-        ONE_BY_ONE_UPDATE,
-        ONE_BY_ONE_REFRESH,
-        ONE_BY_ONE_DELETE,
-        BATCH_CREATE,
-        BATCH_UPDATE,
-        BATCH_READ,
-        BATCH_ACCESS,
-        BATCH_DELETE
+        QUERY_INDEXED("query"),
+        ONE_BY_ONE_CREATE("one-by-one"),
+        ONE_BY_ONE_UPDATE("one-by-one"),
+        ONE_BY_ONE_REFRESH("one-by-one"),
+        ONE_BY_ONE_DELETE("one-by-one"),
+        BATCH_CREATE("batch"),
+        BATCH_UPDATE("batch"),
+        BATCH_READ("batch"),
+        BATCH_ACCESS("batch"),
+        BATCH_DELETE("batch"),
+        /** Time of an open-loop run, see {@link OpenLoopDriver}. */
+        OPEN_LOOP("open-loop"),
+        /** Latencies (corrected) and achieved rate of open-loop writes. */
+        OPEN_LOOP_WRITE("open-loop"),
+        OPEN_LOOP_READ("open-loop"),
+        /** Time of a concurrent read/write run, entities written and writer latencies. */
+        CONCURRENT_WRITE("concurrent"),
+        /** Latencies and throughput of readers running concurrently with a writer. */
+        CONCURRENT_READ("concurrent"),
+        /** Time of iterating all rows of a large table, rows per second and peak memory. */
+        STREAM_READ("large"),
+        /** Time of reading all pages with LIMIT/OFFSET, pages per second and page latencies. */
+        PAGING_OFFSET("paging"),
+        /** Like {@link #PAGING_OFFSET}, but seeking each page by the last key of the previous. */
+        PAGING_KEYSET("paging"),
+        /** Loading all parents with their children eagerly, e.g. by a join. */
+        RELATION_JOIN("relations"),
+        /** Loading all parents, then resolving the children of each lazily (N+1 queries). */
+        RELATION_LAZY("relations"),
+        /** Loading all children, then resolving the parent of each (to-one). */
+        RELATION_TO_ONE("relations");
+
+        private final Metric metric;
+
+        Type(String group) {
+            metric = MetricRegistry.register(name(), Metric.Unit.MILLIS, group,
+                    (ordinal() + 1) * 100);
+            // so tools reading results (e.g. BenchmarkReport) know about them
+            registerOperationsPerSecond(metric);
+            registerNanosPerOperation(metric);
+        }
+
+        public Metric getMetric() {
+            return metric;
+        }
     }
 }
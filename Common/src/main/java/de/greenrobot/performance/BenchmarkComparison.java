@@ -0,0 +1,164 @@
+package de.greenrobot.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the per-run values of a candidate against a baseline for each registered {@link Metric}:
+ * bootstrap confidence intervals on the medians and their ratio, and a Mann-Whitney U test to
+ * decide if the candidate is faster, slower or indistinguishable.
+ * <p/>
+ * To compare two TSV files on a JVM run {@link #main(String[])} with the baseline and candidate
+ * file as arguments.
+ */
+public class BenchmarkComparison {
+
+    public static final double DEFAULT_CONFIDENCE = 0.95;
+    // fixed seed so comparing the same files gives the same intervals
+    private static final long BOOTSTRAP_SEED = 2662502316022774L;
+
+    public enum Verdict {
+        FASTER, SLOWER, INDISTINGUISHABLE
+    }
+
+    public static class Result {
+        public final String column;
+        public final Metric.Unit unit;
+        public final int baselineRuns;
+        public final int candidateRuns;
+        public final double baselineMedian;
+        public final double candidateMedian;
+        public final double[] baselineInterval;
+        public final double[] candidateInterval;
+        /** Interval of candidate median / baseline median. */
+        public final double[] ratioInterval;
+        public final double pValue;
+        /** Rank-biserial correlation, positive if the candidate tends to have lower values. */
+        public final double effectSize;
+        public final Verdict verdict;
+
+        Result(String column, Metric.Unit unit, long[] baseline, long[] candidate,
+                double[] baselineInterval, double[] candidateInterval, double[] ratioInterval,
+                Statistics.MannWhitneyResult test, Verdict verdict) {
+            this.column = column;
+            this.unit = unit;
+            this.baselineRuns = baseline.length;
+            this.candidateRuns = candidate.length;
+            this.baselineMedian = Statistics.median(baseline);
+            this.candidateMedian = Statistics.median(candidate);
+            this.baselineInterval = baselineInterval;
+            this.candidateInterval = candidateInterval;
+            this.ratioInterval = ratioInterval;
+            this.pValue = test.pValue;
+            this.effectSize = test.effectSize;
+            this.verdict = verdict;
+        }
+
+        @Override
+        public String toString() {
+            double change = baselineMedian == 0 ? 0 : (candidateMedian / baselineMedian - 1) * 100;
+            return String.format(Locale.US, "%s [%s]: %s, median %.1f [%.1f, %.1f]"
+                            + " vs. %.1f [%.1f, %.1f]"
+                            + " (%+.1f %%, ratio [%.3f, %.3f]), p=%.4f, effect size %.2f"
+                            + " (%d vs. %d runs)",
+                    column, unit.getSymbol(), verdict.name().toLowerCase(Locale.US),
+                    candidateMedian, candidateInterval[0], candidateInterval[1],
+                    baselineMedian, baselineInterval[0], baselineInterval[1],
+                    change, ratioInterval[0], ratioInterval[1], pValue, effectSize,
+                    candidateRuns, baselineRuns);
+        }
+    }
+
+    private final double confidence;
+    private final int resamples;
+    private final double significanceLevel;
+
+    public BenchmarkComparison() {
+        this(DEFAULT_CONFIDENCE, Statistics.DEFAULT_RESAMPLES);
+    }
+
+    /**
+     * @param confidence of the bootstrap intervals, the significance level of the Mann-Whitney U
+     * test is 1 - confidence.
+     */
+    public BenchmarkComparison(double confidence, int resamples) {
+        this.confidence = confidence;
+        this.resamples = resamples;
+        this.significanceLevel = 1 - confidence;
+    }
+
+    /**
+     * Compares time values in [ms].
+     */
+    public Result compare(String column, List<Long> baseline, List<Long> candidate) {
+        return compare(column, Metric.Unit.MILLIS, baseline, candidate);
+    }
+
+    public Result compare(String column, Metric.Unit unit, List<Long> baseline,
+            List<Long> candidate) {
+        long[] baselineValues = Statistics.toArray(baseline);
+        long[] candidateValues = Statistics.toArray(candidate);
+        Random random = new Random(BOOTSTRAP_SEED);
+        double[] baselineInterval = Statistics.bootstrapMedianInterval(baselineValues, confidence,
+                resamples, random);
+        double[] candidateInterval = Statistics.bootstrapMedianInterval(candidateValues,
+                confidence, resamples, random);
+        double[] ratioInterval = Statistics.bootstrapMedianRatioInterval(baselineValues,
+                candidateValues, confidence, resamples, random);
+        Statistics.MannWhitneyResult test = Statistics.mannWhitneyU(baselineValues,
+                candidateValues);
+
+        Verdict verdict;
+        if (test.pValue >= significanceLevel || test.effectSize == 0) {
+            verdict = Verdict.INDISTINGUISHABLE;
+        } else {
+            boolean candidateLower = test.effectSize > 0;
+            verdict = candidateLower != unit.isHigherBetter() ? Verdict.FASTER : Verdict.SLOWER;
+        }
+        return new Result(column, unit, baselineValues, candidateValues, baselineInterval,
+                candidateInterval, ratioInterval, test, verdict);
+    }
+
+    /**
+     * Compares all registered {@link Metric} columns measured in both sets, in display order.
+     */
+    public List<Result> compare(MeasurementSet baseline, MeasurementSet candidate) {
+        List<Result> results = new ArrayList<>();
+        for (Metric metric : MetricRegistry.getMetrics()) {
+            String column = metric.getName();
+            List<Long> baselineValues = baseline.get(column);
+            List<Long> candidateValues = candidate.get(column);
+            if (!baselineValues.isEmpty() && !candidateValues.isEmpty()) {
+                results.add(compare(column, metric.getUnit(), baselineValues, candidateValues));
+            }
+        }
+        return results;
+    }
+
+    public static String format(MeasurementSet baseline, MeasurementSet candidate,
+            List<Result> results) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(candidate.getName()).append(" vs. ").append(baseline.getName())
+                .append('\n');
+        for (Result result : results) {
+            builder.append(result).append('\n');
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline> <candidate>"
+                    + " (result files " + Benchmark.RESULT_FILE_EXTENSION + " or .tsv)");
+            System.exit(1);
+        }
+        MeasurementSet baseline = MeasurementSet.read(new File(args[0]));
+        MeasurementSet candidate = MeasurementSet.read(new File(args[1]));
+        List<Result> results = new BenchmarkComparison().compare(baseline, candidate);
+        System.out.print(format(baseline, candidate, results));
+    }
+}
@@ -0,0 +1,405 @@
+package de.greenrobot.performance;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Creates a HTML report (with SVG charts) comparing the results of all libraries: for each
+ * {@link Metric} the libraries are ranked by median, and variance, per-operation percentiles and
+ * the speedup against a baseline library are shown.
+ * <p/>
+ * Run {@link #main(String[])} on a JVM with a directory containing the result files pulled from a
+ * device (e.g. PerfTestSqlite-batch.jsonl, TSV files are only read if there is no result file);
+ * files of the same library are merged. Results of a configuration, string profile or sweep value
+ * (e.g. PerfTestSqlite-batch-wal-normal.jsonl) are reported as a library of their own
+ * (PerfTestSqlite-wal-normal), compared to the baseline with the same suffix.
+ */
+public class BenchmarkReport {
+
+    public static final String DEFAULT_BASELINE = "PerfTestSqlite";
+
+    private static final String[] PERCENTILE_NAMES = { "p50", "p99" };
+    private static final int CHART_WIDTH = 720;
+    private static final int CHART_LABEL_WIDTH = 200;
+    private static final int CHART_ROW_HEIGHT = 22;
+
+    public static class Entry {
+        public final String library;
+        public final int runs;
+        public final double median;
+        public final long min;
+        public final long max;
+        /** Standard deviation / mean of all runs. */
+        public final double coefficientOfVariation;
+        /** Median of the per-run percentiles of single operations in [ns], NaN if not recorded. */
+        public final double[] percentiles;
+        /** How many times faster than the baseline (above 1 is better), NaN without baseline. */
+        public double speedup = Double.NaN;
+        /** Compared to the baseline, null without baseline. */
+        public BenchmarkComparison.Verdict verdict;
+
+        Entry(String library, long[] values, double[] percentiles) {
+            this.library = library;
+            this.runs = values.length;
+            this.median = Statistics.median(values);
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            this.min = sorted[0];
+            this.max = sorted[sorted.length - 1];
+            double mean = Statistics.mean(values);
+            this.coefficientOfVariation = mean == 0 ? 0
+                    : Statistics.standardDeviation(values) / mean;
+            this.percentiles = percentiles;
+        }
+    }
+
+    private final Map<String, MeasurementSet> libraries = new TreeMap<>();
+    private final String baseline;
+    private final BenchmarkComparison comparison = new BenchmarkComparison();
+
+    public BenchmarkReport(String baseline) {
+        this.baseline = baseline;
+    }
+
+    /**
+     * Adds the results of a library, merged with results added before under the same name.
+     */
+    public void add(String library, MeasurementSet set) {
+        MeasurementSet librarySet = libraries.get(library);
+        if (librarySet == null) {
+            librarySet = new MeasurementSet(library);
+            libraries.put(library, librarySet);
+        }
+        librarySet.addAll(set);
+    }
+
+    /**
+     * Adds all result files (e.g. PerfTestSqlite-1by1.jsonl) in the given directory. TSV files are
+     * only read for results of versions before the result file, i.e. if there is no result file of
+     * the same name.
+     *
+     * @return the number of files read.
+     */
+    public int addDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        int count = 0;
+        for (File file : files) {
+            String library = getLibraryName(file.getName());
+            if (library == null) {
+                continue;
+            }
+            if (file.getName().endsWith(".tsv") && Benchmark.getResultFile(file).exists()) {
+                // exported from the result file, which may have runs the TSV is missing
+                continue;
+            }
+            add(library, MeasurementSet.read(file));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the library of a result file name like "PerfTestSqlite-batch.jsonl" (or a TSV file
+     * like "PerfTestSqlite-batch.tsv"), or null if it is no result file. Suffixes after the run
+     * name of the scenario are kept, e.g. "PerfTestSqlite-wal-normal" for
+     * "PerfTestSqlite-batch-wal-normal.jsonl".
+     */
+    static String getLibraryName(String fileName) {
+        String extension;
+        if (fileName.endsWith(Benchmark.RESULT_FILE_EXTENSION)) {
+            extension = Benchmark.RESULT_FILE_EXTENSION;
+        } else if (fileName.endsWith(".tsv")) {
+            extension = ".tsv";
+        } else {
+            return null;
+        }
+        String name = fileName.substring(0, fileName.length() - extension.length());
+        // log tags are class names, so the first dash starts the run name
+        int separator = name.indexOf('-');
+        if (separator <= 0) {
+            return null;
+        }
+        String library = name.substring(0, separator);
+        String runName = name.substring(separator + 1);
+        for (BasePerfTestCase.Scenario scenario : BasePerfTestCase.Scenario.values()) {
+            if (runName.equals(scenario.runName)) {
+                return library;
+            }
+            if (runName.startsWith(scenario.runName + "-")) {
+                String suffix = runName.substring(scenario.runName.length());
+                // sweep summaries (-sweep, -length-sweep, -readers-sweep) contain fits, no runs
+                return suffix.endsWith("-sweep") ? null : library + suffix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the baseline with the same suffix as the given library, e.g. "PerfTestSqlite-wal" for
+     * "PerfTestRoom-wal".
+     */
+    private String getBaseline(String library) {
+        int separator = library.indexOf('-');
+        return separator < 0 ? baseline : baseline + library.substring(separator);
+    }
+
+    private boolean isBaseline(String library) {
+        return library.equals(getBaseline(library));
+    }
+
+    /**
+     * Returns the libraries having values for the given metric, best first.
+     */
+    public List<Entry> rank(final Metric metric) {
+        String column = metric.getName();
+        List<Entry> entries = new ArrayList<>();
+        for (MeasurementSet set : libraries.values()) {
+            List<Long> values = set.get(column);
+            if (values.isEmpty()) {
+                continue;
+            }
+            double[] percentiles = new double[PERCENTILE_NAMES.length];
+            for (int i = 0; i < PERCENTILE_NAMES.length; i++) {
+                List<Long> percentileValues = set.get(column + "-" + PERCENTILE_NAMES[i]);
+                percentiles[i] = percentileValues.isEmpty() ? Double.NaN
+                        : Statistics.median(Statistics.toArray(percentileValues));
+            }
+            entries.add(new Entry(set.getName(), Statistics.toArray(values), percentiles));
+        }
+
+        for (Entry entry : entries) {
+            MeasurementSet baselineSet = libraries.get(getBaseline(entry.library));
+            List<Long> baselineValues = baselineSet != null ? baselineSet.get(column)
+                    : Collections.<Long>emptyList();
+            if (baselineValues.isEmpty()) {
+                continue;
+            }
+            double baselineMedian = Statistics.median(Statistics.toArray(baselineValues));
+            if (metric.getUnit().isHigherBetter()) {
+                entry.speedup = baselineMedian == 0 ? Double.NaN : entry.median / baselineMedian;
+            } else {
+                entry.speedup = entry.median == 0 ? Double.NaN : baselineMedian / entry.median;
+            }
+            if (!isBaseline(entry.library)) {
+                entry.verdict = comparison.compare(column, metric.getUnit(), baselineValues,
+                        libraries.get(entry.library).get(column)).verdict;
+            }
+        }
+
+        final boolean higherIsBetter = metric.getUnit().isHigherBetter();
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                int result = Double.compare(lhs.median, rhs.median);
+                return higherIsBetter ? -result : result;
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Geometric mean of the speedups against the baseline over the times of all phases by library,
+     * best first. For phases run in throughput mode the ops/s are used instead, their time is
+     * fixed. Only one metric of a phase is used, the derived ops/s and ns/op metrics would count
+     * the same phase three times.
+     */
+    public List<Map.Entry<String, Double>> rankOverall() {
+        Map<String, double[]> logSums = new TreeMap<>();
+        for (Benchmark.Type type : Benchmark.Type.values()) {
+            Map<String, Entry> throughputEntries = new TreeMap<>();
+            for (Entry entry : rank(Benchmark.registerOperationsPerSecond(type.getMetric()))) {
+                throughputEntries.put(entry.library, entry);
+            }
+            for (Entry timeEntry : rank(type.getMetric())) {
+                Entry throughputEntry = throughputEntries.get(timeEntry.library);
+                boolean baselineThroughput = throughputEntries.containsKey(
+                        getBaseline(timeEntry.library));
+                if ((throughputEntry != null) != baselineThroughput) {
+                    // one ran for a fixed time, the other a fixed count: not comparable
+                    continue;
+                }
+                Entry entry = throughputEntry != null ? throughputEntry : timeEntry;
+                if (Double.isNaN(entry.speedup)) {
+                    continue;
+                }
+                double[] logSum = logSums.get(entry.library);
+                if (logSum == null) {
+                    logSum = new double[2];
+                    logSums.put(entry.library, logSum);
+                }
+                logSum[0] += Math.log(entry.speedup);
+                logSum[1]++;
+            }
+        }
+        Map<String, Double> geometricMeans = new TreeMap<>();
+        for (Map.Entry<String, double[]> entry : logSums.entrySet()) {
+            double[] logSum = entry.getValue();
+            geometricMeans.put(entry.getKey(), Math.exp(logSum[0] / logSum[1]));
+        }
+        List<Map.Entry<String, Double>> ranking = new ArrayList<>(geometricMeans.entrySet());
+        Collections.sort(ranking, new Comparator<Map.Entry<String, Double>>() {
+            @Override
+            public int compare(Map.Entry<String, Double> lhs, Map.Entry<String, Double> rhs) {
+                return Double.compare(rhs.getValue(), lhs.getValue());
+            }
+        });
+        return ranking;
+    }
+
+    public String toHtml() {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n")
+                .append("<title>Database performance</title>\n<style>\n")
+                .append("body { font-family: sans-serif; }\n")
+                .append("table { border-collapse: collapse; }\n")
+                .append("th, td { padding: 2px 8px; text-align: right; }\n")
+                .append("th:nth-child(2), td:nth-child(2) { text-align: left; }\n")
+                .append(".baseline { font-weight: bold; }\n")
+                .append("</style>\n</head>\n<body>\n")
+                .append("<h1>Database performance</h1>\n<p>Baseline: ")
+                .append(escape(baseline)).append(" (with the same configuration, profile or sweep")
+                .append(" suffix). Speedup is the baseline median divided by the library median")
+                .append(" (inverted for throughput), above 1 is better.</p>\n");
+
+        List<Map.Entry<String, Double>> overall = rankOverall();
+        if (!overall.isEmpty()) {
+            html.append("<h2>Overall</h2>\n<p>Geometric mean of speedups over the times of all")
+                    .append(" phases measured by both the library and the baseline (ops/s for")
+                    .append(" phases run in throughput mode).</p>\n")
+                    .append("<table>\n<tr><th>#</th><th>Library</th><th>Speedup</th></tr>\n");
+            int rank = 1;
+            for (Map.Entry<String, Double> entry : overall) {
+                html.append(rowStart(entry.getKey())).append("<td>").append(rank++)
+                        .append("</td><td>").append(escape(entry.getKey())).append("</td><td>")
+                        .append(format("%.2f", entry.getValue())).append("</td></tr>\n");
+            }
+            html.append("</table>\n");
+        }
+
+        String group = null;
+        for (Metric metric : MetricRegistry.getMetrics()) {
+            List<Entry> entries = rank(metric);
+            if (entries.isEmpty()) {
+                continue;
+            }
+            if (!metric.getGroup().equals(group)) {
+                group = metric.getGroup();
+                html.append("<h2>").append(escape(group)).append("</h2>\n");
+            }
+            html.append("<h3>").append(escape(metric.toString())).append("</h3>\n");
+            appendChart(html, metric, entries);
+            appendTable(html, metric, entries);
+        }
+        html.append("</body>\n</html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Horizontal bars for the medians, lines from min to max of all runs.
+     */
+    private void appendChart(StringBuilder html, Metric metric, List<Entry> entries) {
+        long maxValue = 1;
+        for (Entry entry : entries) {
+            maxValue = Math.max(maxValue, entry.max);
+        }
+        double scale = (double) (CHART_WIDTH - CHART_LABEL_WIDTH - 60) / maxValue;
+        int height = entries.size() * CHART_ROW_HEIGHT + 4;
+        html.append(format("<svg width=\"%d\" height=\"%d\" xmlns=\"http://www.w3.org/2000/svg\""
+                + " font-size=\"12\">\n", CHART_WIDTH, height));
+        int y = 2;
+        for (Entry entry : entries) {
+            boolean isBaseline = isBaseline(entry.library);
+            int middle = y + CHART_ROW_HEIGHT / 2;
+            html.append(format("<text x=\"%d\" y=\"%d\" text-anchor=\"end\""
+                            + " dominant-baseline=\"middle\">%s</text>\n",
+                    CHART_LABEL_WIDTH - 6, middle, escape(entry.library)));
+            html.append(format("<rect x=\"%d\" y=\"%d\" width=\"%.1f\" height=\"%d\""
+                            + " fill=\"%s\"><title>median %s %s</title></rect>\n",
+                    CHART_LABEL_WIDTH, y + 3, entry.median * scale, CHART_ROW_HEIGHT - 6,
+                    isBaseline ? "#e8a33d" : "#4a7ebb", format("%.1f", entry.median),
+                    escape(metric.getUnit().getSymbol())));
+            html.append(format("<line x1=\"%.1f\" x2=\"%.1f\" y1=\"%d\" y2=\"%d\""
+                            + " stroke=\"#333\"/>\n",
+                    CHART_LABEL_WIDTH + entry.min * scale, CHART_LABEL_WIDTH + entry.max * scale,
+                    middle, middle));
+            html.append(format("<text x=\"%.1f\" y=\"%d\" dominant-baseline=\"middle\">%s</text>\n",
+                    CHART_LABEL_WIDTH + entry.max * scale + 4, middle,
+                    format("%.1f", entry.median)));
+            y += CHART_ROW_HEIGHT;
+        }
+        html.append("</svg>\n");
+    }
+
+    private void appendTable(StringBuilder html, Metric metric, List<Entry> entries) {
+        String unit = escape(metric.getUnit().getSymbol());
+        html.append("<table>\n<tr><th>#</th><th>Library</th><th>Runs</th><th>Median [")
+                .append(unit).append("]</th><th>Min</th><th>Max</th><th>CV</th>");
+        for (String percentileName : PERCENTILE_NAMES) {
+            html.append("<th>").append(percentileName).append(" [ns/op]</th>");
+        }
+        html.append("<th>Speedup</th><th>vs. baseline</th></tr>\n");
+        int rank = 1;
+        for (Entry entry : entries) {
+            html.append(rowStart(entry.library)).append("<td>").append(rank++).append("</td><td>")
+                    .append(escape(entry.library)).append("</td><td>").append(entry.runs)
+                    .append("</td><td>").append(format("%.1f", entry.median)).append("</td><td>")
+                    .append(entry.min).append("</td><td>").append(entry.max).append("</td><td>")
+                    .append(format("%.1f %%", entry.coefficientOfVariation * 100)).append("</td>");
+            for (double percentile : entry.percentiles) {
+                html.append("<td>").append(Double.isNaN(percentile) ? "" : format("%.0f",
+                        percentile)).append("</td>");
+            }
+            html.append("<td>").append(Double.isNaN(entry.speedup) ? ""
+                    : format("%.2f", entry.speedup)).append("</td><td>")
+                    .append(entry.verdict != null
+                            ? entry.verdict.name().toLowerCase(Locale.US) : "")
+                    .append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+    }
+
+    private String rowStart(String library) {
+        return isBaseline(library) ? "<tr class=\"baseline\">" : "<tr>";
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.US, format, args);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: BenchmarkReport <results directory> <report.html>"
+                    + " [baseline, default " + DEFAULT_BASELINE + "]");
+            System.exit(1);
+        }
+        BenchmarkReport report = new BenchmarkReport(args.length > 2 ? args[2] : DEFAULT_BASELINE);
+        int count = report.addDirectory(new File(args[0]));
+        Writer writer = new OutputStreamWriter(new FileOutputStream(args[1]), "UTF-8");
+        try {
+            writer.write(report.toHtml());
+        } finally {
+            writer.close();
+        }
+        System.out.println("Wrote report for " + count + " result files to " + args[1]);
+    }
+}
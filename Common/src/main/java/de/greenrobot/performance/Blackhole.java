@@ -0,0 +1,54 @@
+package de.greenrobot.performance;
+
+import java.util.Arrays;
+
+/**
+ * Consumes values read by a benchmark (e.g. entity properties in the BATCH_ACCESS phase), so the
+ * compiler can not eliminate the code producing them. Values are folded into a checksum, which is
+ * written with the results: it must be identical for all runs and databases given the same data.
+ *
+ * <p/>Not thread-safe, use one instance per thread.
+ */
+public final class Blackhole {
+
+    private long checksum;
+
+    public void consume(boolean value) {
+        checksum = checksum * 31 + (value ? 1 : 0);
+    }
+
+    /** Also consumes byte, short and char values. */
+    public void consume(int value) {
+        checksum = checksum * 31 + value;
+    }
+
+    public void consume(long value) {
+        checksum = checksum * 31 + value;
+    }
+
+    public void consume(float value) {
+        checksum = checksum * 31 + Float.floatToRawIntBits(value);
+    }
+
+    public void consume(double value) {
+        checksum = checksum * 31 + Double.doubleToRawLongBits(value);
+    }
+
+    /** Reads all bytes, as a lazy database may only have copied a reference. */
+    public void consume(byte[] value) {
+        checksum = checksum * 31 + Arrays.hashCode(value);
+    }
+
+    /** Uses the hash code, e.g. reads all characters of a String (once). */
+    public void consume(Object value) {
+        checksum = checksum * 31 + (value != null ? value.hashCode() : 0);
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public void reset() {
+        checksum = 0;
+    }
+}
@@ -0,0 +1,285 @@
+package de.greenrobot.performance;
+
+import android.os.SystemClock;
+
+import java.util.Locale;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Runs operations on multiple worker threads at the same time, e.g. to measure lock contention of
+ * a database. Each thread creates its own {@link Worker} (e.g. opening a per-thread database
+ * instance), then all threads wait at a {@link CyclicBarrier} so they start operating together.
+ * <p/>
+ * Each thread records its operations into a {@link Recorder} only it writes to; recorders are
+ * merged after all threads were joined, so recording needs no locks or atomics.
+ */
+public class ConcurrentDriver {
+
+    public interface WorkerFactory {
+        /**
+         * Called on the worker thread before the start barrier, e.g. to open thread-bound
+         * instances. Use the thread index to give threads different roles, e.g. one writer and
+         * several readers.
+         */
+        Worker createWorker(int threadIndex) throws Exception;
+    }
+
+    public interface Worker {
+        /**
+         * Executes a single operation, its duration is recorded.
+         *
+         * @param operationIndex index of the operation of this thread, starting at 0.
+         */
+        void execute(int operationIndex) throws Exception;
+
+        /**
+         * Called on the worker thread after its last operation, e.g. to close instances.
+         */
+        void close() throws Exception;
+    }
+
+    /**
+     * Operations of one thread, only written by that thread.
+     */
+    public static class Recorder {
+        private final int threadIndex;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private int operations;
+        private long threadTimeMillis;
+        private long elapsedNanos;
+
+        Recorder(int threadIndex) {
+            this.threadIndex = threadIndex;
+        }
+
+        public int getThreadIndex() {
+            return threadIndex;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public int getOperations() {
+            return operations;
+        }
+
+        /** CPU time of the thread while operating, much lower than elapsed if waiting on locks. */
+        public long getThreadTimeMillis() {
+            return threadTimeMillis;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    public static class Result {
+        private final Recorder[] recorders;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final long elapsedNanos;
+        private int operations;
+
+        Result(Recorder[] recorders, long elapsedNanos) {
+            this.recorders = recorders;
+            this.elapsedNanos = elapsedNanos;
+            for (Recorder recorder : recorders) {
+                histogram.add(recorder.histogram);
+                operations += recorder.operations;
+            }
+        }
+
+        /** Per thread, in thread index order. */
+        public Recorder[] getRecorders() {
+            return recorders;
+        }
+
+        /** Latencies of all operations of all threads. */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public int getOperations() {
+            return operations;
+        }
+
+        /** From releasing the threads until the last one finished. */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns one line per thread with its operations, throughput and latency percentiles.
+         */
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            for (Recorder recorder : recorders) {
+                LatencyHistogram threadHistogram = recorder.histogram;
+                long perSecond = recorder.elapsedNanos > 0
+                        ? recorder.operations * 1000000000L / recorder.elapsedNanos : 0;
+                text.append(String.format(Locale.US, "Thread %d: %d ops, %d ops/s, "
+                                + "p50 %d ns, p99 %d ns, max %d ns, cpu %d ms of %d ms\n",
+                        recorder.threadIndex, recorder.operations, perSecond,
+                        threadHistogram.getValueAtPercentile(50),
+                        threadHistogram.getValueAtPercentile(99), threadHistogram.getMaxValue(),
+                        recorder.threadTimeMillis, recorder.elapsedNanos / 1000000));
+            }
+            return text.toString();
+        }
+    }
+
+    private final int threadCount;
+    private int operationsPerThread;
+    private long durationNanos;
+
+    public ConcurrentDriver(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Illegal thread count " + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Each thread executes the given number of operations (the default if no duration is set).
+     */
+    public ConcurrentDriver operationsPerThread(int operationsPerThread) {
+        this.operationsPerThread = operationsPerThread;
+        this.durationNanos = 0;
+        return this;
+    }
+
+    /**
+     * Each thread executes operations until the given time elapsed since the start.
+     */
+    public ConcurrentDriver durationMillis(long durationMillis) {
+        this.durationNanos = durationMillis * 1000000;
+        this.operationsPerThread = 0;
+        return this;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Runs all threads and waits for them to finish.
+     *
+     * @param onStart called after all workers were created, just before releasing the threads,
+     * e.g. to start a clock. May be null.
+     * @throws RuntimeException if a worker failed, with the first failure as cause.
+     */
+    public Result run(final WorkerFactory factory, Runnable onStart) {
+        if (operationsPerThread <= 0 && durationNanos <= 0) {
+            throw new IllegalStateException("Set operations per thread or a duration");
+        }
+        // all parties always arrive twice (all workers created, then release after onStart), even
+        // after failures: resetting a barrier could leave late arriving threads waiting forever
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+        final RunState state = new RunState();
+        final Recorder[] recorders = new Recorder[threadCount];
+        final Throwable[] failures = new Throwable[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int threadIndex = i;
+            recorders[i] = new Recorder(threadIndex);
+            threads[i] = new Thread("worker-" + threadIndex) {
+                @Override
+                public void run() {
+                    try {
+                        runWorker(factory, threadIndex, barrier, state, recorders[threadIndex]);
+                    } catch (Throwable e) {
+                        failures[threadIndex] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        RuntimeException startFailure = null;
+        try {
+            await(barrier);
+            for (Throwable failure : failures) {
+                // a worker could not be created (written before it arrived at the barrier)
+                state.aborted |= failure != null;
+            }
+            try {
+                if (onStart != null) {
+                    onStart.run();
+                }
+            } catch (RuntimeException e) {
+                startFailure = e;
+                state.aborted = true;
+            }
+            // visible to workers: written before the barrier releases them
+            state.startNanos = System.nanoTime();
+            await(barrier);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for workers", e);
+        }
+        long elapsedNanos = System.nanoTime() - state.startNanos;
+        if (startFailure != null) {
+            throw startFailure;
+        }
+        for (Throwable failure : failures) {
+            if (failure != null) {
+                throw new RuntimeException("Worker failed", failure);
+            }
+        }
+        return new Result(recorders, elapsedNanos);
+    }
+
+    private static class RunState {
+        /** Written before releasing the workers. */
+        long startNanos;
+        /** Set before releasing the workers to skip all operations. */
+        boolean aborted;
+    }
+
+    private void runWorker(WorkerFactory factory, int threadIndex, CyclicBarrier barrier,
+            RunState state, Recorder recorder) throws Exception {
+        Worker worker;
+        try {
+            worker = factory.createWorker(threadIndex);
+        } finally {
+            // arrive even if failed, see run()
+            await(barrier);
+            await(barrier);
+        }
+        try {
+            if (state.aborted) {
+                return;
+            }
+            long deadline = state.startNanos + durationNanos;
+            long threadTimeStart = SystemClock.currentThreadTimeMillis();
+            long start = System.nanoTime();
+            LatencyHistogram histogram = recorder.histogram;
+            int operations = 0;
+            while (durationNanos > 0 ? System.nanoTime() < deadline
+                    : operations < operationsPerThread) {
+                long operationStart = System.nanoTime();
+                worker.execute(operations);
+                histogram.record(System.nanoTime() - operationStart);
+                operations++;
+            }
+            recorder.elapsedNanos = System.nanoTime() - start;
+            recorder.threadTimeMillis = SystemClock.currentThreadTimeMillis() - threadTimeStart;
+            recorder.operations = operations;
+        } finally {
+            worker.close();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) throws InterruptedException {
+        try {
+            barrier.await();
+        } catch (BrokenBarrierException e) {
+            // only broken if a party was interrupted, which is reported by that party
+            throw new RuntimeException("Start barrier broken", e);
+        }
+    }
+}
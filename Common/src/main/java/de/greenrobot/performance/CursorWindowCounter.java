@@ -0,0 +1,52 @@
+package de.greenrobot.performance;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+
+/**
+ * Counts how often a cursor fills its {@link CursorWindow} while iterating: Android SQLite
+ * cursors copy a window of rows (about 2 MB) from the native statement and refill it once the
+ * position moves past it, so streaming many or large rows causes many refills.
+ * <p/>
+ * Only supported for {@link AbstractWindowedCursor}s (e.g. SQLiteCursor); other cursors (e.g. of
+ * SQLCipher) report {@link #UNSUPPORTED}.
+ */
+public class CursorWindowCounter {
+
+    public static final int UNSUPPORTED = -1;
+
+    private final AbstractWindowedCursor cursor;
+    private CursorWindow window;
+    private int startPosition = -1;
+    private int fills;
+
+    public CursorWindowCounter(Cursor cursor) {
+        this.cursor = cursor instanceof AbstractWindowedCursor
+                ? (AbstractWindowedCursor) cursor : null;
+    }
+
+    /**
+     * Call after each successful move of the cursor, checks if it filled a new window.
+     */
+    public void onMove() {
+        if (cursor == null) {
+            return;
+        }
+        CursorWindow currentWindow = cursor.getWindow();
+        if (currentWindow == null) {
+            return;
+        }
+        int currentStartPosition = currentWindow.getStartPosition();
+        if (currentWindow != window || currentStartPosition != startPosition) {
+            window = currentWindow;
+            startPosition = currentStartPosition;
+            fills++;
+        }
+    }
+
+    /** Windows filled so far (including the first), or {@link #UNSUPPORTED}. */
+    public int getFills() {
+        return cursor != null ? fills : UNSUPPORTED;
+    }
+}
@@ -0,0 +1,429 @@
+package de.greenrobot.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Pre-generates the deterministic test data (see {@link StringGenerator} and {@link
+ * EntityValueGenerator}) once into compact binary files, which are then memory-mapped. Entries are
+ * only decoded when accessed, so setting up a run with a large dataset neither generates nor keeps
+ * all of it in memory. A file is reused by later runs (and other modules sharing the directory) as
+ * long as its key matches and it has at least the requested count of entries; as entries do not
+ * depend on the count, a larger file also serves smaller counts.
+ * <p/>
+ * File layout: a header of {@value #HEADER_SIZE} bytes (magic, version, count, record size, key),
+ * fixed-size records and a heap of variable-length data (UTF-8 strings, blobs) referenced by the
+ * records using offsets relative to the heap start.
+ */
+public class DatasetCache {
+
+    public interface Strings {
+        int size();
+
+        String get(int index);
+
+        /**
+         * Decodes the strings at the given indices, so getting them later (e.g. while measuring)
+         * is just an array access.
+         */
+        void prefetch(int[] indices);
+    }
+
+    public interface Values {
+        int size();
+
+        /**
+         * Returns the values of the entity with the given id (id == index).
+         */
+        EntityValues get(int index);
+    }
+
+    static final int HEADER_SIZE = 128;
+
+    private static final int MAGIC = 0x47524453; // "GRDS"
+    /** Increment if the file layout or any generated data changes. */
+    private static final int VERSION = 3;
+    private static final int MAX_KEY_LENGTH = HEADER_SIZE - 20;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Heap offset and length. */
+    private static final int STRING_RECORD_SIZE = 8;
+    /** Fixed values (28 bytes), heap offset and length of the string and of the blob. */
+    private static final int VALUES_RECORD_SIZE = 44;
+    /** Length used for null strings and blobs. */
+    private static final int NULL_LENGTH = -1;
+    /** Entries created in parallel before writing them. */
+    private static final int BLOCK_SIZE = 4096;
+
+    private final File directory;
+    private final ParallelGenerator generator;
+
+    public DatasetCache(File directory) {
+        this(directory, new ParallelGenerator(1));
+    }
+
+    /**
+     * @param generator creates the entries of new files, the content does not depend on its
+     * thread count.
+     */
+    public DatasetCache(File directory, ParallelGenerator generator) {
+        this.directory = directory;
+        this.generator = generator;
+    }
+
+    /**
+     * Wraps the given strings, e.g. if the cache is disabled.
+     */
+    public static Strings wrap(final String[] strings) {
+        return new Strings() {
+            @Override
+            public int size() {
+                return strings.length;
+            }
+
+            @Override
+            public String get(int index) {
+                return strings[index];
+            }
+
+            @Override
+            public void prefetch(int[] indices) {
+                // already decoded
+            }
+        };
+    }
+
+    /**
+     * Wraps the given values, index == id.
+     */
+    public static Values wrap(final EntityValues[] values) {
+        return new Values() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public EntityValues get(int index) {
+                return values[index];
+            }
+        };
+    }
+
+    /**
+     * Returns (at least) the first count strings of {@link
+     * StringGenerator#createFixedRandomStrings(int)}.
+     */
+    public Strings getStrings(int count) {
+        return getStrings(StringGenerator.DEFAULT, count);
+    }
+
+    /**
+     * Returns (at least) the first count strings created by the given generator.
+     */
+    public Strings getStrings(final StringGenerator stringGenerator, int count) {
+        final ByteBuffer buffer = open("strings-" + stringGenerator, STRING_RECORD_SIZE, count,
+                new Writer<String>() {
+                    @Override
+                    public String create(int index) {
+                        return stringGenerator.create(index);
+                    }
+
+                    @Override
+                    public void writeRecord(String entry, ByteBuffer record, Heap heap)
+                            throws IOException {
+                        byte[] bytes = entry.getBytes(UTF8);
+                        record.putInt(heap.put(bytes));
+                        record.putInt(bytes.length);
+                    }
+                });
+        final int size = buffer.getInt(8);
+        final int heapStart = HEADER_SIZE + size * STRING_RECORD_SIZE;
+        return new Strings() {
+            private String[] decoded;
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public String get(int index) {
+                String[] decoded = this.decoded;
+                if (decoded != null && index >= 0 && index < size && decoded[index] != null) {
+                    return decoded[index];
+                }
+                return decode(index);
+            }
+
+            @Override
+            public void prefetch(int[] indices) {
+                if (decoded == null) {
+                    decoded = new String[size];
+                }
+                for (int index : indices) {
+                    decoded[index] = decode(index);
+                }
+            }
+
+            private String decode(int index) {
+                checkIndex(index, size);
+                int position = HEADER_SIZE + index * STRING_RECORD_SIZE;
+                byte[] bytes = getBytes(buffer, heapStart + buffer.getInt(position),
+                        buffer.getInt(position + 4));
+                return new String(bytes, UTF8);
+            }
+        };
+    }
+
+    /**
+     * Returns (at least) the values of the entities with the ids 0 to count - 1 created by the
+     * given generator.
+     */
+    public Values getValues(final EntityValueGenerator valueGenerator, int count) {
+        final ByteBuffer buffer = open("values-" + valueGenerator, VALUES_RECORD_SIZE, count,
+                new Writer<EntityValues>() {
+                    @Override
+                    public EntityValues create(int index) {
+                        return valueGenerator.create(index);
+                    }
+
+                    @Override
+                    public void writeRecord(EntityValues values, ByteBuffer record, Heap heap)
+                            throws IOException {
+                        record.put((byte) (values.simpleBoolean ? 1 : 0));
+                        record.put(values.simpleByte);
+                        record.putShort(values.simpleShort);
+                        record.putInt(values.simpleInt);
+                        record.putLong(values.simpleLong);
+                        record.putFloat(values.simpleFloat);
+                        record.putDouble(values.simpleDouble);
+                        byte[] string = values.simpleString != null
+                                ? values.simpleString.getBytes(UTF8) : null;
+                        record.putInt(string != null ? heap.put(string) : 0);
+                        record.putInt(string != null ? string.length : NULL_LENGTH);
+                        byte[] blob = values.simpleByteArray;
+                        record.putInt(blob != null ? heap.put(blob) : 0);
+                        record.putInt(blob != null ? blob.length : NULL_LENGTH);
+                    }
+                });
+        final int size = buffer.getInt(8);
+        final int heapStart = HEADER_SIZE + size * VALUES_RECORD_SIZE;
+        return new Values() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public EntityValues get(int index) {
+                checkIndex(index, size);
+                int position = HEADER_SIZE + index * VALUES_RECORD_SIZE;
+                int stringLength = buffer.getInt(position + 32);
+                String string = stringLength != NULL_LENGTH ? new String(getBytes(buffer,
+                        heapStart + buffer.getInt(position + 28), stringLength), UTF8) : null;
+                int blobLength = buffer.getInt(position + 40);
+                byte[] blob = blobLength != NULL_LENGTH ? getBytes(buffer,
+                        heapStart + buffer.getInt(position + 36), blobLength) : null;
+                return new EntityValues(index, buffer.get(position) != 0,
+                        buffer.get(position + 1), buffer.getShort(position + 2),
+                        buffer.getInt(position + 4), buffer.getLong(position + 8),
+                        buffer.getFloat(position + 16), buffer.getDouble(position + 20), string,
+                        blob);
+            }
+        };
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        // duplicate to keep the shared buffer position untouched, accessors may be called by
+        // multiple threads
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Creates entries (in parallel) and writes their records (in index order).
+     */
+    private interface Writer<T> extends ParallelGenerator.Factory<T> {
+        /**
+         * Writes the record of the given entry (exactly the record size of the file) to the given
+         * buffer.
+         */
+        void writeRecord(T entry, ByteBuffer record, Heap heap) throws IOException;
+    }
+
+    /**
+     * Appends variable-length data to the heap, buffering positional writes to the channel.
+     */
+    private static class Heap {
+        private final FileChannel channel;
+        private final long start;
+        private final ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+        private long flushedLength;
+
+        Heap(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+        }
+
+        /**
+         * Returns the offset of the given bytes relative to the heap start.
+         */
+        int put(byte[] bytes) throws IOException {
+            long offset = getLength();
+            if (offset + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("Dataset heap exceeds " + Integer.MAX_VALUE + " bytes");
+            }
+            if (bytes.length > buffer.remaining()) {
+                flush();
+            }
+            if (bytes.length > buffer.capacity()) {
+                write(channel, ByteBuffer.wrap(bytes), start + flushedLength);
+                flushedLength += bytes.length;
+            } else {
+                buffer.put(bytes);
+            }
+            return (int) offset;
+        }
+
+        long getLength() {
+            return flushedLength + buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            int length = buffer.remaining();
+            write(channel, buffer, start + flushedLength);
+            flushedLength += length;
+            buffer.clear();
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private <T> ByteBuffer open(String name, int recordSize, int count, Writer<T> writer) {
+        String key = name;
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Dataset key too long: " + key);
+        }
+        File file = new File(directory, name + ".dataset");
+        try {
+            ByteBuffer buffer = map(file);
+            if (buffer != null && isValid(buffer, key, recordSize, count)) {
+                return buffer;
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create directory " + directory);
+            }
+            File tempFile = new File(directory, name + ".dataset.tmp");
+            generate(tempFile, key, recordSize, count, writer);
+            if (!tempFile.renameTo(file)) {
+                // renameTo does not replace existing files on all platforms
+                if (!file.delete() || !tempFile.renameTo(file)) {
+                    throw new IOException("Could not rename " + tempFile + " to " + file);
+                }
+            }
+            return map(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open dataset " + file, e);
+        }
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid after closing the file
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static boolean isValid(ByteBuffer buffer, String key, int recordSize, int count) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) < count || buffer.getInt(12) != recordSize) {
+            return false;
+        }
+        int keyLength = buffer.getInt(16);
+        if (keyLength < 0 || keyLength > MAX_KEY_LENGTH) {
+            return false;
+        }
+        return key.equals(new String(getBytes(buffer, 20, keyLength), UTF8));
+    }
+
+    private <T> void generate(File file, String key, int recordSize, int count, Writer<T> writer)
+            throws IOException {
+        long recordsSize = (long) recordSize * count;
+        if (HEADER_SIZE + recordsSize > Integer.MAX_VALUE) {
+            throw new IOException("Dataset of " + count + " entries exceeds "
+                    + Integer.MAX_VALUE + " bytes");
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            channel.truncate(0);
+            Heap heap = new Heap(channel, HEADER_SIZE + recordsSize);
+            ByteBuffer records = ByteBuffer.allocate(recordSize * BLOCK_SIZE);
+            long recordsPosition = HEADER_SIZE;
+            for (int blockStart = 0; blockStart < count; blockStart += BLOCK_SIZE) {
+                @SuppressWarnings("unchecked")
+                T[] entries = (T[]) new Object[Math.min(BLOCK_SIZE, count - blockStart)];
+                generator.fill(entries, blockStart, writer);
+                for (T entry : entries) {
+                    int expectedPosition = records.position() + recordSize;
+                    writer.writeRecord(entry, records, heap);
+                    if (records.position() != expectedPosition) {
+                        throw new IllegalStateException("Record size mismatch");
+                    }
+                }
+                records.flip();
+                write(channel, records, recordsPosition);
+                recordsPosition += records.limit();
+                records.clear();
+            }
+            heap.flush();
+            if (HEADER_SIZE + recordsSize + heap.getLength() > Integer.MAX_VALUE) {
+                throw new IOException("Dataset of " + count + " entries exceeds "
+                        + Integer.MAX_VALUE + " bytes");
+            }
+
+            // header last, so an interrupted generation never leaves a valid looking file
+            byte[] keyBytes = key.getBytes(UTF8);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(recordSize)
+                    .putInt(keyBytes.length).put(keyBytes);
+            header.clear();
+            write(channel, header, 0);
+            channel.force(false);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package de.greenrobot.performance;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates the property values of test entities, so all modules write the same data. Values
+ * only depend on the entity id and {@link StringGenerator#SEED}, not on the order of creation.
+ * Number magnitudes, string lengths and blob sizes follow the distributions of a {@link Profile},
+ * string characters are given by a {@link StringProfile}.
+ */
+public class EntityValueGenerator {
+
+    public enum Profile {
+        /** Mostly small numbers, short strings and blobs with a long tail, like app data. */
+        REALISTIC(0.8, 1000, new LengthDistribution(new int[] { 0, 10, 30, 100, 500 },
+                new double[] { 0.3, 0.4, 0.2, 0.1 }),
+                new LengthDistribution(new int[] { 0, 16, 256, 4096 },
+                        new double[] { 0.5, 0.4, 0.1 })),
+        /** Numbers fitting into a byte, strings and blobs below 10 and 8 bytes. */
+        SMALL(1, Byte.MAX_VALUE, new LengthDistribution(new int[] { 0, 10 }, new double[] { 1 }),
+                new LengthDistribution(new int[] { 0, 8 }, new double[] { 1 })),
+        /** Numbers over the full range of their type, strings and blobs of 100 bytes and more. */
+        LARGE(0, 0, new LengthDistribution(new int[] { 100, 500 }, new double[] { 1 }),
+                new LengthDistribution(new int[] { 256, 4096 }, new double[] { 1 })),
+        /**
+         * The maximum value of each type, a constant string and blob: worst case for varint
+         * encoding, best case for deduplication. Used by all modules before profiles existed.
+         */
+        LEGACY(0, 0, null, null);
+
+        private final double smallNumberRatio;
+        private final int smallNumberMax;
+        private final LengthDistribution stringLengths;
+        private final LengthDistribution blobSizes;
+
+        Profile(double smallNumberRatio, int smallNumberMax, LengthDistribution stringLengths,
+                LengthDistribution blobSizes) {
+            this.smallNumberRatio = smallNumberRatio;
+            this.smallNumberMax = smallNumberMax;
+            this.stringLengths = stringLengths;
+            this.blobSizes = blobSizes;
+        }
+    }
+
+    /**
+     * Weighted buckets of lengths, a length is picked uniformly within its bucket.
+     */
+    static class LengthDistribution {
+        private final int[] bounds;
+        private final double[] cumulativeWeights;
+
+        /**
+         * @param bounds bucket i contains lengths from bounds[i] (inclusive) to bounds[i + 1].
+         * @param weights of each bucket, summing up to 1.
+         */
+        LengthDistribution(int[] bounds, double[] weights) {
+            if (bounds.length != weights.length + 1) {
+                throw new IllegalArgumentException("Expected " + (weights.length + 1)
+                        + " bounds for " + weights.length + " weights");
+            }
+            this.bounds = bounds;
+            cumulativeWeights = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        int sample(Random random) {
+            double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int bucket = 0;
+            while (bucket < cumulativeWeights.length - 1 && value >= cumulativeWeights[bucket]) {
+                bucket++;
+            }
+            return bounds[bucket] + random.nextInt(bounds[bucket + 1] - bounds[bucket]);
+        }
+    }
+
+    private static final String LEGACY_STRING = "greenrobot greenDAO";
+    private static final byte[] LEGACY_BYTES = { 42, -17, 23, 0, 127, -128 };
+
+    private final Profile profile;
+    private final double nullRatio;
+    private final StringProfile stringProfile;
+    /** Null to use the string lengths of the profile. */
+    private final LengthDistribution stringLengths;
+
+    public EntityValueGenerator(Profile profile) {
+        this(profile, 0);
+    }
+
+    public EntityValueGenerator(Profile profile, double nullRatio) {
+        this(profile, nullRatio, StringProfile.ASCII);
+    }
+
+    public EntityValueGenerator(Profile profile, double nullRatio, StringProfile stringProfile) {
+        this(profile, nullRatio, stringProfile, null);
+    }
+
+    /**
+     * @param nullRatio of strings and blobs to be null. Note: SimpleEntityNotNull tables do not
+     * accept null, so this is only useful for entities with nullable properties.
+     * @param minStringLength together with maxStringLength (inclusive) replaces the string
+     * lengths of the profile, e.g. to sweep string lengths. Not used by {@link Profile#LEGACY}.
+     */
+    public EntityValueGenerator(Profile profile, double nullRatio, StringProfile stringProfile,
+            int minStringLength, int maxStringLength) {
+        this(profile, nullRatio, stringProfile, createStringLengths(minStringLength,
+                maxStringLength));
+    }
+
+    private static LengthDistribution createStringLengths(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Illegal string lengths " + min + " to " + max);
+        }
+        return new LengthDistribution(new int[] { min, max + 1 }, new double[] { 1 });
+    }
+
+    private EntityValueGenerator(Profile profile, double nullRatio, StringProfile stringProfile,
+            LengthDistribution stringLengths) {
+        if (nullRatio < 0 || nullRatio > 1) {
+            throw new IllegalArgumentException("Illegal null ratio " + nullRatio);
+        }
+        this.profile = profile;
+        this.nullRatio = nullRatio;
+        this.stringProfile = stringProfile;
+        this.stringLengths = stringLengths;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public EntityValues create(long id) {
+        if (profile == Profile.LEGACY) {
+            return new EntityValues(id, true, Byte.MAX_VALUE, Short.MAX_VALUE, Integer.MAX_VALUE,
+                    Long.MAX_VALUE, Float.MAX_VALUE, Double.MAX_VALUE, LEGACY_STRING,
+                    LEGACY_BYTES.clone());
+        }
+        // a generator per id, so values do not depend on the order entities are created in
+        Random random = new Random(StringGenerator.SEED + id * 0x9E3779B97F4A7C15L);
+        boolean simpleBoolean = random.nextBoolean();
+        byte simpleByte = isSmall(random) ? (byte) nextSmall(random, Byte.MAX_VALUE)
+                : (byte) random.nextInt();
+        short simpleShort = isSmall(random) ? (short) nextSmall(random, Short.MAX_VALUE)
+                : (short) random.nextInt();
+        int simpleInt = isSmall(random) ? nextSmall(random, Integer.MAX_VALUE) : random.nextInt();
+        long simpleLong = isSmall(random) ? nextSmall(random, Integer.MAX_VALUE)
+                : random.nextLong();
+        // small: e.g. prices with two decimals
+        float simpleFloat = isSmall(random) ? nextSmall(random, Integer.MAX_VALUE) / 100f
+                : (random.nextFloat() * 2 - 1) * Float.MAX_VALUE;
+        double simpleDouble = isSmall(random) ? nextSmall(random, Integer.MAX_VALUE) / 100d
+                : (random.nextDouble() * 2 - 1) * Double.MAX_VALUE;
+        return new EntityValues(id, simpleBoolean, simpleByte, simpleShort, simpleInt, simpleLong,
+                simpleFloat, simpleDouble, nextString(random), nextBytes(random));
+    }
+
+    private boolean isSmall(Random random) {
+        return random.nextDouble() < profile.smallNumberRatio;
+    }
+
+    private int nextSmall(Random random, int typeMax) {
+        return random.nextInt(Math.min(profile.smallNumberMax, typeMax) + 1);
+    }
+
+    private String nextString(Random random) {
+        if (nullRatio > 0 && random.nextDouble() < nullRatio) {
+            return null;
+        }
+        int length = (stringLengths != null ? stringLengths : profile.stringLengths).sample(random);
+        StringBuilder builder = new StringBuilder(length);
+        stringProfile.append(builder, random, length);
+        return builder.toString();
+    }
+
+    private byte[] nextBytes(Random random) {
+        if (nullRatio > 0 && random.nextDouble() < nullRatio) {
+            return null;
+        }
+        byte[] bytes = new byte[profile.blobSizes.sample(random)];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Describes the profiles, string lengths and null ratio, e.g. "realistic",
+     * "realistic-cjk-len5-50" or "realistic-null0.10".
+     */
+    @Override
+    public String toString() {
+        String name = profile.name().toLowerCase(Locale.US);
+        if (stringProfile != StringProfile.ASCII) {
+            name += "-" + stringProfile.getName();
+        }
+        if (stringLengths != null) {
+            int min = stringLengths.bounds[0];
+            int max = stringLengths.bounds[1] - 1;
+            name += min == max ? "-len" + min : "-len" + min + "-" + max;
+        }
+        return nullRatio > 0 ? String.format(Locale.US, "%s-null%.2f", name, nullRatio) : name;
+    }
+}
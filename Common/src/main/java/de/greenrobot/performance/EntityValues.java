@@ -0,0 +1,35 @@
+package de.greenrobot.performance;
+
+/**
+ * Property values of one SimpleEntityNotNull, see {@link EntityValueGenerator}.
+ */
+public class EntityValues {
+
+    public final long id;
+    public final boolean simpleBoolean;
+    public final byte simpleByte;
+    public final short simpleShort;
+    public final int simpleInt;
+    public final long simpleLong;
+    public final float simpleFloat;
+    public final double simpleDouble;
+    /** Null only if the generator has a null ratio. */
+    public final String simpleString;
+    /** Null only if the generator has a null ratio. */
+    public final byte[] simpleByteArray;
+
+    EntityValues(long id, boolean simpleBoolean, byte simpleByte, short simpleShort,
+            int simpleInt, long simpleLong, float simpleFloat, double simpleDouble,
+            String simpleString, byte[] simpleByteArray) {
+        this.id = id;
+        this.simpleBoolean = simpleBoolean;
+        this.simpleByte = simpleByte;
+        this.simpleShort = simpleShort;
+        this.simpleInt = simpleInt;
+        this.simpleLong = simpleLong;
+        this.simpleFloat = simpleFloat;
+        this.simpleDouble = simpleDouble;
+        this.simpleString = simpleString;
+        this.simpleByteArray = simpleByteArray;
+    }
+}
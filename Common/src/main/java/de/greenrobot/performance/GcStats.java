@@ -0,0 +1,99 @@
+package de.greenrobot.performance;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Debug;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Reads cumulative garbage collection counters of the runtime. On Android uses the ART runtime
+ * stats (API 23+), on a JVM host the {@code GarbageCollectorMXBean}s.
+ */
+abstract class GcStats {
+
+    static final long UNSUPPORTED = -1;
+
+    /** Total number of collections so far. */
+    long count;
+    /** Total time spent collecting so far in milliseconds. */
+    long timeMillis;
+    /** Total number of collections that blocked the allocating thread, or {@link #UNSUPPORTED}. */
+    long blockingCount = UNSUPPORTED;
+
+    /**
+     * Returns GC stats for the current runtime, or null if they are not available.
+     */
+    static GcStats create() {
+        if ("Dalvik".equals(System.getProperty("java.vm.name"))) {
+            // ART runtime stats are only available starting with M
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? new ArtGcStats() : null;
+        }
+        try {
+            return new JvmGcStats();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Updates the counters to the current values. */
+    abstract void update();
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private static class ArtGcStats extends GcStats {
+
+        @Override
+        void update() {
+            count = parse(Debug.getRuntimeStat("art.gc.gc-count"));
+            timeMillis = parse(Debug.getRuntimeStat("art.gc.gc-time"));
+            blockingCount = parse(Debug.getRuntimeStat("art.gc.blocking-gc-count"));
+        }
+
+        private static long parse(String stat) {
+            if (stat == null) {
+                return UNSUPPORTED;
+            }
+            try {
+                return Long.parseLong(stat);
+            } catch (NumberFormatException e) {
+                return UNSUPPORTED;
+            }
+        }
+    }
+
+    /**
+     * Uses reflection as java.lang.management is not part of the Android SDK.
+     */
+    private static class JvmGcStats extends GcStats {
+
+        private final List<?> garbageCollectorBeans;
+        private final Method getCollectionCount;
+        private final Method getCollectionTime;
+
+        JvmGcStats() throws Exception {
+            Class<?> factoryClass = Class.forName("java.lang.management.ManagementFactory");
+            garbageCollectorBeans = (List<?>) factoryClass
+                    .getMethod("getGarbageCollectorMXBeans").invoke(null);
+            Class<?> beanClass = Class.forName("java.lang.management.GarbageCollectorMXBean");
+            getCollectionCount = beanClass.getMethod("getCollectionCount");
+            getCollectionTime = beanClass.getMethod("getCollectionTime");
+        }
+
+        @Override
+        void update() {
+            long totalCount = 0;
+            long totalTime = 0;
+            try {
+                for (Object bean : garbageCollectorBeans) {
+                    // -1 if undefined for a collector
+                    totalCount += Math.max((Long) getCollectionCount.invoke(bean), 0);
+                    totalTime += Math.max((Long) getCollectionTime.invoke(bean), 0);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Could not read GC stats", e);
+            }
+            count = totalCount;
+            timeMillis = totalTime;
+        }
+    }
+}
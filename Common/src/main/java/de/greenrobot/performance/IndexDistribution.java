@@ -0,0 +1,191 @@
+package de.greenrobot.performance;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Distribution of the entities to query, e.g. to select strings created by {@link
+ * StringGenerator#createFixedRandomStrings(int)}. Entities are expected to be inserted in index
+ * order. All distributions are deterministic, seeded by {@link StringGenerator#SEED}.
+ *
+ * <p/>Skewed distributions (Zipf, hotspot) spread their popular indices over the whole range using
+ * a fixed permutation, so hot entities are not also physically adjacent.
+ */
+public abstract class IndexDistribution {
+
+    /** Each index with the same probability, see {@link StringGenerator#getFixedRandomIndices}. */
+    public static IndexDistribution uniform() {
+        return new Uniform();
+    }
+
+    /**
+     * The n-th most popular index is queried with a probability proportional to 1 / n^exponent,
+     * e.g. 0.99 as used by YCSB.
+     */
+    public static IndexDistribution zipf(double exponent) {
+        return new Zipf(exponent, true);
+    }
+
+    /**
+     * Like {@link #zipf(double)}, but the most recently inserted (highest) indices are the most
+     * popular.
+     */
+    public static IndexDistribution latest(double exponent) {
+        return new Zipf(exponent, false);
+    }
+
+    /**
+     * A fraction of the indices receives a fraction of the queries (uniformly within the hot and
+     * the cold set), e.g. 0.2 and 0.8 for 20 % of entities getting 80 % of the traffic.
+     */
+    public static IndexDistribution hotspot(double hotIndexFraction, double hotQueryFraction) {
+        return new Hotspot(hotIndexFraction, hotQueryFraction);
+    }
+
+    /**
+     * Parses a distribution like "uniform", "zipf:0.99", "latest:0.99" or "hotspot:0.2:0.8".
+     */
+    public static IndexDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            if (parts[0].equals("uniform") && parts.length == 1) {
+                return uniform();
+            } else if (parts[0].equals("zipf") && parts.length == 2) {
+                return zipf(Double.parseDouble(parts[1]));
+            } else if (parts[0].equals("latest") && parts.length == 2) {
+                return latest(Double.parseDouble(parts[1]));
+            } else if (parts[0].equals("hotspot") && parts.length == 3) {
+                return hotspot(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Illegal index distribution " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown index distribution " + spec);
+    }
+
+    /**
+     * Returns the same indices from 0 to maxIndex (inclusive) for every call.
+     */
+    public abstract int[] createIndices(int count, int maxIndex);
+
+    /**
+     * Returns the name written to the results, in the format accepted by {@link #parse(String)}.
+     */
+    public abstract String getName();
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Returns a fixed random permutation of 0 to size - 1.
+     */
+    static int[] createPermutation(int size) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        Random random = new Random(StringGenerator.SEED);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+
+    private static class Uniform extends IndexDistribution {
+        @Override
+        public int[] createIndices(int count, int maxIndex) {
+            return StringGenerator.getFixedRandomIndices(count, maxIndex);
+        }
+
+        @Override
+        public String getName() {
+            return "uniform";
+        }
+    }
+
+    private static class Zipf extends IndexDistribution {
+        private final double exponent;
+        private final boolean scrambled;
+
+        Zipf(double exponent, boolean scrambled) {
+            if (exponent <= 0) {
+                throw new IllegalArgumentException("Exponent must be positive: " + exponent);
+            }
+            this.exponent = exponent;
+            this.scrambled = scrambled;
+        }
+
+        @Override
+        public int[] createIndices(int count, int maxIndex) {
+            int size = maxIndex + 1;
+            // cumulative probabilities of ranks, sampled by binary search
+            double[] cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            int[] permutation = scrambled ? createPermutation(size) : null;
+            Random random = new Random(StringGenerator.SEED);
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                if (rank < 0) {
+                    rank = Math.min(-rank - 1, maxIndex);
+                }
+                indices[i] = scrambled ? permutation[rank] : maxIndex - rank;
+            }
+            return indices;
+        }
+
+        @Override
+        public String getName() {
+            return String.format(Locale.US, "%s:%s", scrambled ? "zipf" : "latest", exponent);
+        }
+    }
+
+    private static class Hotspot extends IndexDistribution {
+        private final double hotIndexFraction;
+        private final double hotQueryFraction;
+
+        Hotspot(double hotIndexFraction, double hotQueryFraction) {
+            if (hotIndexFraction <= 0 || hotIndexFraction >= 1 || hotQueryFraction < 0
+                    || hotQueryFraction > 1) {
+                throw new IllegalArgumentException("Illegal hotspot fractions " + hotIndexFraction
+                        + ", " + hotQueryFraction);
+            }
+            this.hotIndexFraction = hotIndexFraction;
+            this.hotQueryFraction = hotQueryFraction;
+        }
+
+        @Override
+        public int[] createIndices(int count, int maxIndex) {
+            int size = maxIndex + 1;
+            if (size == 1) {
+                return new int[count];
+            }
+            int hotSize = (int) Math.round(size * hotIndexFraction);
+            hotSize = Math.max(1, Math.min(size - 1, hotSize));
+            int[] permutation = createPermutation(size);
+            Random random = new Random(StringGenerator.SEED);
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                int position = random.nextDouble() < hotQueryFraction ? random.nextInt(hotSize)
+                        : hotSize + random.nextInt(size - hotSize);
+                indices[i] = permutation[position];
+            }
+            return indices;
+        }
+
+        @Override
+        public String getName() {
+            return String.format(Locale.US, "hotspot:%s:%s", hotIndexFraction, hotQueryFraction);
+        }
+    }
+}
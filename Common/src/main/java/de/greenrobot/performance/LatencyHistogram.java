@@ -0,0 +1,129 @@
+package de.greenrobot.performance;
+
+import java.util.Arrays;
+
+/**
+ * Records latency values (e.g. nanoseconds per operation) into log-linear buckets, similar to
+ * HdrHistogram. Values below {@link #SUB_BUCKET_COUNT} are stored exactly, larger values with a
+ * relative precision of 1/{@link #SUB_BUCKET_HALF_COUNT} (below 2 %). Recording does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    // magnitudes 1..(64 - SUB_BUCKET_BITS) each use the upper half of the sub buckets
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+            + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long totalValue;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue;
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values are not supported: " + value);
+        }
+        counts[indexOf(value)]++;
+        totalCount++;
+        totalValue += value;
+        if (value < minValue) {
+            minValue = value;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Adds all values recorded by the given histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalValue = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+    }
+
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMinValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+    }
+
+    /**
+     * Returns the highest value (within bucket precision) at or below which the given percentage
+     * of recorded values fall.
+     *
+     * @param percentile in the range [0, 100].
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double requested = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = (long) Math.ceil(requested / 100 * totalCount);
+        countAtPercentile = Math.max(countAtPercentile, 1);
+
+        long runningCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            runningCount += counts[i];
+            if (runningCount >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> magnitude); // in [SUB_BUCKET_HALF_COUNT, SUB_BUCKET_COUNT)
+        return SUB_BUCKET_COUNT + (magnitude - 1) * SUB_BUCKET_HALF_COUNT
+                + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int magnitude = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        long lowest = subBucket << magnitude;
+        long highest = lowest + (1L << magnitude) - 1;
+        // the very last bucket would overflow
+        return highest < lowest ? Long.MAX_VALUE : highest;
+    }
+}
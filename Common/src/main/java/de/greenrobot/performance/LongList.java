@@ -0,0 +1,64 @@
+package de.greenrobot.performance;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs, avoids boxing measurements.
+ */
+public class LongList {
+
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this(16);
+    }
+
+    public LongList(int initialCapacity) {
+        values = new long[initialCapacity];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(size * 2, 4));
+        }
+        values[size++] = value;
+    }
+
+    public void addAll(LongList other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.values[i]);
+        }
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
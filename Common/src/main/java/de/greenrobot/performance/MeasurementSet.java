@@ -0,0 +1,152 @@
+package de.greenrobot.performance;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-run measurements by column name (e.g. {@link Metric} names), in insertion order.
+ * Can be read from the result or TSV files written by {@link Benchmark} or built in memory.
+ */
+public class MeasurementSet {
+
+    private final String name;
+    private final Map<String, List<Long>> valuesByColumn = new LinkedHashMap<>();
+
+    public MeasurementSet(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MeasurementSet add(String column, long value) {
+        List<Long> values = valuesByColumn.get(column);
+        if (values == null) {
+            values = new ArrayList<>();
+            valuesByColumn.put(column, values);
+        }
+        values.add(value);
+        return this;
+    }
+
+    /**
+     * Adds all values of the given set, e.g. to merge result files of the same library.
+     */
+    public MeasurementSet addAll(MeasurementSet other) {
+        for (Map.Entry<String, List<Long>> entry : other.valuesByColumn.entrySet()) {
+            for (Long value : entry.getValue()) {
+                add(entry.getKey(), value);
+            }
+        }
+        return this;
+    }
+
+    public Set<String> getColumns() {
+        return Collections.unmodifiableSet(valuesByColumn.keySet());
+    }
+
+    /**
+     * Returns the values of the given column, or an empty list.
+     */
+    public List<Long> get(String column) {
+        List<Long> values = valuesByColumn.get(column);
+        return values != null ? Collections.unmodifiableList(values)
+                : Collections.<Long>emptyList();
+    }
+
+    /**
+     * Reads a {@link ResultFile} (extension {@value Benchmark#RESULT_FILE_EXTENSION}) or else a TSV
+     * file.
+     */
+    public static MeasurementSet read(File file) throws IOException {
+        return file.getName().endsWith(Benchmark.RESULT_FILE_EXTENSION) ? readResultFile(file)
+                : readTsv(file);
+    }
+
+    /**
+     * Reads all numeric values of the runs of a {@link ResultFile}.
+     */
+    public static MeasurementSet readResultFile(File file) throws IOException {
+        MeasurementSet set = new MeasurementSet(getBaseName(file));
+        for (ResultFile.Run run : ResultFile.readRuns(file)) {
+            for (int i = 0; i < run.values.length; i++) {
+                Long value = parseLong(run.values[i]);
+                if (value != null) {
+                    set.add(run.columns[i], value);
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Reads all numeric values of a TSV file written by {@link Benchmark}. The file may contain
+     * multiple header lines (e.g. if columns changed); values are assigned to the column names of
+     * the last header before them.
+     */
+    public static MeasurementSet readTsv(File file) throws IOException {
+        MeasurementSet set = new MeasurementSet(getBaseName(file));
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String[] headers = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columnValues = line.split("\t");
+                if (isHeader(columnValues)) {
+                    headers = columnValues;
+                } else if (headers != null) {
+                    for (int i = 0; i < columnValues.length && i < headers.length; i++) {
+                        Long value = parseLong(columnValues[i]);
+                        if (value != null) {
+                            set.add(headers[i], value);
+                        }
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return set;
+    }
+
+    private static String getBaseName(File file) {
+        String fileName = file.getName();
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
+
+    /**
+     * Like {@link Benchmark}, treats lines with multiple columns but no numbers as header.
+     */
+    static boolean isHeader(String[] columnValues) {
+        if (columnValues.length <= 1) {
+            return false;
+        }
+        for (String value : columnValues) {
+            if (parseLong(value) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package de.greenrobot.performance;
+
+import android.os.Debug;
+
+/**
+ * Samples the used Java heap and the allocated native heap on a background thread while a phase
+ * runs, e.g. to check a streaming read of millions of rows keeps memory bounded. Peaks are
+ * reported as the increase over the usage at {@link #start()}, so run GC before starting.
+ * <p/>
+ * Peaks shorter than the sampling interval may be missed; allocations that are collected
+ * between two samples are not seen at all (use allocation counting for those).
+ */
+public class MemorySampler {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 5;
+
+    private final long intervalMillis;
+    private volatile boolean running;
+    private Thread thread;
+    // written by the sampling thread, read after joining it
+    private long startHeapBytes;
+    private long startNativeBytes;
+    private long peakHeapBytes;
+    private long peakNativeBytes;
+
+    public MemorySampler() {
+        this(DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public MemorySampler(long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Illegal interval " + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+    }
+
+    /** Takes the first sample and starts sampling until {@link #stop()}. */
+    public void start() {
+        if (running) {
+            throw new IllegalStateException("Already started");
+        }
+        startHeapBytes = getUsedHeapBytes();
+        startNativeBytes = Debug.getNativeHeapAllocatedSize();
+        peakHeapBytes = startHeapBytes;
+        peakNativeBytes = startNativeBytes;
+        running = true;
+        thread = new Thread("memory-sampler") {
+            @Override
+            public void run() {
+                while (running) {
+                    sample();
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops sampling and takes a last sample. */
+    public void stop() {
+        if (!running) {
+            throw new IllegalStateException("Not started");
+        }
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while stopping memory sampler", e);
+        }
+        thread = null;
+        sample();
+    }
+
+    /** Highest used Java heap since the start minus the used heap at the start. */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes - startHeapBytes;
+    }
+
+    /** Highest allocated native heap since the start minus the allocated size at the start. */
+    public long getPeakNativeBytes() {
+        return peakNativeBytes - startNativeBytes;
+    }
+
+    private void sample() {
+        peakHeapBytes = Math.max(peakHeapBytes, getUsedHeapBytes());
+        peakNativeBytes = Math.max(peakNativeBytes, Debug.getNativeHeapAllocatedSize());
+    }
+
+    private static long getUsedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
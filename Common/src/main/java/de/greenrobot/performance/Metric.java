@@ -0,0 +1,76 @@
+package de.greenrobot.performance;
+
+/**
+ * A named measurement with a unit, e.g. the time of a benchmark phase. Create using {@link
+ * MetricRegistry#register(String, Unit, String, int)}.
+ */
+public final class Metric {
+
+    public enum Unit {
+        MILLIS("ms", false),
+        NANOS_PER_OPERATION("ns/op", false),
+        BYTES("bytes", false),
+        /** A number of events, e.g. cursor window fills. */
+        COUNT("count", false),
+        OPERATIONS_PER_SECOND("ops/s", true);
+
+        private final String symbol;
+        private final boolean higherIsBetter;
+
+        Unit(String symbol, boolean higherIsBetter) {
+            this.symbol = symbol;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /** E.g. true for throughput, false for times. */
+        public boolean isHigherBetter() {
+            return higherIsBetter;
+        }
+    }
+
+    private final int id;
+    private final String name;
+    private final Unit unit;
+    private final String group;
+    private final int displayOrder;
+
+    Metric(int id, String name, Unit unit, String group, int displayOrder) {
+        this.id = id;
+        this.name = name;
+        this.unit = unit;
+        this.group = group;
+        this.displayOrder = displayOrder;
+    }
+
+    /** Index of this metric in the registry, used for array based storage. */
+    public int getId() {
+        return id;
+    }
+
+    /** Unique name, used as column name. */
+    public String getName() {
+        return name;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    /** Metrics of a group (e.g. "batch") are displayed together. */
+    public String getGroup() {
+        return group;
+    }
+
+    public int getDisplayOrder() {
+        return displayOrder;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + unit.getSymbol() + "]";
+    }
+}
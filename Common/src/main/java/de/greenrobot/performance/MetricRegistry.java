@@ -0,0 +1,86 @@
+package de.greenrobot.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of all {@link Metric}s. The built-in phases of {@link Benchmark.Type} are always
+ * registered, library modules may register additional metrics for their own scenarios.
+ */
+public class MetricRegistry {
+
+    private static final List<Metric> metrics = new ArrayList<>();
+    private static final Map<String, Metric> metricsByName = new HashMap<>();
+
+    private static final Comparator<Metric> DISPLAY_ORDER = new Comparator<Metric>() {
+        @Override
+        public int compare(Metric lhs, Metric rhs) {
+            if (lhs.getDisplayOrder() != rhs.getDisplayOrder()) {
+                return lhs.getDisplayOrder() < rhs.getDisplayOrder() ? -1 : 1;
+            }
+            return lhs.getId() < rhs.getId() ? -1 : (lhs.getId() == rhs.getId() ? 0 : 1);
+        }
+    };
+
+    static {
+        // make sure the built-in metrics are registered first; must not dereference anything as
+        // Benchmark.Type may be initializing already (it registers its metrics here)
+        @SuppressWarnings("unused")
+        Object triggerInit = Benchmark.Type.QUERY_INDEXED;
+    }
+
+    private MetricRegistry() {
+    }
+
+    /**
+     * Registers a metric, or returns the existing one if a metric with the same name and unit was
+     * registered before.
+     *
+     * @param group metrics of a group are displayed together, e.g. "batch".
+     * @param displayOrder metrics are displayed sorted by this, built-in types use multiples of
+     * 100 from 100 to 2100 (and the next two for their ops/s and ns/op metrics).
+     */
+    public static synchronized Metric register(String name, Metric.Unit unit, String group,
+            int displayOrder) {
+        Metric existing = metricsByName.get(name);
+        if (existing != null) {
+            if (existing.getUnit() != unit) {
+                throw new IllegalArgumentException("Metric " + name + " already registered with "
+                        + "unit " + existing.getUnit());
+            }
+            return existing;
+        }
+        Metric metric = new Metric(metrics.size(), name, unit, group, displayOrder);
+        metrics.add(metric);
+        metricsByName.put(name, metric);
+        return metric;
+    }
+
+    /**
+     * Returns the metric with the given name, or null.
+     */
+    public static synchronized Metric get(String name) {
+        return metricsByName.get(name);
+    }
+
+    static synchronized Metric get(int id) {
+        return metrics.get(id);
+    }
+
+    public static synchronized int size() {
+        return metrics.size();
+    }
+
+    /**
+     * Returns all metrics sorted by display order.
+     */
+    public static synchronized List<Metric> getMetrics() {
+        List<Metric> sorted = new ArrayList<>(metrics);
+        Collections.sort(sorted, DISPLAY_ORDER);
+        return sorted;
+    }
+}
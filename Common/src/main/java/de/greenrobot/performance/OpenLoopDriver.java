@@ -0,0 +1,285 @@
+package de.greenrobot.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs operations at fixed target rates (open loop), e.g. 500 writes/s and 2000 reads/s at the
+ * same time, instead of starting the next operation once the previous one finished (closed loop).
+ * <p/>
+ * Operation i of a stream is scheduled at start + i / rate. Its latency is measured from this
+ * intended start, not from when a thread got around to start it, so time spent waiting behind
+ * slow operations is included (coordinated omission correction). If a database can not keep up
+ * with a rate, corrected latencies grow with the run time while service times (from the actual
+ * start) may look fine; operations still waiting when the run ends are recorded with the time
+ * they waited so far.
+ * <p/>
+ * Threads of a stream share its schedule: each takes the next scheduled operation, waits for its
+ * intended start (if not late already) and executes it. Uses a {@link ConcurrentDriver} to start
+ * all threads of all streams together.
+ */
+public class OpenLoopDriver {
+
+    public static class Stream {
+        private final Metric metric;
+        private final double operationsPerSecond;
+        private final int threadCount;
+        private final ConcurrentDriver.WorkerFactory factory;
+        /** Index of the next operation to schedule. */
+        private final AtomicInteger nextOperation = new AtomicInteger();
+
+        Stream(Metric metric, double operationsPerSecond, int threadCount,
+                ConcurrentDriver.WorkerFactory factory) {
+            this.metric = metric;
+            this.operationsPerSecond = operationsPerSecond;
+            this.threadCount = threadCount;
+            this.factory = factory;
+        }
+
+        long getIntendedStartOffset(int operationIndex) {
+            return (long) (operationIndex * 1000000000.0 / operationsPerSecond);
+        }
+    }
+
+    public static class StreamResult {
+        private final Metric metric;
+        private final double targetOperationsPerSecond;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LatencyHistogram serviceHistogram = new LatencyHistogram();
+        private final long durationNanos;
+        private int operations;
+        private int unfinished;
+
+        StreamResult(Stream stream, long durationNanos) {
+            this.metric = stream.metric;
+            this.targetOperationsPerSecond = stream.operationsPerSecond;
+            this.durationNanos = durationNanos;
+        }
+
+        public Metric getMetric() {
+            return metric;
+        }
+
+        public double getTargetOperationsPerSecond() {
+            return targetOperationsPerSecond;
+        }
+
+        /** Operations completed per second of the configured duration. */
+        public long getOperationsPerSecond() {
+            return operations * 1000000000L / durationNanos;
+        }
+
+        /**
+         * Latencies from the intended start to completion (corrected), including operations not
+         * started before the run ended, see {@link #getUnfinished()}.
+         */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        /** Latencies from the actual start to completion (uncorrected). */
+        public LatencyHistogram getServiceHistogram() {
+            return serviceHistogram;
+        }
+
+        /** Operations executed. */
+        public int getOperations() {
+            return operations;
+        }
+
+        /**
+         * Operations scheduled during the run but not started before it ended, a sign the target
+         * rate could not be sustained.
+         */
+        public int getUnfinished() {
+            return unfinished;
+        }
+
+        /**
+         * Returns target and achieved rate, corrected and uncorrected latency percentiles.
+         */
+        public String format() {
+            return String.format(Locale.US, "%s: target %.0f ops/s, achieved %d ops/s (%d ops, "
+                            + "%d unfinished), p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns, "
+                            + "service p50 %d ns, p99 %d ns",
+                    metric.getName(), targetOperationsPerSecond, getOperationsPerSecond(),
+                    operations, unfinished, histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+                    histogram.getMaxValue(), serviceHistogram.getValueAtPercentile(50),
+                    serviceHistogram.getValueAtPercentile(99));
+        }
+    }
+
+    private final long durationNanos;
+    private final List<Stream> streams = new ArrayList<>();
+
+    public OpenLoopDriver(long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("Illegal duration " + durationMillis);
+        }
+        this.durationNanos = durationMillis * 1000000;
+    }
+
+    public long getDurationMillis() {
+        return durationNanos / 1000000;
+    }
+
+    /**
+     * Returns the number of operations scheduled for a stream of the given rate, e.g. to prepare
+     * entities to insert.
+     */
+    public int getScheduledOperations(double operationsPerSecond) {
+        return (int) Math.ceil(durationNanos * operationsPerSecond / 1000000000.0);
+    }
+
+    /**
+     * Adds operations to run at the given rate, executed by workers of the given factory.
+     *
+     * @param metric to report the stream's results with, e.g. {@link
+     * Benchmark.Type#OPEN_LOOP_WRITE}.
+     * @param threadCount threads sharing the schedule; more threads allow operations to overlap
+     * (if the database allows), one thread executes strictly one operation after another.
+     */
+    public OpenLoopDriver addStream(Metric metric, double operationsPerSecond, int threadCount,
+            ConcurrentDriver.WorkerFactory factory) {
+        if (operationsPerSecond <= 0 || threadCount < 1) {
+            throw new IllegalArgumentException("Illegal rate " + operationsPerSecond
+                    + " or thread count " + threadCount);
+        }
+        streams.add(new Stream(metric, operationsPerSecond, threadCount, factory));
+        return this;
+    }
+
+    /**
+     * Runs all streams for the configured duration and waits for all threads to finish.
+     *
+     * @param onStart called after all workers were created, just before the schedule starts, e.g.
+     * to start a clock. May be null.
+     * @return results in the order streams were added.
+     * @throws RuntimeException if a worker failed, with the first failure as cause.
+     */
+    public List<StreamResult> run(final Runnable onStart) {
+        if (streams.isEmpty()) {
+            throw new IllegalStateException("No streams added");
+        }
+        int threadCount = 0;
+        for (Stream stream : streams) {
+            stream.nextOperation.set(0);
+            threadCount += stream.threadCount;
+        }
+        final Stream[] threadStreams = new Stream[threadCount];
+        final int[] streamThreadIndices = new int[threadCount];
+        final PacedWorker[] workers = new PacedWorker[threadCount];
+        int threadIndex = 0;
+        for (Stream stream : streams) {
+            for (int i = 0; i < stream.threadCount; i++) {
+                threadStreams[threadIndex] = stream;
+                streamThreadIndices[threadIndex] = i;
+                threadIndex++;
+            }
+        }
+
+        final long[] startNanos = new long[1];
+        ConcurrentDriver driver = new ConcurrentDriver(threadCount)
+                // threads stop taking operations at the end of the schedule themselves
+                .durationMillis(durationNanos / 1000000);
+        driver.run(new ConcurrentDriver.WorkerFactory() {
+            @Override
+            public ConcurrentDriver.Worker createWorker(int threadIndex) throws Exception {
+                Stream stream = threadStreams[threadIndex];
+                ConcurrentDriver.Worker worker =
+                        stream.factory.createWorker(streamThreadIndices[threadIndex]);
+                // only read by the thread that created it, and after joining all threads
+                workers[threadIndex] = new PacedWorker(stream, worker, startNanos);
+                return workers[threadIndex];
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                if (onStart != null) {
+                    onStart.run();
+                }
+                // visible to workers: written before the start barrier releases them
+                startNanos[0] = System.nanoTime();
+            }
+        });
+        long endNanos = System.nanoTime();
+
+        List<StreamResult> results = new ArrayList<>(streams.size());
+        for (Stream stream : streams) {
+            StreamResult result = new StreamResult(stream, durationNanos);
+            for (int i = 0; i < threadCount; i++) {
+                if (threadStreams[i] == stream) {
+                    result.histogram.add(workers[i].histogram);
+                    result.serviceHistogram.add(workers[i].serviceHistogram);
+                    result.operations += workers[i].operations;
+                }
+            }
+            // operations are taken in schedule order, so the ones not executed are at the end
+            for (int i = result.operations; ; i++) {
+                long intendedStartOffset = stream.getIntendedStartOffset(i);
+                if (intendedStartOffset >= durationNanos) {
+                    break;
+                }
+                result.histogram.record(endNanos - startNanos[0] - intendedStartOffset);
+                result.unfinished++;
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Executes the operations of a stream at their intended start, records corrected and
+     * uncorrected latencies into histograms only this thread writes to.
+     */
+    private class PacedWorker implements ConcurrentDriver.Worker {
+        private final Stream stream;
+        private final ConcurrentDriver.Worker worker;
+        private final long[] startNanos;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LatencyHistogram serviceHistogram = new LatencyHistogram();
+        int operations;
+
+        PacedWorker(Stream stream, ConcurrentDriver.Worker worker, long[] startNanos) {
+            this.stream = stream;
+            this.worker = worker;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void execute(int operationIndex) throws Exception {
+            int scheduledIndex = stream.nextOperation.getAndIncrement();
+            long intendedStartOffset = stream.getIntendedStartOffset(scheduledIndex);
+            long end = startNanos[0] + durationNanos;
+            if (intendedStartOffset >= durationNanos) {
+                // schedule is over, idle until the driver stops this thread
+                parkUntil(end);
+                return;
+            }
+            long intendedStart = startNanos[0] + intendedStartOffset;
+            parkUntil(intendedStart);
+            long operationStart = System.nanoTime();
+            worker.execute(operations);
+            long operationEnd = System.nanoTime();
+            histogram.record(operationEnd - intendedStart);
+            serviceHistogram.record(operationEnd - operationStart);
+            operations++;
+        }
+
+        @Override
+        public void close() throws Exception {
+            worker.close();
+        }
+    }
+
+    private static void parkUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.greenrobot.performance;
+
+import java.util.Locale;
+
+/**
+ * Latencies of reading a table page by page, to show how they grow with the page index: with
+ * {@code LIMIT ? OFFSET ?} the database steps over all rows of the previous pages for each page,
+ * with keyset pagination ({@code WHERE _id > ? ORDER BY _id LIMIT ?}) it seeks to the first row
+ * of the page using the primary key.
+ * <p/>
+ * Besides percentiles over all pages, keeps the mean latency for each tenth of the pages (in page
+ * index order), e.g. the first pages versus the last pages.
+ */
+public class PageLatencies {
+
+    public static final int SEGMENTS = 10;
+
+    private final int pageCount;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final long[] segmentNanos = new long[SEGMENTS];
+    private final int[] segmentPages = new int[SEGMENTS];
+
+    public PageLatencies(int pageCount) {
+        if (pageCount < 1) {
+            throw new IllegalArgumentException("Illegal page count " + pageCount);
+        }
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Returns the number of pages needed for the given rows.
+     */
+    public static int getPageCount(int rows, int pageSize) {
+        return (rows + pageSize - 1) / pageSize;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Records the time it took to query and read the page with the given index.
+     */
+    public void record(int pageIndex, long nanos) {
+        if (pageIndex < 0 || pageIndex >= pageCount) {
+            throw new IllegalArgumentException("Illegal page index " + pageIndex);
+        }
+        histogram.record(nanos);
+        int segment = getSegment(pageIndex);
+        segmentNanos[segment] += nanos;
+        segmentPages[segment]++;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Mean latency of the pages recorded in the given segment, e.g. 0 for the first tenth of the
+     * pages. Returns 0 if no pages were recorded in it.
+     */
+    public long getSegmentMeanNanos(int segment) {
+        return segmentPages[segment] > 0 ? segmentNanos[segment] / segmentPages[segment] : 0;
+    }
+
+    /**
+     * Returns the mean page latency of each segment, e.g. "pages 0-199: 52000 ns, ...".
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            if (segmentPages[segment] == 0) {
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(String.format(Locale.US, "pages %d-%d: %d ns", getFirstPage(segment),
+                    getFirstPage(segment + 1) - 1, getSegmentMeanNanos(segment)));
+        }
+        return text.toString();
+    }
+
+    private int getSegment(int pageIndex) {
+        return (int) ((long) pageIndex * SEGMENTS / pageCount);
+    }
+
+    /** The lowest page index of the segment, see {@link #getSegment(int)}. */
+    private int getFirstPage(int segment) {
+        return (int) (((long) segment * pageCount + SEGMENTS - 1) / SEGMENTS);
+    }
+}
@@ -0,0 +1,157 @@
+package de.greenrobot.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates large datasets (e.g. test strings, entity values) using multiple threads: the index range
+ * is split into chunks, which are created in parallel and joined before returning.
+ * <p/>
+ * Output is identical for any thread count as long as an element only depends on its index, e.g.
+ * by seeding a generator per index using {@link #seed(long, long)} (counter-based) instead of
+ * drawing from a shared sequential generator.
+ */
+public class ParallelGenerator {
+
+    public interface Factory<T> {
+        /**
+         * Creates the element at the given index. Called concurrently, so must be thread-safe.
+         */
+        T create(int index);
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    /** Smaller chunks are not worth the scheduling overhead. */
+    private static final int MIN_CHUNK_SIZE = 256;
+    /** Chunks per thread, so threads finishing early can take over work. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int threadCount;
+    /** Null if single-threaded. */
+    private final ExecutorService executor;
+
+    /**
+     * @param threadCount including the calling thread, 1 creates all elements in the calling
+     * thread.
+     */
+    public ParallelGenerator(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Illegal thread count " + threadCount);
+        }
+        this.threadCount = threadCount;
+        if (threadCount > 1) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                            "generator-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns a well mixed seed for the element with the given index (SplitMix64), so generators
+     * seeded with adjacent indices are not correlated.
+     */
+    public static long seed(long seed, long index) {
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets array[i] to the element created for index offset + i.
+     */
+    public <T> void fill(final T[] array, final int offset, final Factory<? extends T> factory) {
+        int count = array.length;
+        int chunkCount = Math.min(threadCount * CHUNKS_PER_THREAD,
+                (count + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        if (executor == null || chunkCount <= 1) {
+            fillRange(array, offset, factory, 0, count);
+            return;
+        }
+        int chunkSize = (count + chunkCount - 1) / chunkCount;
+        List<Future<?>> futures = new ArrayList<>(chunkCount);
+        // fork all but the first chunk, which the calling thread creates itself
+        for (int start = chunkSize; start < count; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(start + chunkSize, count);
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    fillRange(array, offset, factory, from, to);
+                }
+            }));
+        }
+        fillRange(array, offset, factory, 0, Math.min(chunkSize, count));
+        join(futures);
+    }
+
+    /**
+     * Returns a list of the elements created for the indices 0 to count - 1.
+     */
+    public <T> List<T> createList(int count, Factory<? extends T> factory) {
+        Object[] elements = new Object[count];
+        fill(elements, 0, factory);
+        List<T> list = new ArrayList<>(count);
+        for (Object element : elements) {
+            @SuppressWarnings("unchecked")
+            T typed = (T) element;
+            list.add(typed);
+        }
+        return list;
+    }
+
+    /**
+     * Stops the threads, must not be used afterwards.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static <T> void fillRange(T[] array, int offset, Factory<? extends T> factory,
+            int from, int to) {
+        for (int i = from; i < to; i++) {
+            array[i] = factory.create(offset + i);
+        }
+    }
+
+    private static void join(List<Future<?>> futures) {
+        // the executor guarantees the writes to the array of a completed task are visible
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while generating", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("Generating failed", cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package de.greenrobot.performance;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Append-only result file using JSON lines. A header line defines the columns of the runs
+ * following it:
+ * <pre>
+ * {"header":1,"columns":["device","time","BATCH_CREATE"]}
+ * {"run":1,"values":["Nexus 5","2016-03-01 12:00:00",123]}
+ * </pre>
+ * A small sidecar index (file name + {@value #INDEX_SUFFIX}) stores the committed length and the
+ * last header, so opening the file does not need to read all previous results. Runs are buffered
+ * and written on {@link #commit()} using a single channel write followed by fsync, then the index
+ * is updated. When opened again, complete lines after the committed length (e.g. of a crash before
+ * updating the index) are kept and only a partially written last line is truncated.
+ */
+public class ResultFile {
+
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String KEY_LENGTH = "length";
+    private static final String KEY_HEADER = "header";
+    private static final String KEY_COLUMNS = "columns";
+
+    private final File file;
+    private final File indexFile;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private long committedLength;
+    private int headerId;
+    private String[] columns;
+    private String[] pendingColumns;
+    private int pendingHeaderId;
+
+    public static class Run {
+        public final String[] columns;
+        public final String[] values;
+
+        Run(String[] columns, String[] values) {
+            this.columns = columns;
+            this.values = values;
+        }
+    }
+
+    public ResultFile(File file) {
+        this.file = file;
+        this.indexFile = new File(file.getPath() + INDEX_SUFFIX);
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open result file " + file, e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * The columns of the last committed run, or null if there is none.
+     */
+    public String[] getLastColumns() {
+        return columns;
+    }
+
+    private void open() throws IOException {
+        long length = file.length();
+        boolean indexValid = false;
+        if (indexFile.exists()) {
+            Properties index = new Properties();
+            Reader reader = new InputStreamReader(new FileInputStream(indexFile), UTF8);
+            try {
+                index.load(reader);
+            } finally {
+                reader.close();
+            }
+            String committed = index.getProperty(KEY_LENGTH);
+            if (committed != null && Long.parseLong(committed) <= length) {
+                committedLength = Long.parseLong(committed);
+                headerId = Integer.parseInt(index.getProperty(KEY_HEADER, "0"));
+                String columnsValue = index.getProperty(KEY_COLUMNS);
+                columns = columnsValue != null ? columnsValue.split("\t", -1) : null;
+                indexValid = true;
+            }
+        }
+        if (!indexValid) {
+            // index lost or stale: rebuild it by scanning all lines below
+            committedLength = 0;
+            headerId = 0;
+            columns = null;
+        }
+        boolean indexChanged = !indexValid;
+        if (length > committedLength) {
+            // data written after the index, keep its complete lines
+            long indexedLength = committedLength;
+            scanLines(indexedLength);
+            indexChanged |= committedLength != indexedLength;
+        }
+        if (length > committedLength) {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                randomAccessFile.getChannel().truncate(committedLength);
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+        if (indexChanged) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * Reads the lines starting at the given offset, advancing the committed length, the header ID
+     * and the columns over complete lines; stops at a partially written line.
+     */
+    private void scanLines(long offset) throws IOException {
+        byte[] contents = readFully(file, offset);
+        int lineStart = 0;
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != '\n') {
+                continue;
+            }
+            String line = new String(contents, lineStart, i - lineStart, UTF8);
+            Object[] header;
+            try {
+                header = parseLine(line);
+            } catch (RuntimeException e) {
+                // partially written line
+                break;
+            }
+            if (header[0] != null) {
+                headerId = (Integer) header[0];
+                columns = (String[]) header[1];
+            }
+            lineStart = i + 1;
+            committedLength = offset + lineStart;
+        }
+    }
+
+    /**
+     * Buffers a run; if the columns differ from the last run, a new header is written first.
+     * Call {@link #commit()} to write buffered runs.
+     */
+    public void addRun(String[] runColumns, String[] values) {
+        if (runColumns.length != values.length) {
+            throw new IllegalArgumentException("Got " + values.length + " values for "
+                    + runColumns.length + " columns");
+        }
+        String[] currentColumns = pendingColumns != null ? pendingColumns : columns;
+        int currentHeaderId = pendingColumns != null ? pendingHeaderId : headerId;
+        if (!Arrays.equals(runColumns, currentColumns)) {
+            currentHeaderId++;
+            buffer.append("{\"header\":").append(currentHeaderId).append(",\"columns\":");
+            appendArray(buffer, runColumns, false);
+            buffer.append("}\n");
+            currentColumns = runColumns.clone();
+        }
+        pendingColumns = currentColumns;
+        pendingHeaderId = currentHeaderId;
+        buffer.append("{\"run\":").append(currentHeaderId).append(",\"values\":");
+        appendArray(buffer, values, true);
+        buffer.append("}\n");
+    }
+
+    /**
+     * Writes all buffered runs, forces them to the storage device and updates the index.
+     */
+    public void commit() throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toString().getBytes(UTF8));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // overwrites anything left by a failed commit
+            channel.position(committedLength);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.truncate(channel.position());
+            channel.force(false);
+            committedLength = channel.position();
+        } finally {
+            randomAccessFile.close();
+        }
+        buffer.setLength(0);
+        columns = pendingColumns;
+        headerId = pendingHeaderId;
+        pendingColumns = null;
+        writeIndex();
+    }
+
+    private void writeIndex() throws IOException {
+        Properties index = new Properties();
+        index.setProperty(KEY_LENGTH, Long.toString(committedLength));
+        index.setProperty(KEY_HEADER, Integer.toString(headerId));
+        if (columns != null) {
+            String joined = joinTsv(columns);
+            index.setProperty(KEY_COLUMNS, joined.substring(0, joined.length() - 1));
+        }
+        // write a temporary file and rename it, so the index is either old or new
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            Writer writer = new OutputStreamWriter(out, UTF8);
+            index.store(writer, null);
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(indexFile)) {
+            throw new IOException("Could not rename " + tempFile + " to " + indexFile);
+        }
+    }
+
+    /**
+     * Reads all committed runs.
+     */
+    public List<Run> readRuns() throws IOException {
+        byte[] contents = readFully(file);
+        return parseRuns(contents, (int) Math.min(contents.length, committedLength), false);
+    }
+
+    /**
+     * Reads the runs of a result file without opening it for writing, e.g. of a file pulled from
+     * a device; stops at a partially written line.
+     */
+    public static List<Run> readRuns(File file) throws IOException {
+        byte[] contents = readFully(file);
+        return parseRuns(contents, contents.length, true);
+    }
+
+    private static List<Run> parseRuns(byte[] contents, int length, boolean stopAtMalformed) {
+        List<Run> runs = new ArrayList<>();
+        String[] runColumns = null;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (contents[i] != '\n') {
+                continue;
+            }
+            String line = new String(contents, lineStart, i - lineStart, UTF8);
+            Object[] parsed;
+            try {
+                parsed = parseLine(line);
+            } catch (RuntimeException e) {
+                if (stopAtMalformed) {
+                    break;
+                }
+                throw e;
+            }
+            if (parsed[0] != null) {
+                runColumns = (String[]) parsed[1];
+            } else if (runColumns != null) {
+                runs.add(new Run(runColumns, (String[]) parsed[1]));
+            }
+            lineStart = i + 1;
+        }
+        return runs;
+    }
+
+    /**
+     * Writes all committed runs as TSV like previous versions of {@link Benchmark} did: a header
+     * line whenever the columns change, followed by tab separated values. Writes a temporary file
+     * and renames it, so the TSV file is either old or new.
+     */
+    public void exportTsv(File tsvFile) throws IOException {
+        File tempFile = new File(tsvFile.getPath() + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), UTF8);
+        try {
+            String[] lastColumns = null;
+            for (Run run : readRuns()) {
+                if (run.columns != lastColumns) {
+                    writer.write(joinTsv(run.columns));
+                    lastColumns = run.columns;
+                }
+                writer.write(joinTsv(run.values));
+            }
+        } finally {
+            writer.close();
+        }
+        if (!tempFile.renameTo(tsvFile)) {
+            throw new IOException("Could not rename " + tempFile + " to " + tsvFile);
+        }
+    }
+
+    /**
+     * Buffers the runs of a TSV file written by versions of {@link Benchmark} before the result
+     * file, skipping lines not matching the columns of their header (e.g. partially written).
+     * Call {@link #commit()} to write them.
+     */
+    public void importTsv(File tsvFile) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(tsvFile), UTF8));
+        try {
+            String[] tsvColumns = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split("\t", -1);
+                if (MeasurementSet.isHeader(values)) {
+                    tsvColumns = values;
+                } else if (tsvColumns != null && values.length == tsvColumns.length) {
+                    addRun(tsvColumns, values);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    static String joinTsv(String[] values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            line.append(values[i]);
+        }
+        return line.append('\n').toString();
+    }
+
+    private static void appendArray(StringBuilder builder, String[] values, boolean allowNumbers) {
+        builder.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            String value = values[i];
+            if (allowNumbers && isLong(value)) {
+                builder.append(value);
+            } else {
+                appendString(builder, value);
+            }
+        }
+        builder.append(']');
+    }
+
+    private static boolean isLong(String value) {
+        int length = value.length();
+        if (length == 0 || length > 19) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' && length > 1 ? 1 : 0;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        // no leading zeros, so values read back compare equal as strings
+        return value.charAt(start) != '0' || length == start + 1;
+    }
+
+    private static void appendString(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * Parses a line written by this class.
+     *
+     * @return the header ID (null for runs) and the columns or values.
+     * @throws IllegalArgumentException if the line is malformed.
+     */
+    static Object[] parseLine(String line) {
+        String headerPrefix = "{\"header\":";
+        String runPrefix = "{\"run\":";
+        boolean header = line.startsWith(headerPrefix);
+        if (!header && !line.startsWith(runPrefix)) {
+            throw new IllegalArgumentException("Unexpected line: " + line);
+        }
+        int idStart = header ? headerPrefix.length() : runPrefix.length();
+        int idEnd = line.indexOf(',', idStart);
+        String arrayKey = header ? ",\"columns\":[" : ",\"values\":[";
+        if (idEnd < 0 || !line.startsWith(arrayKey, idEnd) || !line.endsWith("]}")) {
+            throw new IllegalArgumentException("Unexpected line: " + line);
+        }
+        Integer id;
+        try {
+            id = Integer.valueOf(line.substring(idStart, idEnd));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unexpected line: " + line);
+        }
+        String[] values = parseArray(line, idEnd + arrayKey.length(), line.length() - 2);
+        return new Object[] { header ? id : null, values };
+    }
+
+    private static String[] parseArray(String line, int start, int end) {
+        List<String> values = new ArrayList<>();
+        int i = start;
+        while (i < end) {
+            if (line.charAt(i) == '"') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= end) {
+                        throw new IllegalArgumentException("Unterminated string: " + line);
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        break;
+                    } else if (c == '\\') {
+                        char escaped = line.charAt(i++);
+                        if (escaped == 'u') {
+                            value.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+                            i += 4;
+                        } else {
+                            value.append(escaped);
+                        }
+                    } else {
+                        value.append(c);
+                    }
+                }
+                values.add(value.toString());
+            } else {
+                int valueEnd = line.indexOf(',', i);
+                if (valueEnd < 0 || valueEnd > end) {
+                    valueEnd = end;
+                }
+                values.add(line.substring(i, valueEnd));
+                i = valueEnd;
+            }
+            if (i < end) {
+                if (line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Expected ',': " + line);
+                }
+                i++;
+            }
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        return readFully(file, 0);
+    }
+
+    /** Reads the file from the given offset to its end. */
+    private static byte[] readFully(File file, long offset) throws IOException {
+        if (!file.exists() || offset >= file.length()) {
+            return new byte[0];
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            long skipped = 0;
+            while (skipped < offset) {
+                long skip = in.skip(offset - skipped);
+                if (skip <= 0) {
+                    throw new IOException("Could not skip to " + offset + " in " + file);
+                }
+                skipped += skip;
+            }
+            byte[] bytes = new byte[(int) (file.length() - offset)];
+            int position = 0;
+            while (position < bytes.length) {
+                int read = in.read(bytes, position, bytes.length - position);
+                if (read < 0) {
+                    return Arrays.copyOf(bytes, position);
+                }
+                position += read;
+            }
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Exports a result file to TSV on a JVM, e.g. after pulling it from a device.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ResultFile <results.jsonl> <export.tsv>");
+            System.exit(1);
+        }
+        new ResultFile(new File(args[0])).exportTsv(new File(args[1]));
+    }
+}
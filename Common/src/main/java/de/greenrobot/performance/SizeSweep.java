@@ -0,0 +1,166 @@
+package de.greenrobot.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects results of the same scenario run with different dataset sizes (or another size like
+ * parameter, e.g. string lengths), then fits how each metric scales with the size, see {@link
+ * Statistics#fitPowerLaw(double[], double[])}.
+ */
+public class SizeSweep {
+
+    public static class Fit {
+        public final Metric metric;
+        public final int[] sizes;
+        public final double[] medians;
+        /** Of median ~ size^exponent, NaN if it could not be fitted. */
+        public final double exponent;
+        public final double rSquared;
+
+        Fit(Metric metric, int[] sizes, double[] medians) {
+            this.metric = metric;
+            this.sizes = sizes;
+            this.medians = medians;
+            double[] x = new double[sizes.length];
+            for (int i = 0; i < sizes.length; i++) {
+                x[i] = sizes[i];
+            }
+            double[] fit = Statistics.fitPowerLaw(x, medians);
+            this.exponent = fit != null ? fit[0] : Double.NaN;
+            this.rSquared = fit != null ? fit[2] : Double.NaN;
+        }
+    }
+
+    private final Map<Integer, MeasurementSet> results = new TreeMap<>();
+    private final String parameter;
+
+    public SizeSweep() {
+        this("n");
+    }
+
+    /**
+     * @param parameter short name of the swept parameter, e.g. "len" for string lengths.
+     */
+    public SizeSweep(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Returns the sizes from, from * factor, ... up to to (inclusive, rounded).
+     */
+    public static int[] geometricSizes(int from, int to, double factor) {
+        if (from <= 0 || to < from || factor <= 1) {
+            throw new IllegalArgumentException("Illegal sweep from " + from + " to " + to
+                    + " by factor " + factor);
+        }
+        List<Integer> sizes = new ArrayList<>();
+        // tolerate rounding errors, e.g. 1000 * 10^3 slightly above 10^6
+        for (double size = from; size <= to * 1.0001; size *= factor) {
+            int rounded = (int) Math.round(size);
+            if (sizes.isEmpty() || sizes.get(sizes.size() - 1) != rounded) {
+                sizes.add(rounded);
+            }
+        }
+        int[] array = new int[sizes.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = sizes.get(i);
+        }
+        return array;
+    }
+
+    public void add(int size, MeasurementSet measurements) {
+        MeasurementSet sizeResults = results.get(size);
+        if (sizeResults == null) {
+            sizeResults = new MeasurementSet(measurements.getName());
+            results.put(size, sizeResults);
+        }
+        sizeResults.addAll(measurements);
+    }
+
+    /**
+     * Fits all registered metrics measured with at least two sizes, in display order.
+     */
+    public List<Fit> fit() {
+        List<Fit> fits = new ArrayList<>();
+        for (Metric metric : MetricRegistry.getMetrics()) {
+            List<Integer> sizes = new ArrayList<>();
+            List<Double> medians = new ArrayList<>();
+            for (Map.Entry<Integer, MeasurementSet> entry : results.entrySet()) {
+                List<Long> values = entry.getValue().get(metric.getName());
+                if (!values.isEmpty()) {
+                    sizes.add(entry.getKey());
+                    medians.add(Statistics.median(Statistics.toArray(values)));
+                }
+            }
+            if (sizes.size() < 2) {
+                continue;
+            }
+            int[] sizesArray = new int[sizes.size()];
+            double[] mediansArray = new double[sizes.size()];
+            for (int i = 0; i < sizesArray.length; i++) {
+                sizesArray[i] = sizes.get(i);
+                mediansArray[i] = medians.get(i);
+            }
+            fits.add(new Fit(metric, sizesArray, mediansArray));
+        }
+        return fits;
+    }
+
+    /**
+     * Returns TSV lines (including a header line) with the medians per size and the fitted
+     * exponent of each metric.
+     *
+     * @param fixedColumns e.g. the device, pairs of column name and value.
+     */
+    public String toTsv(List<Fit> fits, String[][] fixedColumns) {
+        StringBuilder tsv = new StringBuilder();
+        for (String[] fixedColumn : fixedColumns) {
+            tsv.append(fixedColumn[0]).append('\t');
+        }
+        tsv.append("metric\tunit\texponent\tr2");
+        for (Integer size : results.keySet()) {
+            tsv.append('\t').append(parameter).append(size);
+        }
+        tsv.append('\n');
+        for (Fit fit : fits) {
+            for (String[] fixedColumn : fixedColumns) {
+                tsv.append(fixedColumn[1]).append('\t');
+            }
+            tsv.append(fit.metric.getName()).append('\t').append(fit.metric.getUnit().getSymbol())
+                    .append('\t').append(String.format(Locale.US, "%.3f\t%.3f", fit.exponent,
+                    fit.rSquared));
+            for (Integer size : results.keySet()) {
+                tsv.append('\t');
+                for (int i = 0; i < fit.sizes.length; i++) {
+                    if (fit.sizes[i] == size) {
+                        tsv.append(String.format(Locale.US, "%.1f", fit.medians[i]));
+                    }
+                }
+            }
+            tsv.append('\n');
+        }
+        return tsv.toString();
+    }
+
+    public String format(List<Fit> fits) {
+        StringBuilder text = new StringBuilder("----Scaling").append('\n');
+        for (Fit fit : fits) {
+            text.append(String.format(Locale.US, "%s: exponent %.2f (R^2 %.3f), medians",
+                    fit.metric, fit.exponent, fit.rSquared));
+            for (int i = 0; i < fit.sizes.length; i++) {
+                text.append(String.format(Locale.US, " %s=%d: %.1f", parameter, fit.sizes[i],
+                        fit.medians[i]));
+            }
+            text.append('\n');
+        }
+        return text.append("----").toString();
+    }
+}
@@ -0,0 +1,130 @@
+package de.greenrobot.performance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SQLite journal mode and synchronous setting to open a database with, e.g. to measure how the
+ * fsync policy affects one-by-one commits. A null mode keeps the default of the platform (or
+ * library). Named like "wal-normal", "delete-default".
+ */
+public class SqliteConfiguration {
+
+    public static final String[] JOURNAL_MODES = {
+            "DELETE", "TRUNCATE", "PERSIST", "WAL", "MEMORY", "OFF"
+    };
+    public static final String[] SYNCHRONOUS_MODES = { "OFF", "NORMAL", "FULL" };
+    private static final String DEFAULT = "default";
+
+    private final String journalMode;
+    private final String synchronous;
+
+    /**
+     * @param journalMode one of {@link #JOURNAL_MODES}, or null for the default.
+     * @param synchronous one of {@link #SYNCHRONOUS_MODES}, or null for the default.
+     */
+    public SqliteConfiguration(String journalMode, String synchronous) {
+        this.journalMode = checkMode(journalMode, JOURNAL_MODES);
+        this.synchronous = checkMode(synchronous, SYNCHRONOUS_MODES);
+    }
+
+    /**
+     * Returns the names of all combinations of the given modes (comma separated, or "all"),
+     * journal modes varying slowest. Returns null if neither is given.
+     */
+    public static List<String> getMatrix(String journalModes, String synchronousModes) {
+        if (journalModes == null && synchronousModes == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        for (String journalMode : parseModes(journalModes, JOURNAL_MODES)) {
+            for (String synchronous : parseModes(synchronousModes, SYNCHRONOUS_MODES)) {
+                names.add(new SqliteConfiguration(journalMode, synchronous).getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Parses a name returned by {@link #getName()}, e.g. "wal-normal".
+     */
+    public static SqliteConfiguration parse(String name) {
+        String[] modes = name.split("-");
+        if (modes.length != 2) {
+            throw new IllegalArgumentException("Illegal SQLite configuration " + name);
+        }
+        return new SqliteConfiguration(parseMode(modes[0]), parseMode(modes[1]));
+    }
+
+    /** Upper case, or null for the default. */
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    /** Upper case, or null for the default. */
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public boolean isWal() {
+        return "WAL".equals(journalMode);
+    }
+
+    /** Returns the statement setting the journal mode, returns a row with the new mode. */
+    public String getJournalModePragma() {
+        return "PRAGMA journal_mode=" + journalMode;
+    }
+
+    public String getSynchronousPragma() {
+        return "PRAGMA synchronous=" + synchronous;
+    }
+
+    /**
+     * Returns the value of "PRAGMA synchronous" (a number) for the synchronous mode.
+     */
+    public int getSynchronousValue() {
+        return Arrays.asList(SYNCHRONOUS_MODES).indexOf(synchronous);
+    }
+
+    public String getName() {
+        return toName(journalMode) + "-" + toName(synchronous);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    private static List<String> parseModes(String modes, String[] allModes) {
+        if (modes == null) {
+            return Arrays.asList((String) null);
+        }
+        if ("all".equalsIgnoreCase(modes.trim())) {
+            return Arrays.asList(allModes);
+        }
+        List<String> parsed = new ArrayList<>();
+        for (String mode : modes.split(",")) {
+            parsed.add(parseMode(mode));
+        }
+        return parsed;
+    }
+
+    private static String parseMode(String mode) {
+        mode = mode.trim();
+        return DEFAULT.equalsIgnoreCase(mode) ? null : mode.toUpperCase(Locale.US);
+    }
+
+    private static String checkMode(String mode, String[] allModes) {
+        if (mode != null && !Arrays.asList(allModes).contains(mode)) {
+            throw new IllegalArgumentException("Illegal mode " + mode + ", expected one of "
+                    + Arrays.toString(allModes));
+        }
+        return mode;
+    }
+
+    private static String toName(String mode) {
+        return mode != null ? mode.toLowerCase(Locale.US) : DEFAULT;
+    }
+}
@@ -0,0 +1,261 @@
+package de.greenrobot.performance;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Statistics helpers to judge benchmark results: medians, bootstrap confidence intervals and the
+ * Mann-Whitney U test. Plain Java so it can be used on a JVM host as well.
+ */
+public class Statistics {
+
+    public static final int DEFAULT_RESAMPLES = 10000;
+
+    private Statistics() {
+    }
+
+    public static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    public static double median(long[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values");
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return medianOfSorted(sorted);
+    }
+
+    public static double mean(long[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values");
+        }
+        double sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /**
+     * Sample standard deviation, 0 for less than 2 values.
+     */
+    public static double standardDeviation(long[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double mean = mean(values);
+        double sumOfSquares = 0;
+        for (long value : values) {
+            double deviation = value - mean;
+            sumOfSquares += deviation * deviation;
+        }
+        return Math.sqrt(sumOfSquares / (values.length - 1));
+    }
+
+    private static double medianOfSorted(long[] sorted) {
+        int middle = sorted.length / 2;
+        if (sorted.length % 2 == 1) {
+            return sorted[middle];
+        } else {
+            return (sorted[middle - 1] + sorted[middle]) / 2.0;
+        }
+    }
+
+    /**
+     * Percentile bootstrap confidence interval of the median.
+     *
+     * @param confidence e.g. 0.95 for a 95 % interval.
+     * @return lower and upper bound.
+     */
+    public static double[] bootstrapMedianInterval(long[] values, double confidence, int resamples,
+            Random random) {
+        double[] medians = new double[resamples];
+        long[] sample = new long[values.length];
+        for (int i = 0; i < resamples; i++) {
+            medians[i] = resampledMedian(values, sample, random);
+        }
+        return percentileInterval(medians, confidence);
+    }
+
+    /**
+     * Percentile bootstrap confidence interval of the ratio of medians {@code candidate /
+     * baseline}, e.g. an interval of [0.9, 0.95] means the candidate takes 5 to 10 % less time.
+     *
+     * @return lower and upper bound.
+     */
+    public static double[] bootstrapMedianRatioInterval(long[] baseline, long[] candidate,
+            double confidence, int resamples, Random random) {
+        double[] ratios = new double[resamples];
+        long[] baselineSample = new long[baseline.length];
+        long[] candidateSample = new long[candidate.length];
+        for (int i = 0; i < resamples; i++) {
+            double baselineMedian = resampledMedian(baseline, baselineSample, random);
+            double candidateMedian = resampledMedian(candidate, candidateSample, random);
+            ratios[i] = baselineMedian == 0 ? (candidateMedian == 0 ? 1 : Double.POSITIVE_INFINITY)
+                    : candidateMedian / baselineMedian;
+        }
+        return percentileInterval(ratios, confidence);
+    }
+
+    private static double resampledMedian(long[] values, long[] sample, Random random) {
+        for (int j = 0; j < sample.length; j++) {
+            sample[j] = values[random.nextInt(values.length)];
+        }
+        Arrays.sort(sample);
+        return medianOfSorted(sample);
+    }
+
+    private static double[] percentileInterval(double[] estimates, double confidence) {
+        Arrays.sort(estimates);
+        double alpha = (1 - confidence) / 2;
+        int lower = (int) Math.floor(alpha * (estimates.length - 1));
+        int upper = (int) Math.ceil((1 - alpha) * (estimates.length - 1));
+        return new double[] { estimates[lower], estimates[upper] };
+    }
+
+    /**
+     * Fits {@code y = coefficient * x^exponent} using least squares on log-log scale, e.g. to see
+     * how times scale with the number of entities: an exponent of 1 is linear, above 1 worse.
+     * Pairs with non-positive values are ignored as their logarithm is undefined.
+     *
+     * @return exponent, coefficient and coefficient of determination (R^2) of the log-log fit, or
+     * null if there are less than two usable points.
+     */
+    public static double[] fitPowerLaw(double[] x, double[] y) {
+        int n = 0;
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumXY = 0;
+        double sumYY = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (x[i] <= 0 || y[i] <= 0) {
+                continue;
+            }
+            double logX = Math.log(x[i]);
+            double logY = Math.log(y[i]);
+            n++;
+            sumX += logX;
+            sumY += logY;
+            sumXX += logX * logX;
+            sumXY += logX * logY;
+            sumYY += logY * logY;
+        }
+        double varianceX = n * sumXX - sumX * sumX;
+        if (n < 2 || varianceX == 0) {
+            return null;
+        }
+        double exponent = (n * sumXY - sumX * sumY) / varianceX;
+        double intercept = (sumY - exponent * sumX) / n;
+        double varianceY = n * sumYY - sumY * sumY;
+        double rSquared = varianceY == 0 ? 1
+                : Math.pow(n * sumXY - sumX * sumY, 2) / (varianceX * varianceY);
+        return new double[] { exponent, Math.exp(intercept), rSquared };
+    }
+
+    /**
+     * Result of {@link #mannWhitneyU(long[], long[])}.
+     */
+    public static class MannWhitneyResult {
+        /** U statistic of the first sample. */
+        public final double u;
+        /** Two-sided p-value using the normal approximation with tie correction. */
+        public final double pValue;
+        /**
+         * Rank-biserial correlation in [-1, 1]: positive if values of the second sample tend to be
+         * smaller than those of the first one, 0 if there is no tendency.
+         */
+        public final double effectSize;
+
+        MannWhitneyResult(double u, double pValue, double effectSize) {
+            this.u = u;
+            this.pValue = pValue;
+            this.effectSize = effectSize;
+        }
+    }
+
+    /**
+     * Mann-Whitney U test (Wilcoxon rank-sum test) of two independent samples. Does not assume
+     * normally distributed values, which run times usually are not.
+     */
+    public static MannWhitneyResult mannWhitneyU(long[] first, long[] second) {
+        int n1 = first.length;
+        int n2 = second.length;
+        if (n1 == 0 || n2 == 0) {
+            throw new IllegalArgumentException("Both samples need values");
+        }
+        int n = n1 + n2;
+        long[] all = new long[n];
+        System.arraycopy(first, 0, all, 0, n1);
+        System.arraycopy(second, 0, all, n1, n2);
+        long[] sorted = all.clone();
+        Arrays.sort(sorted);
+
+        // sum of average ranks of the first sample, and tie correction term
+        double rankSumFirst = 0;
+        for (int i = 0; i < n1; i++) {
+            rankSumFirst += averageRank(sorted, first[i]);
+        }
+        double tieTerm = 0;
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && sorted[j] == sorted[i]) {
+                j++;
+            }
+            int ties = j - i;
+            tieTerm += (double) ties * ties * ties - ties;
+            i = j;
+        }
+
+        double u1 = rankSumFirst - n1 * (n1 + 1) / 2.0;
+        double meanU = n1 * (double) n2 / 2;
+        double varianceU = n1 * (double) n2 / 12 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        double pValue;
+        if (varianceU <= 0) {
+            // all values equal
+            pValue = 1;
+        } else {
+            double continuity = u1 > meanU ? -0.5 : (u1 < meanU ? 0.5 : 0);
+            double z = (u1 - meanU + continuity) / Math.sqrt(varianceU);
+            pValue = Math.min(1, 2 * (1 - normalCdf(Math.abs(z))));
+        }
+        double effectSize = 2 * u1 / (n1 * (double) n2) - 1;
+        return new MannWhitneyResult(u1, pValue, effectSize);
+    }
+
+    private static double averageRank(long[] sorted, long value) {
+        int first = Arrays.binarySearch(sorted, value);
+        int last = first;
+        while (first > 0 && sorted[first - 1] == value) {
+            first--;
+        }
+        while (last < sorted.length - 1 && sorted[last + 1] == value) {
+            last++;
+        }
+        // ranks are 1-based
+        return (first + last) / 2.0 + 1;
+    }
+
+    static double normalCdf(double z) {
+        return 0.5 * erfc(-z / Math.sqrt(2));
+    }
+
+    /**
+     * Complementary error function with a fractional error below 1.2e-7 (Numerical Recipes).
+     */
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double result = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196
+                + t * (0.09678418 + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398
+                + t * (1.48851587 + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? result : 2 - result;
+    }
+}
@@ -0,0 +1,87 @@
+package de.greenrobot.performance;
+
+import java.util.Arrays;
+
+/**
+ * Decides when warm-up (e.g. JIT compilation) is over: once the times of the last runs vary by
+ * at most a given coefficient of variation (standard deviation / mean) for every measured metric.
+ */
+class SteadyStateDetector {
+
+    /** Deviations within the resolution of the clock always count as steady. */
+    private static final double CLOCK_RESOLUTION_MILLIS = 1;
+
+    private final int window;
+    private final double maxCoefficientOfVariation;
+    /** Indexed by {@link Metric#getId()}, null for metrics not measured. */
+    private LongList[] history = new LongList[MetricRegistry.size()];
+
+    /**
+     * @param window number of most recent runs that must be steady.
+     * @param maxCoefficientOfVariation e.g. 0.05 for a standard deviation of at most 5 % of the
+     * mean.
+     */
+    SteadyStateDetector(int window, double maxCoefficientOfVariation) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must be at least 2 runs: " + window);
+        }
+        this.window = window;
+        this.maxCoefficientOfVariation = maxCoefficientOfVariation;
+    }
+
+    /**
+     * Adds the total of a metric measured in a run, e.g. the sum if a phase was measured multiple
+     * times in one run. Call once per measured metric and run.
+     */
+    void add(int metricId, long total) {
+        if (metricId >= history.length) {
+            history = Arrays.copyOf(history, Math.max(metricId + 1, MetricRegistry.size()));
+        }
+        LongList metricHistory = history[metricId];
+        if (metricHistory == null) {
+            metricHistory = new LongList();
+            history[metricId] = metricHistory;
+        }
+        metricHistory.add(total);
+    }
+
+    boolean isSteady() {
+        boolean measured = false;
+        for (LongList metricHistory : history) {
+            if (metricHistory == null) {
+                continue;
+            }
+            measured = true;
+            int size = metricHistory.size();
+            if (size < window) {
+                return false;
+            }
+            double mean = getMean(metricHistory, size - window, size);
+            double standardDeviation = getStandardDeviation(metricHistory, size - window, size,
+                    mean);
+            if (standardDeviation > CLOCK_RESOLUTION_MILLIS
+                    && standardDeviation > maxCoefficientOfVariation * mean) {
+                return false;
+            }
+        }
+        return measured;
+    }
+
+    private static double getMean(LongList values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values.get(i);
+        }
+        return sum / (to - from);
+    }
+
+    private static double getStandardDeviation(LongList values, int from, int to, double mean) {
+        double sumOfSquares = 0;
+        for (int i = from; i < to; i++) {
+            double deviation = values.get(i) - mean;
+            sumOfSquares += deviation * deviation;
+        }
+        // sample standard deviation
+        return Math.sqrt(sumOfSquares / (to - from - 1));
+    }
+}
@@ -1,43 +1,115 @@
 package de.greenrobot.performance;
 
 import java.util.Random;
-import org.apache.commons.lang3.RandomStringUtils;
 
 /**
- * Helper class to generate a pre-determined set of random strings.
+ * Helper class to generate a pre-determined set of random strings. Characters are given by a
+ * {@link StringProfile}, lengths (in code points) are uniformly distributed within a range.
  */
 public class StringGenerator {
 
     // Fixed seed so we generate the same set of strings every time.
     public static final long SEED = -2662502316022774L;
-    private static final int MIN_LENGTH = 5;
-    private static final int MAX_LENGTH = 500;
-    // limit to a fixed set of chars
-    private static final char[] CHARS = new char[] { '0', '1', '2', '3', '4', '5', '6', '7', '8',
-            '9', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p',
-            'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z' };
+    /** ASCII strings of 5 to 500 characters, used unless a test selects another profile. */
+    public static final StringGenerator DEFAULT = new StringGenerator(StringProfile.ASCII);
+
+    private final StringProfile profile;
+    private final int minLength;
+    private final int maxLength;
+
+    /**
+     * Uses the default lengths of the given profile.
+     */
+    public StringGenerator(StringProfile profile) {
+        this(profile, profile.getDefaultMinLength(), profile.getDefaultMaxLength());
+    }
+
+    /**
+     * @param minLength at least 1; note that few distinct strings exist of very short lengths.
+     * @param maxLength inclusive.
+     */
+    public StringGenerator(StringProfile profile, int minLength, int maxLength) {
+        if (minLength < 1 || maxLength < minLength) {
+            throw new IllegalArgumentException("Illegal string lengths " + minLength + " to "
+                    + maxLength);
+        }
+        this.profile = profile;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
 
     /**
      * Creates the same random sequence of strings.
      */
     public static String[] createFixedRandomStrings(int count) {
-        String[] strings = new String[count];
+        return DEFAULT.createStrings(count);
+    }
+
+    /**
+     * Creates the same strings as {@link #createFixedRandomStrings(int)} using the given
+     * generator's threads.
+     */
+    public static String[] createFixedRandomStrings(int count, ParallelGenerator generator) {
+        return DEFAULT.createStrings(count, generator);
+    }
 
-        Random lengthRandom = new Random();
-        lengthRandom.setSeed(SEED);
+    /**
+     * Returns the string at the given index of {@link #createFixedRandomStrings(int)}.
+     */
+    public static String createFixedRandomString(int index) {
+        return DEFAULT.create(index);
+    }
 
-        Random stringRandom = new Random();
-        stringRandom.setSeed(SEED);
+    public StringProfile getProfile() {
+        return profile;
+    }
 
+    public String[] createStrings(int count) {
+        String[] strings = new String[count];
         for (int i = 0; i < count; i++) {
-            int nextLength = lengthRandom.nextInt(MAX_LENGTH - MIN_LENGTH - 1);
-            nextLength += MIN_LENGTH;
-            strings[i] = RandomStringUtils.random(nextLength, 0, CHARS.length, true, true, CHARS,
-                    stringRandom);
+            strings[i] = create(i);
         }
         return strings;
     }
 
+    public String[] createStrings(int count, ParallelGenerator generator) {
+        String[] strings = new String[count];
+        generator.fill(strings, 0, new ParallelGenerator.Factory<String>() {
+            @Override
+            public String create(int index) {
+                return StringGenerator.this.create(index);
+            }
+        });
+        return strings;
+    }
+
+    /**
+     * Returns the string at the given index. Only depends on the index (a generator seeded per
+     * index), so strings can be created in any order and in parallel.
+     */
+    public String create(int index) {
+        Random random = new Random(ParallelGenerator.seed(SEED, index));
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        profile.append(builder, random, length);
+        return builder.toString();
+    }
+
+    /**
+     * Describes the profile and lengths, e.g. "ascii" (default lengths), "cjk-len100" or
+     * "mixed-len5-50".
+     */
+    @Override
+    public String toString() {
+        String name = profile.getName();
+        if (minLength == profile.getDefaultMinLength()
+                && maxLength == profile.getDefaultMaxLength()) {
+            return name;
+        }
+        return minLength == maxLength ? name + "-len" + minLength
+                : name + "-len" + minLength + "-" + maxLength;
+    }
+
     /**
      * Creates the same random sequence of indexes. To be used to select strings by {@link
      * #createFixedRandomStrings(int)}.
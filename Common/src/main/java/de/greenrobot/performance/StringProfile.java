@@ -0,0 +1,163 @@
+package de.greenrobot.performance;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Characters of generated strings. Besides ASCII, profiles exercise UTF-8/UTF-16 transcoding:
+ * 3 byte UTF-8 characters (CJK), supplementary characters encoded as surrogate pairs (emoji),
+ * script changes within a string (mixed) and long strings (text). Lengths are in code points.
+ */
+public enum StringProfile {
+    /** Digits and lower case letters, 1 byte in UTF-8. */
+    ASCII(5, 500) {
+        @Override
+        void append(StringBuilder builder, Random random, int length) {
+            appendRandom(builder, random, length, Script.ALPHANUMERIC);
+        }
+    },
+    /** CJK unified ideographs, 3 bytes in UTF-8. */
+    CJK(5, 500) {
+        @Override
+        void append(StringBuilder builder, Random random, int length) {
+            appendRandom(builder, random, length, Script.CJK);
+        }
+    },
+    /** ASCII text with about every second code point an emoji (surrogate pair, 4 bytes UTF-8). */
+    EMOJI(5, 500) {
+        @Override
+        void append(StringBuilder builder, Random random, int length) {
+            for (int i = 0; i < length; i++) {
+                Script script = random.nextBoolean() ? Script.EMOJI : Script.ALPHANUMERIC;
+                builder.appendCodePoint(script.next(random));
+            }
+        }
+    },
+    /**
+     * Words of changing scripts (Latin, accented Latin, Greek, Cyrillic, Hebrew, Arabic,
+     * Devanagari, Hangul, CJK, emoji) separated by spaces, like multilingual user content.
+     */
+    MIXED(5, 500) {
+        @Override
+        void append(StringBuilder builder, Random random, int length) {
+            appendWords(builder, random, length, MIXED_SCRIPTS);
+        }
+    },
+    /** Long ASCII text of words, spaces and punctuation, e.g. notes or message bodies. */
+    TEXT(1000, 20000) {
+        @Override
+        void append(StringBuilder builder, Random random, int length) {
+            appendWords(builder, random, length, TEXT_SCRIPTS);
+        }
+    };
+
+    /** Code point ranges of scripts, weighted by range size when picking a code point. */
+    enum Script {
+        /** Same characters as the original fixed random strings. */
+        ALPHANUMERIC(0x30, 0x39, 0x61, 0x7A),
+        LATIN(0x61, 0x7A),
+        LATIN_ACCENTED(0xE0, 0xFF),
+        GREEK(0x3B1, 0x3C9),
+        CYRILLIC(0x430, 0x44F),
+        HEBREW(0x5D0, 0x5EA),
+        ARABIC(0x627, 0x64A),
+        DEVANAGARI(0x905, 0x939),
+        HANGUL(0xAC00, 0xD7A3),
+        CJK(0x4E00, 0x9FFF),
+        EMOJI(0x1F300, 0x1F64F, 0x1F680, 0x1F6FF);
+
+        /** Pairs of first and last code point (inclusive). */
+        private final int[] ranges;
+        private final int size;
+
+        Script(int... ranges) {
+            this.ranges = ranges;
+            int size = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                size += ranges[i + 1] - ranges[i] + 1;
+            }
+            this.size = size;
+        }
+
+        int next(Random random) {
+            int offset = random.nextInt(size);
+            for (int i = 0; i < ranges.length; i += 2) {
+                int rangeSize = ranges[i + 1] - ranges[i] + 1;
+                if (offset < rangeSize) {
+                    return ranges[i] + offset;
+                }
+                offset -= rangeSize;
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    private static final Script[] MIXED_SCRIPTS = { Script.LATIN, Script.LATIN_ACCENTED,
+            Script.GREEK, Script.CYRILLIC, Script.HEBREW, Script.ARABIC, Script.DEVANAGARI,
+            Script.HANGUL, Script.CJK, Script.EMOJI };
+    private static final Script[] TEXT_SCRIPTS = { Script.LATIN };
+    private static final char[] PUNCTUATION = { ',', '.', ';', '!', '?' };
+    private static final int MAX_WORD_LENGTH = 10;
+
+    private final int defaultMinLength;
+    private final int defaultMaxLength;
+
+    StringProfile(int defaultMinLength, int defaultMaxLength) {
+        this.defaultMinLength = defaultMinLength;
+        this.defaultMaxLength = defaultMaxLength;
+    }
+
+    public int getDefaultMinLength() {
+        return defaultMinLength;
+    }
+
+    public int getDefaultMaxLength() {
+        return defaultMaxLength;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.US);
+    }
+
+    /**
+     * Parses a profile name, e.g. "cjk".
+     */
+    public static StringProfile parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.US));
+    }
+
+    /**
+     * Appends length code points.
+     */
+    abstract void append(StringBuilder builder, Random random, int length);
+
+    private static void appendRandom(StringBuilder builder, Random random, int length,
+            Script script) {
+        for (int i = 0; i < length; i++) {
+            builder.appendCodePoint(script.next(random));
+        }
+    }
+
+    /**
+     * Appends words of 1 to {@value #MAX_WORD_LENGTH} code points of one script each, separated
+     * by a space, some preceded by punctuation. The last word is cut to match the length.
+     */
+    private static void appendWords(StringBuilder builder, Random random, int length,
+            Script[] scripts) {
+        int remaining = length;
+        while (remaining > 0) {
+            // separate from the previous word, if a word still fits after it
+            if (remaining < length && remaining > 1) {
+                if (remaining > 2 && random.nextInt(8) == 0) {
+                    builder.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+                    remaining--;
+                }
+                builder.append(' ');
+                remaining--;
+            }
+            int wordLength = Math.min(remaining, 1 + random.nextInt(MAX_WORD_LENGTH));
+            appendRandom(builder, random, wordLength, scripts[random.nextInt(scripts.length)]);
+            remaining -= wordLength;
+        }
+    }
+}
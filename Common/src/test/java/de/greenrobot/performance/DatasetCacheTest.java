@@ -0,0 +1,83 @@
+package de.greenrobot.performance;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DatasetCacheTest {
+
+    private static final int COUNT = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void strings_roundTrip() throws IOException {
+        File directory = folder.newFolder();
+        StringGenerator stringGenerator = new StringGenerator(StringProfile.EMOJI);
+        String[] expected = stringGenerator.createStrings(COUNT);
+
+        DatasetCache.Strings created = new DatasetCache(directory).getStrings(stringGenerator,
+                COUNT);
+        assertStrings(expected, created);
+        created.prefetch(new int[] { 0, COUNT - 1 });
+        assertStrings(expected, created);
+
+        // read from the file written before
+        assertStrings(expected, new DatasetCache(directory).getStrings(stringGenerator, COUNT));
+    }
+
+    @Test
+    public void values_roundTrip() throws IOException {
+        File directory = folder.newFolder();
+        EntityValueGenerator valueGenerator = new EntityValueGenerator(
+                EntityValueGenerator.Profile.REALISTIC, 0.1, StringProfile.CJK);
+        assertValues(valueGenerator, new DatasetCache(directory).getValues(valueGenerator, COUNT));
+        assertValues(valueGenerator, new DatasetCache(directory).getValues(valueGenerator, COUNT));
+    }
+
+    @Test
+    public void values_sameForAnyThreadCount() throws IOException {
+        EntityValueGenerator valueGenerator = new EntityValueGenerator(
+                EntityValueGenerator.Profile.REALISTIC);
+        ParallelGenerator generator = new ParallelGenerator(4);
+        try {
+            assertValues(valueGenerator, new DatasetCache(folder.newFolder(), generator)
+                    .getValues(valueGenerator, COUNT));
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    private static void assertStrings(String[] expected, DatasetCache.Strings strings) {
+        assertEquals(expected.length, strings.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], strings.get(i));
+        }
+    }
+
+    private static void assertValues(EntityValueGenerator valueGenerator,
+            DatasetCache.Values values) {
+        assertEquals(COUNT, values.size());
+        for (int i = 0; i < COUNT; i++) {
+            EntityValues expected = valueGenerator.create(i);
+            EntityValues actual = values.get(i);
+            assertEquals(expected.id, actual.id);
+            assertEquals(expected.simpleBoolean, actual.simpleBoolean);
+            assertEquals(expected.simpleByte, actual.simpleByte);
+            assertEquals(expected.simpleShort, actual.simpleShort);
+            assertEquals(expected.simpleInt, actual.simpleInt);
+            assertEquals(expected.simpleLong, actual.simpleLong);
+            assertEquals(expected.simpleFloat, actual.simpleFloat, 0);
+            assertEquals(expected.simpleDouble, actual.simpleDouble, 0);
+            assertEquals(expected.simpleString, actual.simpleString);
+            assertArrayEquals(expected.simpleByteArray, actual.simpleByteArray);
+        }
+    }
+}
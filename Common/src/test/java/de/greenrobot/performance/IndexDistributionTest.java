@@ -0,0 +1,95 @@
+package de.greenrobot.performance;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexDistributionTest {
+
+    private static final int COUNT = 100000;
+    private static final int MAX_INDEX = 999;
+
+    @Test
+    public void parse_roundTrip() {
+        String[] specs = { "uniform", "zipf:0.99", "latest:0.5", "hotspot:0.2:0.8" };
+        for (String spec : specs) {
+            assertEquals(spec, IndexDistribution.parse(spec).getName());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_unknown() {
+        IndexDistribution.parse("gaussian:1");
+    }
+
+    @Test
+    public void createIndices_inRangeAndDeterministic() {
+        String[] specs = { "uniform", "zipf:0.99", "latest:0.99", "hotspot:0.2:0.8" };
+        for (String spec : specs) {
+            IndexDistribution distribution = IndexDistribution.parse(spec);
+            int[] indices = distribution.createIndices(COUNT, MAX_INDEX);
+            assertEquals(COUNT, indices.length);
+            for (int index : indices) {
+                assertTrue(spec + ": " + index, index >= 0 && index <= MAX_INDEX);
+            }
+            assertArrayEquals(indices, IndexDistribution.parse(spec).createIndices(COUNT,
+                    MAX_INDEX));
+        }
+    }
+
+    @Test
+    public void hotspot_share() {
+        int[] counts = countSorted(IndexDistribution.hotspot(0.2, 0.8));
+        // the 20 % most queried indices get 80 % of the queries
+        assertShare(0.8, counts, (MAX_INDEX + 1) / 5);
+    }
+
+    @Test
+    public void zipf_skewed() {
+        int[] uniform = countSorted(IndexDistribution.uniform());
+        int[] zipf = countSorted(IndexDistribution.zipf(0.99));
+        // the most popular index gets many times the queries of any uniform one
+        assertTrue(zipf[0] > 10 * uniform[0]);
+    }
+
+    @Test
+    public void latest_highestIndexMostPopular() {
+        int[] indices = IndexDistribution.latest(0.99).createIndices(COUNT, MAX_INDEX);
+        int[] counts = new int[MAX_INDEX + 1];
+        for (int index : indices) {
+            counts[index]++;
+        }
+        for (int i = 0; i < MAX_INDEX; i++) {
+            assertTrue(i + ": " + counts[i], counts[i] <= counts[MAX_INDEX]);
+        }
+    }
+
+    /**
+     * Returns the number of queries per index, highest first.
+     */
+    private static int[] countSorted(IndexDistribution distribution) {
+        int[] counts = new int[MAX_INDEX + 1];
+        for (int index : distribution.createIndices(COUNT, MAX_INDEX)) {
+            counts[index]++;
+        }
+        Arrays.sort(counts);
+        for (int i = 0; i < counts.length / 2; i++) {
+            int swap = counts[i];
+            counts[i] = counts[counts.length - 1 - i];
+            counts[counts.length - 1 - i] = swap;
+        }
+        return counts;
+    }
+
+    private static void assertShare(double expected, int[] sortedCounts, int top) {
+        long sum = 0;
+        for (int i = 0; i < top; i++) {
+            sum += sortedCounts[i];
+        }
+        assertEquals(expected, sum / (double) COUNT, 0.02);
+    }
+}
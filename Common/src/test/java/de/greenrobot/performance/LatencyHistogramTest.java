@@ -0,0 +1,65 @@
+package de.greenrobot.performance;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentiles_exactBelowSubBucketCount() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(1, histogram.getMinValue());
+        assertEquals(100, histogram.getMaxValue());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void percentiles_relativePrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertPercentile(histogram, 50, 500000000);
+        assertPercentile(histogram, 90, 900000000);
+        assertPercentile(histogram, 99, 990000000);
+        assertPercentile(histogram, 99.9, 999000000);
+        assertEquals(1000000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void add_mergesCounts() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int value = 1; value <= 50; value++) {
+            first.record(value);
+            second.record(value + 50);
+        }
+        first.add(second);
+        assertEquals(100, first.getTotalCount());
+        assertEquals(1, first.getMinValue());
+        assertEquals(100, first.getMaxValue());
+        assertEquals(50, first.getValueAtPercentile(50));
+
+        first.reset();
+        assertTrue(first.isEmpty());
+        assertEquals(0, first.getValueAtPercentile(50));
+    }
+
+    private static void assertPercentile(LatencyHistogram histogram, double percentile,
+            long expected) {
+        long value = histogram.getValueAtPercentile(percentile);
+        double error = Math.abs(value - expected) / (double) expected;
+        assertTrue(percentile + ": " + value,
+                error <= 1.0 / LatencyHistogram.SUB_BUCKET_HALF_COUNT);
+    }
+}
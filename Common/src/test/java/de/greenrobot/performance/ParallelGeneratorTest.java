@@ -0,0 +1,70 @@
+package de.greenrobot.performance;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelGeneratorTest {
+
+    private static final int COUNT = 10000;
+
+    @Test
+    public void createList_sameForAnyThreadCount() {
+        ParallelGenerator.Factory<Long> factory = new ParallelGenerator.Factory<Long>() {
+            @Override
+            public Long create(int index) {
+                return new Random(ParallelGenerator.seed(42, index)).nextLong();
+            }
+        };
+        List<Long> expected = createList(1, factory);
+        assertEquals(COUNT, expected.size());
+        for (int threadCount = 2; threadCount <= 8; threadCount *= 2) {
+            assertEquals(expected, createList(threadCount, factory));
+        }
+    }
+
+    @Test
+    public void createStrings_sameForAnyThreadCount() {
+        StringGenerator stringGenerator = new StringGenerator(StringProfile.MIXED);
+        String[] expected = stringGenerator.createStrings(COUNT);
+        ParallelGenerator generator = new ParallelGenerator(4);
+        try {
+            assertArrayEquals(expected, stringGenerator.createStrings(COUNT, generator));
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void fill_offset() {
+        ParallelGenerator generator = new ParallelGenerator(3);
+        try {
+            Integer[] array = new Integer[COUNT];
+            generator.fill(array, 5, new ParallelGenerator.Factory<Integer>() {
+                @Override
+                public Integer create(int index) {
+                    return index;
+                }
+            });
+            for (int i = 0; i < COUNT; i++) {
+                assertEquals(i + 5, (int) array[i]);
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    private static <T> List<T> createList(int threadCount,
+            ParallelGenerator.Factory<? extends T> factory) {
+        ParallelGenerator generator = new ParallelGenerator(threadCount);
+        try {
+            return generator.createList(COUNT, factory);
+        } finally {
+            generator.shutdown();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package de.greenrobot.performance;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResultFileTest {
+
+    private static final String[] COLUMNS = { "device", "BATCH_CREATE" };
+    private static final String[] MORE_COLUMNS = { "device", "BATCH_CREATE", "BATCH_READ" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void commit_reopen() throws IOException {
+        File file = new File(folder.getRoot(), "results.jsonl");
+        ResultFile resultFile = new ResultFile(file);
+        resultFile.addRun(COLUMNS, new String[] { "Pixel\t\"2\"", "12" });
+        resultFile.addRun(MORE_COLUMNS, new String[] { "Pixel", "11", "5" });
+        // not committed yet
+        assertTrue(resultFile.readRuns().isEmpty());
+        resultFile.commit();
+
+        List<ResultFile.Run> runs = new ResultFile(file).readRuns();
+        assertEquals(2, runs.size());
+        assertArrayEquals(COLUMNS, runs.get(0).columns);
+        assertArrayEquals(new String[] { "Pixel\t\"2\"", "12" }, runs.get(0).values);
+        assertArrayEquals(MORE_COLUMNS, runs.get(1).columns);
+        assertArrayEquals(MORE_COLUMNS, new ResultFile(file).getLastColumns());
+    }
+
+    @Test
+    public void open_staleIndexKeepsCompleteRuns() throws IOException {
+        File file = new File(folder.getRoot(), "results.jsonl");
+        File indexFile = new File(file.getPath() + ResultFile.INDEX_SUFFIX);
+        ResultFile resultFile = new ResultFile(file);
+        resultFile.addRun(COLUMNS, new String[] { "Pixel", "12" });
+        resultFile.commit();
+        byte[] oldIndex = read(indexFile);
+        resultFile.addRun(MORE_COLUMNS, new String[] { "Pixel", "11", "5" });
+        resultFile.commit();
+        // as if the process died before the index was updated
+        write(indexFile, oldIndex, false);
+
+        resultFile = new ResultFile(file);
+        assertEquals(2, resultFile.readRuns().size());
+        assertArrayEquals(MORE_COLUMNS, resultFile.getLastColumns());
+    }
+
+    @Test
+    public void open_truncatesPartialRun() throws IOException {
+        File file = new File(folder.getRoot(), "results.jsonl");
+        ResultFile resultFile = new ResultFile(file);
+        resultFile.addRun(COLUMNS, new String[] { "Pixel", "12" });
+        resultFile.commit();
+        long committedLength = file.length();
+        write(file, "{\"run\":1,\"val".getBytes("UTF-8"), true);
+
+        resultFile = new ResultFile(file);
+        assertEquals(committedLength, file.length());
+        resultFile.addRun(COLUMNS, new String[] { "Pixel", "13" });
+        resultFile.commit();
+        List<ResultFile.Run> runs = new ResultFile(file).readRuns();
+        assertEquals(2, runs.size());
+        assertEquals("13", runs.get(1).values[1]);
+    }
+
+    @Test
+    public void open_rebuildsLostIndex() throws IOException {
+        File file = new File(folder.getRoot(), "results.jsonl");
+        File indexFile = new File(file.getPath() + ResultFile.INDEX_SUFFIX);
+        ResultFile resultFile = new ResultFile(file);
+        resultFile.addRun(COLUMNS, new String[] { "Pixel", "12" });
+        resultFile.addRun(MORE_COLUMNS, new String[] { "Pixel", "11", "5" });
+        resultFile.commit();
+        assertTrue(indexFile.delete());
+
+        resultFile = new ResultFile(file);
+        assertEquals(2, resultFile.readRuns().size());
+        assertArrayEquals(MORE_COLUMNS, resultFile.getLastColumns());
+        // the same columns continue without a new header
+        resultFile.addRun(MORE_COLUMNS, new String[] { "Pixel", "10", "4" });
+        resultFile.commit();
+        List<ResultFile.Run> runs = new ResultFile(file).readRuns();
+        assertEquals(3, runs.size());
+        assertTrue(Arrays.equals(runs.get(1).columns, runs.get(2).columns));
+        assertFalse(Arrays.equals(runs.get(0).columns, runs.get(2).columns));
+    }
+
+    @Test
+    public void readRuns_withoutOpening_skipsPartialRun() throws IOException {
+        File file = new File(folder.getRoot(), "results.jsonl");
+        ResultFile resultFile = new ResultFile(file);
+        resultFile.addRun(COLUMNS, new String[] { "Pixel", "12" });
+        resultFile.commit();
+        write(file, "{\"run\":1,\"val\n".getBytes("UTF-8"), true);
+        long length = file.length();
+
+        List<ResultFile.Run> runs = ResultFile.readRuns(file);
+        assertEquals(1, runs.size());
+        assertEquals("12", runs.get(0).values[1]);
+        // read only, the partial run is not truncated
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void importTsv_skipsPartialRun_exportTsv() throws IOException {
+        File tsvFile = new File(folder.getRoot(), "results.tsv");
+        String tsv = "device\tBATCH_CREATE\nPixel\t12\n"
+                + "device\tBATCH_CREATE\tBATCH_READ\nPixel\t11\t5\nPixel\t10";
+        write(tsvFile, tsv.getBytes("UTF-8"), false);
+
+        File file = new File(folder.getRoot(), "results.jsonl");
+        ResultFile resultFile = new ResultFile(file);
+        resultFile.importTsv(tsvFile);
+        resultFile.commit();
+        List<ResultFile.Run> runs = resultFile.readRuns();
+        assertEquals(2, runs.size());
+        assertArrayEquals(MORE_COLUMNS, runs.get(1).columns);
+
+        resultFile.exportTsv(tsvFile);
+        String expected = "device\tBATCH_CREATE\nPixel\t12\n"
+                + "device\tBATCH_CREATE\tBATCH_READ\nPixel\t11\t5\n";
+        assertEquals(expected, new String(read(tsvFile), "UTF-8"));
+        assertFalse(new File(tsvFile.getPath() + ".tmp").exists());
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static void write(File file, byte[] bytes, boolean append) throws IOException {
+        OutputStream out = new FileOutputStream(file, append);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
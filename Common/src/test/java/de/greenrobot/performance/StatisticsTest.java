@@ -0,0 +1,78 @@
+package de.greenrobot.performance;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatisticsTest {
+
+    private static final long[] SLOW = { 110, 112, 115, 118, 120, 121, 123, 125, 130, 140 };
+    private static final long[] FAST = { 50, 52, 55, 57, 58, 60, 61, 63, 65, 70 };
+
+    @Test
+    public void median() {
+        assertEquals(3, Statistics.median(new long[] { 5, 1, 3 }), 0);
+        assertEquals(2.5, Statistics.median(new long[] { 4, 1, 3, 2 }), 0);
+    }
+
+    @Test
+    public void mannWhitneyU_separated() {
+        Statistics.MannWhitneyResult result = Statistics.mannWhitneyU(SLOW, FAST);
+        // every value of the first sample is larger
+        assertEquals(SLOW.length * FAST.length, result.u, 0);
+        assertEquals(1, result.effectSize, 0);
+        assertTrue("p=" + result.pValue, result.pValue < 0.001);
+
+        Statistics.MannWhitneyResult reversed = Statistics.mannWhitneyU(FAST, SLOW);
+        assertEquals(0, reversed.u, 0);
+        assertEquals(-1, reversed.effectSize, 0);
+        assertEquals(result.pValue, reversed.pValue, 1e-12);
+    }
+
+    @Test
+    public void mannWhitneyU_sameValues() {
+        Statistics.MannWhitneyResult result = Statistics.mannWhitneyU(SLOW, SLOW.clone());
+        assertEquals(0, result.effectSize, 0);
+        assertTrue("p=" + result.pValue, result.pValue > 0.9);
+
+        Statistics.MannWhitneyResult allEqual = Statistics.mannWhitneyU(
+                new long[] { 7, 7, 7 }, new long[] { 7, 7 });
+        assertEquals(1, allEqual.pValue, 0);
+    }
+
+    @Test
+    public void mannWhitneyU_knownValue() {
+        // ranks of the first sample: 1, 3, 5 -> U = 9 - 6 = 3
+        Statistics.MannWhitneyResult result = Statistics.mannWhitneyU(
+                new long[] { 1, 3, 5 }, new long[] { 2, 4, 6 });
+        assertEquals(3, result.u, 0);
+        assertEquals(2 * 3 / 9.0 - 1, result.effectSize, 1e-12);
+    }
+
+    @Test
+    public void bootstrapMedianInterval_containsMedian() {
+        double[] interval = Statistics.bootstrapMedianInterval(SLOW, 0.95, 2000, new Random(1));
+        double median = Statistics.median(SLOW);
+        assertTrue(interval[0] <= median && median <= interval[1]);
+        assertTrue(interval[0] >= 110 && interval[1] <= 140);
+        // same seed, same interval
+        double[] again = Statistics.bootstrapMedianInterval(SLOW, 0.95, 2000, new Random(1));
+        assertEquals(interval[0], again[0], 0);
+        assertEquals(interval[1], again[1], 0);
+    }
+
+    @Test
+    public void bootstrapMedianRatioInterval_halvedTimes() {
+        long[] halved = new long[SLOW.length];
+        for (int i = 0; i < SLOW.length; i++) {
+            halved[i] = SLOW[i] / 2;
+        }
+        double[] interval = Statistics.bootstrapMedianRatioInterval(SLOW, halved, 0.95, 2000,
+                new Random(1));
+        assertTrue(interval[0] <= 0.5 && 0.5 <= interval[1]);
+        assertTrue(interval[1] < 1);
+    }
+}
@@ -20,7 +20,9 @@ import java.util.Map;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
 
 /**
  * http://developer.couchbase.com/documentation/mobile/1.1.0/develop/training/build-first-android-app/index.html
@@ -68,46 +70,52 @@ public class PerfTestCouchbase extends BasePerfTestCase {
         }, "1");
         log("Set up view.");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(indexedStringView, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(View indexedStringView, int count)
             throws CouchbaseLiteException {
         // create entities
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         database.beginTransaction();
         for (int i = 0; i < count; i++) {
             Document entity = database.getDocument(String.valueOf(i));
             Map<String, Object> properties = new HashMap<>();
-            properties.put("indexedString", fixedRandomStrings[i]);
+            properties.put("indexedString", fixedRandomStrings.get(i));
             entity.putProperties(properties);
         }
         database.endTransaction(true);
         log("Built and inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         // clear the document cache to force loading properties from the database
         database.clearDocumentCache();
 
+        Blackhole blackhole = getBlackhole();
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
+            long operationStart = System.nanoTime();
             List<Object> keyToQuery = new ArrayList<>(1);
-            keyToQuery.add(fixedRandomStrings[nextIndex]);
+            keyToQuery.add(fixedRandomStrings.get(nextIndex));
 
             Query query = indexedStringView.createQuery();
             query.setKeys(keyToQuery);
             QueryEnumerator result = query.run();
             while (result.hasNext()) {
                 QueryRow row = result.next();
-                //noinspection unused
                 Document document = row.getDocument();
+                blackhole.consume(document.getId());
+                blackhole.consume(document.getProperty("indexedString"));
             }
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -121,27 +129,32 @@ public class PerfTestCouchbase extends BasePerfTestCase {
         // precreate property maps for documents
         List<Map<String, Object>> maps = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            maps.add(createDocumentMap(i));
+            maps.add(createDocumentMap(createValues(i)));
         }
 
         startClock();
         List<Document> documents = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             // use our own ids (use .createDocument() for random UUIDs)
             Document document = database.getDocument(String.valueOf(i));
             document.putProperties(maps.get(i));
             documents.add(document);
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
             Document document = documents.get(i);
+            long operationStart = System.nanoTime();
             Map<String, Object> updatedProperties = new HashMap<>();
             // copy existing properties to get _rev property
             updatedProperties.putAll(document.getProperties());
             updatedProperties.putAll(maps.get(i));
             document.putProperties(updatedProperties);
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
@@ -153,7 +166,7 @@ public class PerfTestCouchbase extends BasePerfTestCase {
         // precreate property maps for documents
         List<Map<String, Object>> maps = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            maps.add(createDocumentMap(i));
+            maps.add(createDocumentMap(createValues(i)));
         }
 
         startClock();
@@ -193,19 +206,20 @@ public class PerfTestCouchbase extends BasePerfTestCase {
 
         // Couchbase is not actually loading properties when getting a document
         // so load them for each one to measure how long it takes to get to the actual data
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             Document document = reloaded.get(i);
             Map<String, Object> properties = document.getProperties();
-            properties.get("simpleBoolean");
-            properties.get("simpleByte");
-            properties.get("simpleShort");
-            properties.get("simpleInt");
-            properties.get("simpleLong");
-            properties.get("simpleFloat");
-            properties.get("simpleDouble");
-            properties.get("simpleString");
-            properties.get("simpleByteArray");
+            blackhole.consume(properties.get("simpleBoolean"));
+            blackhole.consume(properties.get("simpleByte"));
+            blackhole.consume(properties.get("simpleShort"));
+            blackhole.consume(properties.get("simpleInt"));
+            blackhole.consume(properties.get("simpleLong"));
+            blackhole.consume(properties.get("simpleFloat"));
+            blackhole.consume(properties.get("simpleDouble"));
+            blackhole.consume(properties.get("simpleString"));
+            blackhole.consume(properties.get("simpleByteArray"));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -226,19 +240,19 @@ public class PerfTestCouchbase extends BasePerfTestCase {
         database.endTransaction(true);
     }
 
-    private Map<String, Object> createDocumentMap(int seed) throws CouchbaseLiteException {
+    private Map<String, Object> createDocumentMap(EntityValues values)
+            throws CouchbaseLiteException {
         Map<String, Object> map = new HashMap<>();
         map.put("type", DOC_TYPE);
-        map.put("simpleBoolean", true);
-        map.put("simpleByte", seed & 0xff);
-        map.put("simpleShort", seed & 0xffff);
-        map.put("simpleInt", seed);
-        map.put("simpleLong", Long.MAX_VALUE - seed);
-        map.put("simpleFloat", (float) (Math.PI * seed));
-        map.put("simpleDouble", Math.E * seed);
-        map.put("simpleString", "greenrobot greenDAO");
-        byte[] bytes = { 42, -17, 23, 0, 127, -128 };
-        map.put("simpleByteArray", bytes);
+        map.put("simpleBoolean", values.simpleBoolean);
+        map.put("simpleByte", (int) values.simpleByte);
+        map.put("simpleShort", (int) values.simpleShort);
+        map.put("simpleInt", values.simpleInt);
+        map.put("simpleLong", values.simpleLong);
+        map.put("simpleFloat", values.simpleFloat);
+        map.put("simpleDouble", values.simpleDouble);
+        map.put("simpleString", values.simpleString);
+        map.put("simpleByteArray", values.simpleByteArray);
         return map;
     }
 }
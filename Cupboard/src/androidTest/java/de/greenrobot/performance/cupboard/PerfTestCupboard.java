@@ -9,7 +9,9 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.PageLatencies;
 import nl.qbusict.cupboard.Cupboard;
 import nl.qbusict.cupboard.CupboardBuilder;
 import nl.qbusict.cupboard.DatabaseCompartment;
@@ -51,20 +53,20 @@ public class PerfTestCupboard extends BasePerfTestCase {
         DatabaseCompartment database = cupboard.withDatabase(dbHelper.getWritableDatabase());
         log("Set up database.");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(database, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(DatabaseCompartment database, int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity._id = (long) i;
-            entity.indexedString = fixedRandomStrings[i];
+            entity.indexedString = fixedRandomStrings.get(i);
             entities.add(entity);
         }
         log("Built entities.");
@@ -74,16 +76,20 @@ public class PerfTestCupboard extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
+            long operationStart = System.nanoTime();
             //noinspection unused
             List<IndexedStringEntity> query = database.query(
                     IndexedStringEntity.class)
-                    .withSelection("indexedString = ?", fixedRandomStrings[nextIndex])
+                    .withSelection("indexedString = ?", fixedRandomStrings.get(nextIndex))
                     .list();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -106,30 +112,34 @@ public class PerfTestCupboard extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             database.put(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             database.put(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll(database);
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
@@ -144,19 +154,20 @@ public class PerfTestCupboard extends BasePerfTestCase {
         List<SimpleEntityNotNull> reloaded = database.query(SimpleEntityNotNull.class).list();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            blackhole.consume(entity.getId());
+            blackhole.consume(entity.getSimpleBoolean());
+            blackhole.consume(entity.getSimpleByte());
+            blackhole.consume(entity.getSimpleShort());
+            blackhole.consume(entity.getSimpleInt());
+            blackhole.consume(entity.getSimpleLong());
+            blackhole.consume(entity.getSimpleFloat());
+            blackhole.consume(entity.getSimpleDouble());
+            blackhole.consume(entity.getSimpleString());
+            blackhole.consume(entity.getSimpleByteArray());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -165,6 +176,76 @@ public class PerfTestCupboard extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        List<SimpleEntityNotNull> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                batch.add(SimpleEntityNotNullHelper.createEntity(createWriterValues(id)));
+            }
+            // in a transaction
+            database.put(batch);
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities = database.query(SimpleEntityNotNull.class)
+                        .orderBy("_id")
+                        .limit(pageSize)
+                        .offset(page * pageSize)
+                        .list();
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities = database.query(SimpleEntityNotNull.class)
+                        .withSelection("_id > ?", String.valueOf(lastId))
+                        .orderBy("_id")
+                        .limit(pageSize)
+                        .list();
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                if (!entities.isEmpty()) {
+                    lastId = entities.get(entities.size() - 1).getId();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll(DatabaseCompartment database) {
         database.delete(SimpleEntityNotNull.class, "");
     }
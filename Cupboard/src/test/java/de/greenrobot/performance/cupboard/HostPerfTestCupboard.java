@@ -0,0 +1,20 @@
+package de.greenrobot.performance.cupboard;
+
+import android.content.Context;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Runs {@link PerfTestCupboard} on the JVM using the SQLite of Robolectric, see
+ * gradle/host-tests.gradle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HostPerfTestCupboard extends PerfTestCupboard {
+
+    @Override
+    protected Context getTargetContext() {
+        return RuntimeEnvironment.application;
+    }
+}
@@ -0,0 +1,50 @@
+package de.greenrobot.performance.mapping;
+
+import android.database.MatrixCursor;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * In-memory cursor with {@link #ROWS} identical rows of the simple entity table, using the values
+ * of the legacy profile of EntityValueGenerator (Common can not be used by this JVM module).
+ *
+ * <p/>Column names are those of the Cupboard entity (which maps by name), the other mappers read
+ * columns by index.
+ */
+@State(Scope.Thread)
+public class CursorFixture {
+
+    /** Same as BasePerfTestCase.DEFAULT_BATCH_SIZE, so the BATCH_READ phase reads as many rows. */
+    public static final int ROWS = 10000;
+
+    static final String[] COLUMNS = {
+            "_id", "simpleBoolean", "simpleByte", "simpleShort", "simpleInt", "simpleLong",
+            "simpleFloat", "simpleDouble", "simpleString", "simpleByteArray"
+    };
+
+    MatrixCursor cursor;
+
+    @Setup
+    public void setUp() {
+        cursor = new MatrixCursor(COLUMNS, ROWS);
+        byte[] bytes = { 42, -17, 23, 0, 127, -128 };
+        for (int i = 0; i < ROWS; i++) {
+            // as returned by SQLite: booleans and integers as long, floats as double
+            cursor.addRow(new Object[] {
+                    (long) i, 1L, (long) Byte.MAX_VALUE, (long) Short.MAX_VALUE,
+                    (long) Integer.MAX_VALUE, Long.MAX_VALUE, (double) Float.MAX_VALUE,
+                    Double.MAX_VALUE, "greenrobot greenDAO", bytes
+            });
+        }
+    }
+
+    /**
+     * Returns the cursor positioned before the first row.
+     */
+    MatrixCursor rewind() {
+        cursor.moveToPosition(-1);
+        return cursor;
+    }
+}
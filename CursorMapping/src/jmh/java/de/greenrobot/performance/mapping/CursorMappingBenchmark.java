@@ -0,0 +1,130 @@
+package de.greenrobot.performance.mapping;
+
+import android.database.Cursor;
+
+import org.greenrobot.greendao.database.Database;
+import org.greenrobot.greendao.internal.DaoConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.greenrobot.daotest.SimpleEntityNotNullDao;
+import nl.qbusict.cupboard.Cupboard;
+import nl.qbusict.cupboard.CupboardBuilder;
+import nl.qbusict.cupboard.convert.EntityConverter;
+
+/**
+ * Maps all rows of {@link CursorFixture} to entities like the BATCH_READ phase of the library
+ * modules does, reports ns per row. Run with the gc profiler to get allocated bytes per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(CursorFixture.ROWS)
+@State(Scope.Thread)
+public class CursorMappingBenchmark {
+
+    private SimpleEntityNotNullDao greenDaoDao;
+    private EntityConverter<de.greenrobot.performance.cupboard.SimpleEntityNotNull>
+            cupboardConverter;
+
+    @Setup
+    public void setUp() {
+        // readEntity does not touch the database, AbstractDao only checks the raw database type
+        Database database = (Database) Proxy.newProxyInstance(Database.class.getClassLoader(),
+                new Class<?>[] { Database.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+        greenDaoDao = new SimpleEntityNotNullDao(
+                new DaoConfig(database, SimpleEntityNotNullDao.class));
+
+        Cupboard cupboard = new CupboardBuilder().build();
+        cupboard.register(de.greenrobot.performance.cupboard.SimpleEntityNotNull.class);
+        cupboardConverter = cupboard.getEntityConverter(
+                de.greenrobot.performance.cupboard.SimpleEntityNotNull.class);
+    }
+
+    /**
+     * Baseline: the hand-written loop of PerfTestSqlite.
+     */
+    @Benchmark
+    public List<de.greenrobot.daotest.SimpleEntityNotNull> handWritten(CursorFixture fixture) {
+        Cursor cursor = fixture.rewind();
+        List<de.greenrobot.daotest.SimpleEntityNotNull> reloaded = new ArrayList<>(
+                CursorFixture.ROWS);
+        while (cursor.moveToNext()) {
+            de.greenrobot.daotest.SimpleEntityNotNull entity =
+                    new de.greenrobot.daotest.SimpleEntityNotNull();
+            entity.setId(cursor.getLong(0));
+            entity.setSimpleBoolean(cursor.getInt(1) == 1);
+            entity.setSimpleByte((byte) cursor.getInt(2));
+            entity.setSimpleShort(cursor.getShort(3));
+            entity.setSimpleInt(cursor.getInt(4));
+            entity.setSimpleLong(cursor.getLong(5));
+            entity.setSimpleFloat(cursor.getFloat(6));
+            entity.setSimpleDouble(cursor.getDouble(7));
+            entity.setSimpleString(cursor.getString(8));
+            entity.setSimpleByteArray(cursor.getBlob(9));
+            reloaded.add(entity);
+        }
+        return reloaded;
+    }
+
+    /**
+     * The generated readEntity of greenDAO, as used by AbstractDao.loadAll.
+     */
+    @Benchmark
+    public List<de.greenrobot.daotest.SimpleEntityNotNull> greenDao(CursorFixture fixture) {
+        Cursor cursor = fixture.rewind();
+        List<de.greenrobot.daotest.SimpleEntityNotNull> reloaded = new ArrayList<>(
+                CursorFixture.ROWS);
+        while (cursor.moveToNext()) {
+            reloaded.add(greenDaoDao.readEntity(cursor, 0));
+        }
+        return reloaded;
+    }
+
+    /**
+     * The generated row mapper of SQLDelight creating AutoValue entities.
+     */
+    @Benchmark
+    public List<de.greenrobot.performance.sqlite.SimpleEntityNotNull> sqlDelight(
+            CursorFixture fixture) {
+        Cursor cursor = fixture.rewind();
+        List<de.greenrobot.performance.sqlite.SimpleEntityNotNull> reloaded = new ArrayList<>(
+                CursorFixture.ROWS);
+        while (cursor.moveToNext()) {
+            reloaded.add(de.greenrobot.performance.sqlite.SimpleEntityNotNull.MAPPER.map(cursor));
+        }
+        return reloaded;
+    }
+
+    /**
+     * The reflective entity converter of Cupboard, as used by QueryResultIterable.list.
+     */
+    @Benchmark
+    public List<de.greenrobot.performance.cupboard.SimpleEntityNotNull> cupboard(
+            CursorFixture fixture) {
+        Cursor cursor = fixture.rewind();
+        List<de.greenrobot.performance.cupboard.SimpleEntityNotNull> reloaded = new ArrayList<>(
+                CursorFixture.ROWS);
+        while (cursor.moveToNext()) {
+            reloaded.add(cupboardConverter.fromCursor(cursor));
+        }
+        return reloaded;
+    }
+}
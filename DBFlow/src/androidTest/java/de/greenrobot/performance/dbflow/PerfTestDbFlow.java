@@ -18,7 +18,10 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 
 /**
  * https://github.com/Raizlabs/DBFlow/blob/master/usage/GettingStarted.md
@@ -42,20 +45,20 @@ public class PerfTestDbFlow extends BasePerfTestCase {
 
     @Override
     protected void doIndexedStringEntityQueries() throws Exception {
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity._id = (long) i;
-            entity.indexedString = fixedRandomStrings[i];
+            entity.indexedString = fixedRandomStrings.get(i);
             entities.add(entity);
         }
         log("Built entities.");
@@ -66,18 +69,22 @@ public class PerfTestDbFlow extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             //noinspection unused
             IndexedStringEntity indexedStringEntity = SQLite.select()
                     .from(IndexedStringEntity.class)
                     .where(IndexedStringEntity_Table.indexedString.eq(
-                            fixedRandomStrings[nextIndex]))
+                            fixedRandomStrings.get(nextIndex)))
                     .querySingle();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -102,18 +109,23 @@ public class PerfTestDbFlow extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createEntity((long) i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             list.get(i).insert();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             list.get(i).update();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
@@ -124,7 +136,7 @@ public class PerfTestDbFlow extends BasePerfTestCase {
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createEntity((long) i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
@@ -141,19 +153,10 @@ public class PerfTestDbFlow extends BasePerfTestCase {
                 .queryList();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
-            SimpleEntityNotNull entity = reloaded.get(i);
-            long id = entity._id;
-            boolean simpleBoolean = entity.simpleBoolean;
-            byte simpleByte = entity.simpleByte;
-            short simpleShort = entity.simpleShort;
-            int simpleInt = entity.simpleInt;
-            long simpleLong = entity.simpleLong;
-            float simpleFloat = entity.simpleFloat;
-            double simpleDouble = entity.simpleDouble;
-            String simpleString = entity.simpleString;
-            byte[] blob = entity.simpleByteArray.getBlob();
+            consume(blackhole, reloaded.get(i));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -162,23 +165,157 @@ public class PerfTestDbFlow extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        List<SimpleEntityNotNull> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                batch.add(createEntity(createWriterValues(id)));
+            }
+            FlowManager.getDatabase(FlowDatabase.class).executeTransaction(
+                    insertTransaction(batch, SimpleEntityNotNull.class));
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities = SQLite.select()
+                        .from(SimpleEntityNotNull.class)
+                        .orderBy(SimpleEntityNotNull_Table._id, true)
+                        .limit(pageSize)
+                        .offset(page * pageSize)
+                        .queryList();
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities = SQLite.select()
+                        .from(SimpleEntityNotNull.class)
+                        .where(SimpleEntityNotNull_Table._id.greaterThan(lastId))
+                        .orderBy(SimpleEntityNotNull_Table._id, true)
+                        .limit(pageSize)
+                        .queryList();
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                if (!entities.isEmpty()) {
+                    lastId = entities.get(entities.size() - 1)._id;
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll();
+    }
+
+    /**
+     * DBFlow loads relations with separate queries and can not build parent and child entities
+     * from a join, so only {@link Benchmark.Type#RELATION_LAZY} and {@link
+     * Benchmark.Type#RELATION_TO_ONE} are measured.
+     */
+    @Override
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        List<ParentEntity> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            ParentEntity parent = new ParentEntity();
+            parent._id = i;
+            parent.name = createValues(i).simpleString;
+            parents.add(parent);
+        }
+        List<ChildEntity> children = new ArrayList<>(parentCount * childrenPerParent);
+        for (int i = 0; i < parentCount * childrenPerParent; i++) {
+            EntityValues values = createValues(i);
+            ChildEntity child = new ChildEntity();
+            child._id = i;
+            child.parent = parents.get(i / childrenPerParent);
+            child.name = values.simpleString;
+            child.value = values.simpleInt;
+            children.add(child);
+        }
+        FlowManager.getDatabase(FlowDatabase.class).executeTransaction(
+                insertTransaction(parents, ParentEntity.class));
+        FlowManager.getDatabase(FlowDatabase.class).executeTransaction(
+                insertTransaction(children, ChildEntity.class));
+
+        Blackhole blackhole = getBlackhole();
+        startClock();
+        List<ParentEntity> loadedParents = SQLite.select().from(ParentEntity.class).queryList();
+        for (int i = 0; i < loadedParents.size(); i++) {
+            ParentEntity parent = loadedParents.get(i);
+            blackhole.consume(parent.name);
+            List<ChildEntity> loadedChildren = parent.getChildren();
+            for (int j = 0; j < loadedChildren.size(); j++) {
+                consumeChild(blackhole, loadedChildren.get(j));
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_LAZY);
+
+        startClock();
+        List<ChildEntity> loadedChildren = SQLite.select().from(ChildEntity.class).queryList();
+        for (int i = 0; i < loadedChildren.size(); i++) {
+            ChildEntity child = loadedChildren.get(i);
+            consumeChild(blackhole, child);
+            // the stubbed parent only has its id set
+            child.parent.load();
+            blackhole.consume(child.parent.name);
+        }
+        stopClock(Benchmark.Type.RELATION_TO_ONE);
+
+        Delete.table(ChildEntity.class);
+        Delete.table(ParentEntity.class);
+    }
+
+    private static void consumeChild(Blackhole blackhole, ChildEntity child) {
+        blackhole.consume(child._id);
+        blackhole.consume(child.name);
+        blackhole.consume(child.value);
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity._id);
+        blackhole.consume(entity.simpleBoolean);
+        blackhole.consume(entity.simpleByte);
+        blackhole.consume(entity.simpleShort);
+        blackhole.consume(entity.simpleInt);
+        blackhole.consume(entity.simpleLong);
+        blackhole.consume(entity.simpleFloat);
+        blackhole.consume(entity.simpleDouble);
+        blackhole.consume(entity.simpleString);
+        blackhole.consume(entity.simpleByteArray.getBlob());
+    }
+
     private void deleteAll() {
         Delete.table(SimpleEntityNotNull.class);
     }
 
-    protected static SimpleEntityNotNull createEntity(long id) {
+    protected static SimpleEntityNotNull createEntity(EntityValues values) {
         SimpleEntityNotNull entity = new SimpleEntityNotNull();
-        entity._id = id;
-        entity.simpleBoolean = true;
-        entity.simpleByte = Byte.MAX_VALUE;
-        entity.simpleShort = Short.MAX_VALUE;
-        entity.simpleInt = Integer.MAX_VALUE;
-        entity.simpleLong = Long.MAX_VALUE;
-        entity.simpleFloat = Float.MAX_VALUE;
-        entity.simpleDouble = Double.MAX_VALUE;
-        entity.simpleString = "greenrobot greenDAO";
-        byte[] bytes = {42, -17, 23, 0, 127, -128};
-        entity.simpleByteArray = new Blob(bytes);
+        entity._id = values.id;
+        entity.simpleBoolean = values.simpleBoolean;
+        entity.simpleByte = values.simpleByte;
+        entity.simpleShort = values.simpleShort;
+        entity.simpleInt = values.simpleInt;
+        entity.simpleLong = values.simpleLong;
+        entity.simpleFloat = values.simpleFloat;
+        entity.simpleDouble = values.simpleDouble;
+        entity.simpleString = values.simpleString;
+        entity.simpleByteArray = new Blob(values.simpleByteArray);
         return entity;
     }
 }
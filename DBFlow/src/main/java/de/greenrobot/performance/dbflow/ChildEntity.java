@@ -0,0 +1,28 @@
+package de.greenrobot.performance.dbflow;
+
+import com.raizlabs.android.dbflow.annotation.Column;
+import com.raizlabs.android.dbflow.annotation.ForeignKey;
+import com.raizlabs.android.dbflow.annotation.Index;
+import com.raizlabs.android.dbflow.annotation.PrimaryKey;
+import com.raizlabs.android.dbflow.annotation.Table;
+import com.raizlabs.android.dbflow.structure.BaseModel;
+
+/**
+ * Entity with a to-one relation to {@link ParentEntity}, only its id is loaded with the child.
+ */
+@Table(database = FlowDatabase.class)
+public class ChildEntity extends BaseModel {
+
+    @PrimaryKey(autoincrement = false)
+    public long _id;
+
+    @ForeignKey(stubbedRelationship = true) @Index
+    public ParentEntity parent;
+
+    @Column
+    public String name;
+
+    @Column
+    public int value;
+
+}
@@ -0,0 +1,37 @@
+package de.greenrobot.performance.dbflow;
+
+import com.raizlabs.android.dbflow.annotation.Column;
+import com.raizlabs.android.dbflow.annotation.OneToMany;
+import com.raizlabs.android.dbflow.annotation.PrimaryKey;
+import com.raizlabs.android.dbflow.annotation.Table;
+import com.raizlabs.android.dbflow.sql.language.SQLite;
+import com.raizlabs.android.dbflow.structure.BaseModel;
+
+import java.util.List;
+
+/**
+ * Entity with a to-many relation to {@link ChildEntity}, loaded lazily on first access.
+ */
+@Table(database = FlowDatabase.class)
+public class ParentEntity extends BaseModel {
+
+    @PrimaryKey(autoincrement = false)
+    public long _id;
+
+    @Column
+    public String name;
+
+    List<ChildEntity> children;
+
+    @OneToMany(variableName = "children")
+    public List<ChildEntity> getChildren() {
+        if (children == null) {
+            children = SQLite.select()
+                    .from(ChildEntity.class)
+                    .where(ChildEntity_Table.parent__id.eq(_id))
+                    .queryList();
+        }
+        return children;
+    }
+
+}
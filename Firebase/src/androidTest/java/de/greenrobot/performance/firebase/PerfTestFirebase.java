@@ -14,7 +14,8 @@ import java.util.concurrent.TimeUnit;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
 
 /**
  * Make sure to run the performance tests while in AIRPLANE MODE, as
@@ -76,9 +77,9 @@ public class PerfTestFirebase extends BasePerfTestCase {
         // set up node for entities
         Firebase entityRef = rootFirebaseRef.child("indexedStringEntity");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(entityRef, getBatchSize());
+            commitRun();
         }
     }
 
@@ -86,11 +87,11 @@ public class PerfTestFirebase extends BasePerfTestCase {
             throws InterruptedException {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity._id = (long) i;
-            entity.indexedString = fixedRandomStrings[i];
+            entity.indexedString = fixedRandomStrings.get(i);
             entities.add(entity);
         }
         log("Built entities.");
@@ -100,15 +101,18 @@ public class PerfTestFirebase extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             final CountDownLatch queryLock = new CountDownLatch(1);
             Query query = entityRef.orderByChild("indexedString");
-            query.equalTo(fixedRandomStrings[nextIndex]);
+            query.equalTo(fixedRandomStrings.get(nextIndex));
             ChildEventListener queryEventListener = new ChildEventListener() {
                 @Override
                 public void onChildAdded(DataSnapshot dataSnapshot, String s) {
@@ -141,6 +145,7 @@ public class PerfTestFirebase extends BasePerfTestCase {
             // wait until there are query results
             queryLock.await();
             query.removeEventListener(queryEventListener);
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -159,34 +164,38 @@ public class PerfTestFirebase extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             // use the entity id as its key
             SimpleEntityNotNull entity = list.get(i);
             simpleEntityRef.child(String.valueOf(entity.getId())).setValue(entity);
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             // use the entity id as its key
             SimpleEntityNotNull entity = list.get(i);
             simpleEntityRef.child(String.valueOf(entity.getId())).setValue(entity);
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll(simpleEntityRef);
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         // there is no such thing as batch storing of items in Firebase
@@ -223,17 +232,18 @@ public class PerfTestFirebase extends BasePerfTestCase {
         long childrenCount = reloaded.size();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < childrenCount; i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
+            blackhole.consume(entity.getId());
+            blackhole.consume(entity.getSimpleBoolean());
+            blackhole.consume(entity.getSimpleByte());
+            blackhole.consume(entity.getSimpleInt());
+            blackhole.consume(entity.getSimpleLong());
+            blackhole.consume(entity.getSimpleFloat());
+            blackhole.consume(entity.getSimpleDouble());
+            blackhole.consume(entity.getSimpleString());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
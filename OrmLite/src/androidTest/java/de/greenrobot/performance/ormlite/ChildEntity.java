@@ -0,0 +1,24 @@
+package de.greenrobot.performance.ormlite;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Entity with a to-one relation to {@link ParentEntity}, only its id is loaded with the child.
+ */
+@DatabaseTable(tableName = "CHILD_ENTITY")
+public class ChildEntity {
+
+    @DatabaseField(id = true)
+    public Long _id;
+
+    @DatabaseField(columnName = "PARENT_ID", foreign = true, index = true)
+    public ParentEntity parent;
+
+    @DatabaseField(columnName = "NAME")
+    public String name;
+
+    @DatabaseField(columnName = "VALUE")
+    public int value;
+
+}
@@ -22,6 +22,8 @@ public class DbHelper extends OrmLiteSqliteOpenHelper {
             TableUtils.createTable(connectionSource, IndexedStringEntity.class);
             TableUtils.createTable(connectionSource, SimpleEntityNotNull.class);
             TableUtils.createTable(connectionSource, MinimalEntity.class);
+            TableUtils.createTable(connectionSource, ParentEntity.class);
+            TableUtils.createTable(connectionSource, ChildEntity.class);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -34,6 +36,8 @@ public class DbHelper extends OrmLiteSqliteOpenHelper {
             TableUtils.dropTable(connectionSource, IndexedStringEntity.class, true);
             TableUtils.dropTable(connectionSource, SimpleEntityNotNull.class, true);
             TableUtils.dropTable(connectionSource, MinimalEntity.class, true);
+            TableUtils.dropTable(connectionSource, ParentEntity.class, true);
+            TableUtils.dropTable(connectionSource, ChildEntity.class, true);
             // after we drop the old databases, we create the new ones
             onCreate(db, connectionSource);
         } catch (SQLException e) {
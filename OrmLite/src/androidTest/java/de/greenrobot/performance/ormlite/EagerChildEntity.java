@@ -0,0 +1,25 @@
+package de.greenrobot.performance.ormlite;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Maps the table of {@link ChildEntity} as the target of the eager collection of
+ * {@link EagerParentEntity}.
+ */
+@DatabaseTable(tableName = "CHILD_ENTITY")
+public class EagerChildEntity {
+
+    @DatabaseField(id = true)
+    public Long _id;
+
+    @DatabaseField(columnName = "PARENT_ID", foreign = true)
+    public EagerParentEntity parent;
+
+    @DatabaseField(columnName = "NAME")
+    public String name;
+
+    @DatabaseField(columnName = "VALUE")
+    public int value;
+
+}
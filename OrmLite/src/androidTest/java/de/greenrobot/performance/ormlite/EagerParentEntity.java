@@ -0,0 +1,23 @@
+package de.greenrobot.performance.ormlite;
+
+import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.ForeignCollectionField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Maps the table of {@link ParentEntity}, but loads the children eagerly with each parent.
+ */
+@DatabaseTable(tableName = "PARENT_ENTITY")
+public class EagerParentEntity {
+
+    @DatabaseField(id = true)
+    public Long _id;
+
+    @DatabaseField(columnName = "NAME")
+    public String name;
+
+    @ForeignCollectionField(eager = true)
+    public ForeignCollection<EagerChildEntity> children;
+
+}
@@ -0,0 +1,23 @@
+package de.greenrobot.performance.ormlite;
+
+import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.ForeignCollectionField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Entity with a lazy to-many relation to {@link ChildEntity}.
+ */
+@DatabaseTable(tableName = "PARENT_ENTITY")
+public class ParentEntity {
+
+    @DatabaseField(id = true)
+    public Long _id;
+
+    @DatabaseField(columnName = "NAME")
+    public String name;
+
+    @ForeignCollectionField(eager = false)
+    public ForeignCollection<ChildEntity> children;
+
+}
@@ -1,6 +1,8 @@
 package de.greenrobot.performance.ormlite;
 
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.SelectArg;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -9,7 +11,10 @@ import java.util.concurrent.Callable;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 
 
 import static org.junit.Assert.assertEquals;
@@ -58,9 +63,9 @@ public class PerfTestOrmLite extends BasePerfTestCase {
         final Dao<IndexedStringEntity, Long> dao = dbHelper.getDao(IndexedStringEntity.class);
         log("Set up data access.");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(dao, getBatchSize());
+            commitRun();
         }
     }
 
@@ -68,11 +73,11 @@ public class PerfTestOrmLite extends BasePerfTestCase {
             throws Exception {
         // create entities
         final List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity._id = (long) i;
-            entity.indexedString = fixedRandomStrings[i];
+            entity.indexedString = fixedRandomStrings.get(i);
             entities.add(entity);
         }
         log("Built entities.");
@@ -90,17 +95,21 @@ public class PerfTestOrmLite extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
+            long operationStart = System.nanoTime();
             //noinspection unused
             List<IndexedStringEntity> query = dao.queryBuilder()
                     .where()
-                    .eq("INDEXED_STRING", fixedRandomStrings[nextIndex])
+                    .eq("INDEXED_STRING", fixedRandomStrings.get(nextIndex))
                     .query();
             // ORMLite already builds all entities when executing the query, so move on
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -120,30 +129,34 @@ public class PerfTestOrmLite extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             dao.create(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             dao.update(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll();
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
@@ -176,19 +189,20 @@ public class PerfTestOrmLite extends BasePerfTestCase {
         List<SimpleEntityNotNull> reloaded = dao.queryForAll();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            blackhole.consume(entity.getId());
+            blackhole.consume(entity.getSimpleBoolean());
+            blackhole.consume(entity.getSimpleByte());
+            blackhole.consume(entity.getSimpleShort());
+            blackhole.consume(entity.getSimpleInt());
+            blackhole.consume(entity.getSimpleLong());
+            blackhole.consume(entity.getSimpleFloat());
+            blackhole.consume(entity.getSimpleDouble());
+            blackhole.consume(entity.getSimpleString());
+            blackhole.consume(entity.getSimpleByteArray());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -197,6 +211,180 @@ public class PerfTestOrmLite extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    /**
+     * Offset pages are built with the {@code QueryBuilder} for each page, as OrmLite can not bind
+     * LIMIT and OFFSET; keyset pages reuse a prepared query with a {@link SelectArg} for the last
+     * id.
+     */
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        final List<SimpleEntityNotNull> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                batch.add(SimpleEntityNotNullHelper.createEntity(createWriterValues(id)));
+            }
+            dao.callBatchTasks(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    for (SimpleEntityNotNull entity : batch) {
+                        dao.create(entity);
+                    }
+                    return null;
+                }
+            });
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        SelectArg lastIdArg = new SelectArg();
+        PreparedQuery<SimpleEntityNotNull> keysetQuery = dao.queryBuilder()
+                .orderBy("_id", true)
+                .limit((long) pageSize)
+                .where().gt("_id", lastIdArg)
+                .prepare();
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities = dao.queryBuilder()
+                        .orderBy("_id", true)
+                        .limit((long) pageSize)
+                        .offset((long) page * pageSize)
+                        .query();
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                lastIdArg.setValue(lastId);
+                List<SimpleEntityNotNull> entities = dao.query(keysetQuery);
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                if (!entities.isEmpty()) {
+                    lastId = entities.get(entities.size() - 1).getId();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll();
+    }
+
+    /**
+     * OrmLite has no join fetching (joins only filter), so {@link Benchmark.Type#RELATION_JOIN}
+     * uses an eager foreign collection ({@link EagerParentEntity}), which queries the children of
+     * each parent while loading the parents.
+     */
+    @Override
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        final Dao<ParentEntity, Long> parentDao = dbHelper.getDao(ParentEntity.class);
+        Dao<EagerParentEntity, Long> eagerParentDao = dbHelper.getDao(EagerParentEntity.class);
+        final Dao<ChildEntity, Long> childDao = dbHelper.getDao(ChildEntity.class);
+        final List<ParentEntity> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            ParentEntity parent = new ParentEntity();
+            parent._id = (long) i;
+            parent.name = createValues(i).simpleString;
+            parents.add(parent);
+        }
+        final List<ChildEntity> children = new ArrayList<>(parentCount * childrenPerParent);
+        for (int i = 0; i < parentCount * childrenPerParent; i++) {
+            EntityValues values = createValues(i);
+            ChildEntity child = new ChildEntity();
+            child._id = (long) i;
+            child.parent = parents.get(i / childrenPerParent);
+            child.name = values.simpleString;
+            child.value = values.simpleInt;
+            children.add(child);
+        }
+        parentDao.callBatchTasks(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                for (ParentEntity parent : parents) {
+                    parentDao.create(parent);
+                }
+                for (ChildEntity child : children) {
+                    childDao.create(child);
+                }
+                return null;
+            }
+        });
+
+        Blackhole blackhole = getBlackhole();
+        startClock();
+        List<EagerParentEntity> eagerParents = eagerParentDao.queryForAll();
+        for (int i = 0; i < eagerParents.size(); i++) {
+            EagerParentEntity parent = eagerParents.get(i);
+            blackhole.consume(parent.name);
+            for (EagerChildEntity child : parent.children) {
+                blackhole.consume(child._id);
+                blackhole.consume(child.name);
+                blackhole.consume(child.value);
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_JOIN);
+
+        startClock();
+        List<ParentEntity> loadedParents = parentDao.queryForAll();
+        for (int i = 0; i < loadedParents.size(); i++) {
+            ParentEntity parent = loadedParents.get(i);
+            blackhole.consume(parent.name);
+            // iterating the lazy collection queries the children (and closes the iterator)
+            for (ChildEntity child : parent.children) {
+                consumeChild(blackhole, child);
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_LAZY);
+
+        startClock();
+        List<ChildEntity> loadedChildren = childDao.queryForAll();
+        for (int i = 0; i < loadedChildren.size(); i++) {
+            ChildEntity child = loadedChildren.get(i);
+            consumeChild(blackhole, child);
+            parentDao.refresh(child.parent);
+            blackhole.consume(child.parent.name);
+        }
+        stopClock(Benchmark.Type.RELATION_TO_ONE);
+
+        dbHelper.getWritableDatabase().execSQL("DELETE FROM CHILD_ENTITY");
+        dbHelper.getWritableDatabase().execSQL("DELETE FROM PARENT_ENTITY");
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
+    private static void consumeChild(Blackhole blackhole, ChildEntity child) {
+        blackhole.consume(child._id);
+        blackhole.consume(child.name);
+        blackhole.consume(child.value);
+    }
+
     private void deleteAll() {
         dbHelper.getWritableDatabase().execSQL("DELETE FROM SIMPLE_ENTITY_NOT_NULL");
     }
@@ -1,22 +1,20 @@
 package de.greenrobot.performance.ormlite;
 
+import de.greenrobot.performance.EntityValues;
+
 public class SimpleEntityNotNullHelper {
-    protected static SimpleEntityNotNull createEntity(Long key) {
-        if (key == null) {
-            return null;
-        }
+    protected static SimpleEntityNotNull createEntity(EntityValues values) {
         SimpleEntityNotNull entity = new SimpleEntityNotNull();
-        entity.setId(key);
-        entity.setSimpleBoolean(true);
-        entity.setSimpleByte(Byte.MAX_VALUE);
-        entity.setSimpleShort(Short.MAX_VALUE);
-        entity.setSimpleInt(Integer.MAX_VALUE);
-        entity.setSimpleLong(Long.MAX_VALUE);
-        entity.setSimpleFloat(Float.MAX_VALUE);
-        entity.setSimpleDouble(Double.MAX_VALUE);
-        entity.setSimpleString("greenrobot greenDAO");
-        byte[] bytes = { 42, -17, 23, 0, 127, -128 };
-        entity.setSimpleByteArray(bytes);
+        entity.setId(values.id);
+        entity.setSimpleBoolean(values.simpleBoolean);
+        entity.setSimpleByte(values.simpleByte);
+        entity.setSimpleShort(values.simpleShort);
+        entity.setSimpleInt(values.simpleInt);
+        entity.setSimpleLong(values.simpleLong);
+        entity.setSimpleFloat(values.simpleFloat);
+        entity.setSimpleDouble(values.simpleDouble);
+        entity.setSimpleString(values.simpleString);
+        entity.setSimpleByteArray(values.simpleByteArray);
         return entity;
     }
 }
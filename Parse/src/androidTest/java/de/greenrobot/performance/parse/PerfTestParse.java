@@ -12,7 +12,9 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
 
 /**
  * https://parse.com/docs/android/guide
@@ -62,19 +64,19 @@ public class PerfTestParse extends BasePerfTestCase {
         ParseObject.registerSubclass(IndexedStringEntity.class);
         setupParse();
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(int count) throws ParseException {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
-            entity.setIndexedString(fixedRandomStrings[i]);
+            entity.setIndexedString(fixedRandomStrings.get(i));
             entities.add(entity);
         }
         log("Built entities.");
@@ -84,16 +86,21 @@ public class PerfTestParse extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(QUERY_COUNT, count - 1);
+        int[] randomIndices = createQueryIndices(QUERY_COUNT, count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < QUERY_COUNT; i++) {
+        for (int i = 0; hasNextOperation(i, QUERY_COUNT); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             ParseQuery<IndexedStringEntity> query = ParseQuery.getQuery(IndexedStringEntity.class);
-            query.whereEqualTo(IndexedStringEntity.INDEXED_STRING, fixedRandomStrings[nextIndex]);
+            query.whereEqualTo(IndexedStringEntity.INDEXED_STRING,
+                    fixedRandomStrings.get(nextIndex));
             //noinspection unused
             List<IndexedStringEntity> result = query.find();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -116,18 +123,23 @@ public class PerfTestParse extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         List<ParseObject> list = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            list.add(createEntity(i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             list.get(i).pin();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             list.get(i).pin();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
@@ -138,7 +150,7 @@ public class PerfTestParse extends BasePerfTestCase {
     protected void doBatchCrudRun(int count) throws Exception {
         List<ParseObject> list = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            list.add(createEntity(i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
@@ -155,18 +167,19 @@ public class PerfTestParse extends BasePerfTestCase {
                 .find();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             ParseObject entity = reloaded.get(i);
-            entity.getBoolean("simpleBoolean");
-            entity.getInt("simpleByte");
-            entity.getInt("simpleShort");
-            entity.getInt("simpleInt");
-            entity.getLong("simpleLong");
-            entity.getDouble("simpleFloat");
-            entity.getDouble("simpleDouble");
-            entity.getString("simpleString");
-            entity.getBytes("simpleByteArray");
+            blackhole.consume(entity.getBoolean("simpleBoolean"));
+            blackhole.consume(entity.getInt("simpleByte"));
+            blackhole.consume(entity.getInt("simpleShort"));
+            blackhole.consume(entity.getInt("simpleInt"));
+            blackhole.consume(entity.getLong("simpleLong"));
+            blackhole.consume(entity.getDouble("simpleFloat"));
+            blackhole.consume(entity.getDouble("simpleDouble"));
+            blackhole.consume(entity.getString("simpleString"));
+            blackhole.consume(entity.getBytes("simpleByteArray"));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -179,18 +192,17 @@ public class PerfTestParse extends BasePerfTestCase {
         ParseObject.unpinAll();
     }
 
-    private ParseObject createEntity(int nr) {
+    private ParseObject createEntity(EntityValues values) {
         ParseObject entity = new ParseObject("SimpleEntity");
-        entity.put("simpleBoolean", true);
-        entity.put("simpleByte", nr & 0xff);
-        entity.put("simpleShort", nr & 0xffff);
-        entity.put("simpleInt", nr);
-        entity.put("simpleLong", Long.MAX_VALUE - nr);
-        entity.put("simpleFloat", (float) (Math.PI * nr));
-        entity.put("simpleDouble", Math.E * nr);
-        entity.put("simpleString", "greenrobot greenDAO");
-        byte[] bytes = { 42, -17, 23, 0, 127, -128 };
-        entity.put("simpleByteArray", bytes);
+        entity.put("simpleBoolean", values.simpleBoolean);
+        entity.put("simpleByte", (int) values.simpleByte);
+        entity.put("simpleShort", (int) values.simpleShort);
+        entity.put("simpleInt", values.simpleInt);
+        entity.put("simpleLong", values.simpleLong);
+        entity.put("simpleFloat", values.simpleFloat);
+        entity.put("simpleDouble", values.simpleDouble);
+        entity.put("simpleString", values.simpleString);
+        entity.put("simpleByteArray", values.simpleByteArray);
         return entity;
     }
 }
@@ -6,9 +6,15 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.ConcurrentDriver;
+import de.greenrobot.performance.CursorWindowCounter;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 import io.realm.Realm;
 import io.realm.RealmConfiguration;
+import io.realm.RealmList;
 import io.realm.RealmQuery;
 import io.realm.RealmResults;
 
@@ -19,6 +25,7 @@ public class PerfTestRealm extends BasePerfTestCase {
 
     private boolean inMemory = false;
 
+    private RealmConfiguration configuration;
     private Realm realm;
 
     @Override
@@ -36,7 +43,8 @@ public class PerfTestRealm extends BasePerfTestCase {
         } else {
             configBuilder.name("ondisk.realm");
         }
-        realm = Realm.getInstance(configBuilder.build());
+        configuration = configBuilder.build();
+        realm = Realm.getInstance(configuration);
     }
 
     @Override
@@ -57,20 +65,20 @@ public class PerfTestRealm extends BasePerfTestCase {
 
     @Override
     protected void doIndexedStringEntityQueries() throws Exception {
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity.setId((long) i);
-            entity.setIndexedString(fixedRandomStrings[i]);
+            entity.setIndexedString(fixedRandomStrings.get(i));
             entities.add(entity);
         }
         log("Built entities.");
@@ -82,20 +90,25 @@ public class PerfTestRealm extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
+            long operationStart = System.nanoTime();
             RealmQuery<IndexedStringEntity> query = realm.where(IndexedStringEntity.class);
-            query.equalTo("indexedString", fixedRandomStrings[nextIndex]);
+            query.equalTo("indexedString", fixedRandomStrings.get(nextIndex));
             RealmResults<IndexedStringEntity> result = query.findAll();
             for (int j = 0, resultSize = result.size(); j < resultSize; j++) {
                 // actually get each entity so its object is reconstructed, same with properties
                 IndexedStringEntity entity = result.get(j);
-                entity.getId();
-                entity.getIndexedString();
+                blackhole.consume(entity.getId());
+                blackhole.consume(entity.getIndexedString());
             }
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -110,34 +123,38 @@ public class PerfTestRealm extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             realm.beginTransaction();
             realm.copyToRealm(list.get(i));
             realm.commitTransaction();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             realm.beginTransaction();
             realm.copyToRealmOrUpdate(list.get(i));
             realm.commitTransaction();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll();
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
@@ -158,19 +175,20 @@ public class PerfTestRealm extends BasePerfTestCase {
 
         // as Realm is not actually loading data, just referencing it,
         // at least make sure we access every property to force it being loaded
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            blackhole.consume(entity.getId());
+            blackhole.consume(entity.getSimpleBoolean());
+            blackhole.consume(entity.getSimpleByte());
+            blackhole.consume(entity.getSimpleShort());
+            blackhole.consume(entity.getSimpleInt());
+            blackhole.consume(entity.getSimpleLong());
+            blackhole.consume(entity.getSimpleFloat());
+            blackhole.consume(entity.getSimpleDouble());
+            blackhole.consume(entity.getSimpleString());
+            blackhole.consume(entity.getSimpleByteArray());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -179,6 +197,265 @@ public class PerfTestRealm extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doConcurrentReadWriteRun(final int readerCount) throws Exception {
+        int count = getBatchSize();
+        final DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
+        List<IndexedStringEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            IndexedStringEntity entity = new IndexedStringEntity();
+            entity.setId((long) i);
+            entity.setIndexedString(fixedRandomStrings.get(i));
+            entities.add(entity);
+        }
+        realm.beginTransaction();
+        realm.insert(entities);
+        realm.commitTransaction();
+        final int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode before starting the threads, readers then only read the decoded strings
+        fixedRandomStrings.prefetch(randomIndices);
+        // build the writer's entities now, while measuring it only sets new ids
+        final List<List<SimpleEntityNotNull>> writerBatches = new ArrayList<>();
+        for (int batchIndex = 0; batchIndex < getWriterBatchCount(count); batchIndex++) {
+            List<SimpleEntityNotNull> batch = new ArrayList<>(CONCURRENT_WRITE_BATCH_SIZE);
+            for (int i = 0; i < CONCURRENT_WRITE_BATCH_SIZE; i++) {
+                batch.add(SimpleEntityNotNullHelper.createEntity(
+                        createWriterValues(batchIndex * CONCURRENT_WRITE_BATCH_SIZE + i)));
+            }
+            writerBatches.add(batch);
+        }
+
+        // Realm instances are thread-confined, each thread gets its own (readers see the version
+        // of when they were opened, which is fine as they only read entities inserted above)
+        runReadersAndWriter(readerCount, new ConcurrentDriver.WorkerFactory() {
+            @Override
+            public ConcurrentDriver.Worker createWorker(final int threadIndex) {
+                final Realm threadRealm = Realm.getInstance(configuration);
+                if (threadIndex == 0) {
+                    return new ConcurrentDriver.Worker() {
+                        private List<SimpleEntityNotNull> batch;
+
+                        @Override
+                        public void execute(int operationIndex) {
+                            // insert a batch with new ids, then update it
+                            threadRealm.beginTransaction();
+                            if (operationIndex % 2 == 0) {
+                                int batchIndex = operationIndex / 2;
+                                batch = writerBatches.get(batchIndex % writerBatches.size());
+                                long firstId = (long) batchIndex * CONCURRENT_WRITE_BATCH_SIZE;
+                                for (int i = 0; i < batch.size(); i++) {
+                                    batch.get(i).setId(firstId + i);
+                                }
+                                threadRealm.insert(batch);
+                            } else {
+                                threadRealm.insertOrUpdate(batch);
+                            }
+                            threadRealm.commitTransaction();
+                        }
+
+                        @Override
+                        public void close() {
+                            threadRealm.close();
+                        }
+                    };
+                }
+                return new ConcurrentDriver.Worker() {
+                    // the shared blackhole is not thread-safe
+                    private final Blackhole blackhole = new Blackhole();
+
+                    @Override
+                    public void execute(int operationIndex) {
+                        // readers take turns through the query indices
+                        int index = (operationIndex * readerCount + threadIndex - 1)
+                                % randomIndices.length;
+                        RealmQuery<IndexedStringEntity> query =
+                                threadRealm.where(IndexedStringEntity.class);
+                        query.equalTo("indexedString",
+                                fixedRandomStrings.get(randomIndices[index]));
+                        RealmResults<IndexedStringEntity> result = query.findAll();
+                        for (int j = 0, resultSize = result.size(); j < resultSize; j++) {
+                            IndexedStringEntity entity = result.get(j);
+                            blackhole.consume(entity.getId());
+                            blackhole.consume(entity.getIndexedString());
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                        threadRealm.close();
+                    }
+                };
+            }
+        });
+
+        // a transaction sees the latest version, including the writer's entities
+        realm.beginTransaction();
+        realm.delete(IndexedStringEntity.class);
+        realm.commitTransaction();
+        deleteAll();
+    }
+
+    @Override
+    protected void doLargeTableStreaming(int count) throws Exception {
+        insertWriterEntities(count);
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            startStreamingClock();
+            // results are lazy, iterating creates a proxy per entity reading the mapped file
+            int rows = 0;
+            for (SimpleEntityNotNull entity : realm.where(SimpleEntityNotNull.class).findAll()) {
+                consume(blackhole, entity);
+                rows++;
+            }
+            // no cursor windows, memory mapped pages are not part of the native heap
+            stopStreamingClock(rows, CursorWindowCounter.UNSUPPORTED);
+            commitRun();
+        }
+
+        deleteAll();
+    }
+
+    /**
+     * Realm queries have no limit (before Realm 5.6), so each page query finds all matching
+     * entities (lazily, without loading them) and only the entities of the page are read.
+     */
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        insertWriterEntities(count);
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                RealmResults<SimpleEntityNotNull> results =
+                        realm.where(SimpleEntityNotNull.class).findAllSorted("id");
+                int end = Math.min((page + 1) * pageSize, results.size());
+                for (int i = page * pageSize; i < end; i++) {
+                    consume(blackhole, results.get(i));
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                RealmResults<SimpleEntityNotNull> results = realm.where(SimpleEntityNotNull.class)
+                        .greaterThan("id", lastId).findAllSorted("id");
+                int end = Math.min(pageSize, results.size());
+                for (int i = 0; i < end; i++) {
+                    SimpleEntityNotNull entity = results.get(i);
+                    consume(blackhole, entity);
+                    lastId = entity.getId();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll();
+    }
+
+    /**
+     * Realm has no joins or eager loading, links are followed when accessed (without queries), so
+     * only {@link Benchmark.Type#RELATION_LAZY} and {@link Benchmark.Type#RELATION_TO_ONE} are
+     * measured.
+     */
+    @Override
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        List<ParentEntity> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            ParentEntity parent = new ParentEntity();
+            parent.setId(i);
+            parent.setName(createValues(i).simpleString);
+            parent.setChildren(new RealmList<ChildEntity>());
+            parents.add(parent);
+        }
+        for (int i = 0; i < parentCount * childrenPerParent; i++) {
+            EntityValues values = createValues(i);
+            ParentEntity parent = parents.get(i / childrenPerParent);
+            ChildEntity child = new ChildEntity();
+            child.setId(i);
+            child.setName(values.simpleString);
+            child.setValue(values.simpleInt);
+            child.setParent(parent);
+            parent.getChildren().add(child);
+        }
+        // inserts the children linked by the parents, too
+        realm.beginTransaction();
+        realm.insert(parents);
+        realm.commitTransaction();
+
+        Blackhole blackhole = getBlackhole();
+        startClock();
+        RealmResults<ParentEntity> loadedParents = realm.where(ParentEntity.class).findAll();
+        for (int i = 0; i < loadedParents.size(); i++) {
+            ParentEntity parent = loadedParents.get(i);
+            blackhole.consume(parent.getName());
+            RealmList<ChildEntity> children = parent.getChildren();
+            for (int j = 0; j < children.size(); j++) {
+                ChildEntity child = children.get(j);
+                blackhole.consume(child.getId());
+                blackhole.consume(child.getName());
+                blackhole.consume(child.getValue());
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_LAZY);
+
+        startClock();
+        RealmResults<ChildEntity> loadedChildren = realm.where(ChildEntity.class).findAll();
+        for (int i = 0; i < loadedChildren.size(); i++) {
+            ChildEntity child = loadedChildren.get(i);
+            blackhole.consume(child.getId());
+            blackhole.consume(child.getName());
+            blackhole.consume(child.getValue());
+            blackhole.consume(child.getParent().getName());
+        }
+        stopClock(Benchmark.Type.RELATION_TO_ONE);
+
+        realm.beginTransaction();
+        realm.delete(ChildEntity.class);
+        realm.delete(ParentEntity.class);
+        realm.commitTransaction();
+    }
+
+    /**
+     * Inserts entities with ids from 0 to count - 1 in transactions of {@link #getBatchSize()}.
+     */
+    private void insertWriterEntities(int count) {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        List<SimpleEntityNotNull> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                batch.add(SimpleEntityNotNullHelper.createEntity(createWriterValues(id)));
+            }
+            realm.beginTransaction();
+            realm.insert(batch);
+            realm.commitTransaction();
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll() {
         realm.beginTransaction();
         realm.delete(SimpleEntityNotNull.class);
@@ -0,0 +1,54 @@
+package de.greenrobot.performance.realm;
+
+import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
+
+/**
+ * Entity with a to-one relation (a link) to {@link ParentEntity}.
+ */
+public class ChildEntity extends RealmObject {
+
+    @PrimaryKey
+    private long id;
+
+    private String name;
+
+    private int value;
+
+    private ParentEntity parent;
+
+    // Be aware that the getters and setters will be overridden by the generated proxy class
+    // used in the back by RealmObjects, so any custom logic you add to the getters & setters
+    // will not actually be executed
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    public ParentEntity getParent() {
+        return parent;
+    }
+
+    public void setParent(ParentEntity parent) {
+        this.parent = parent;
+    }
+}
@@ -0,0 +1,45 @@
+package de.greenrobot.performance.realm;
+
+import io.realm.RealmList;
+import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
+
+/**
+ * Entity with a to-many relation (a list of links) to {@link ChildEntity}.
+ */
+public class ParentEntity extends RealmObject {
+
+    @PrimaryKey
+    private long id;
+
+    private String name;
+
+    private RealmList<ChildEntity> children;
+
+    // Be aware that the getters and setters will be overridden by the generated proxy class
+    // used in the back by RealmObjects, so any custom logic you add to the getters & setters
+    // will not actually be executed
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public RealmList<ChildEntity> getChildren() {
+        return children;
+    }
+
+    public void setChildren(RealmList<ChildEntity> children) {
+        this.children = children;
+    }
+}
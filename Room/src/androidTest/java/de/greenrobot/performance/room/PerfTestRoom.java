@@ -7,7 +7,11 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.ConcurrentDriver;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 
 /**
  * https://developer.android.com/topic/libraries/architecture/room.html
@@ -19,12 +23,14 @@ public class PerfTestRoom extends BasePerfTestCase {
     private AppDatabase db;
     private IndexedStringEntityDao indexedStringEntityDao;
     private SimpleEntityNotNullDao simpleEntityNotNullDao;
+    private RelationDao relationDao;
 
     @Override
     public void setUp() throws Exception {
         db = Room.databaseBuilder(getTargetContext(), AppDatabase.class, DB_NAME).build();
         indexedStringEntityDao = db.indexedStringEntityDao();
         simpleEntityNotNullDao = db.simpleEntityNotNullDao();
+        relationDao = db.relationDao();
     }
 
     @Override
@@ -37,30 +43,34 @@ public class PerfTestRoom extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (long i = 0; i < count; i++) {
-            list.add(createSimpleEntityNotNull(i));
+            list.add(createSimpleEntityNotNull(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             simpleEntityNotNullDao.insert(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             simpleEntityNotNullDao.update(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll();
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (long i = 0; i < count; i++) {
-            list.add(createSimpleEntityNotNull(i));
+            list.add(createSimpleEntityNotNull(createValues(i)));
         }
 
         startClock();
@@ -75,19 +85,10 @@ public class PerfTestRoom extends BasePerfTestCase {
         List<SimpleEntityNotNull> reloaded = simpleEntityNotNullDao.getAll();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
-            SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            consume(blackhole, reloaded.get(i));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -98,21 +99,20 @@ public class PerfTestRoom extends BasePerfTestCase {
 
     @Override
     protected void doIndexedStringEntityQueries() throws Exception {
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(getBatchSize());
+            commitRun();
         }
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     private void indexedStringEntityQueriesRun(int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity.setId((long) i);
-            entity.setIndexedString(fixedRandomStrings[i]);
+            entity.setIndexedString(fixedRandomStrings.get(i));
             entities.add(entity);
         }
         log("Built entities.");
@@ -122,19 +122,24 @@ public class PerfTestRoom extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             List<IndexedStringEntity> result = indexedStringEntityDao
-                    .withIndexedString(fixedRandomStrings[nextIndex]);
+                    .withIndexedString(fixedRandomStrings.get(nextIndex));
             for (int j = 0, resultSize = result.size(); j < resultSize; j++) {
                 IndexedStringEntity entity = result.get(j);
-                entity.getId();
-                entity.getIndexedString();
+                blackhole.consume(entity.getId());
+                blackhole.consume(entity.getIndexedString());
             }
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -143,25 +148,237 @@ public class PerfTestRoom extends BasePerfTestCase {
         log("Deleted all entities.");
     }
 
-    private static SimpleEntityNotNull createSimpleEntityNotNull(Long key) {
-        if (key == null) {
-            return null;
+    @Override
+    protected void doConcurrentReadWriteRun(final int readerCount) throws Exception {
+        // readers do not wait for the writer to commit; Room 1.0 has no journal mode option
+        db.getOpenHelper().getWritableDatabase().enableWriteAheadLogging();
+
+        int count = getBatchSize();
+        final DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
+        List<IndexedStringEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            IndexedStringEntity entity = new IndexedStringEntity();
+            entity.setId((long) i);
+            entity.setIndexedString(fixedRandomStrings.get(i));
+            entities.add(entity);
+        }
+        indexedStringEntityDao.insert(entities);
+        final int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode before starting the threads, readers then only read the decoded strings
+        fixedRandomStrings.prefetch(randomIndices);
+        // build the writer's entities now, while measuring it only sets new ids
+        final List<List<SimpleEntityNotNull>> writerBatches = new ArrayList<>();
+        for (int batchIndex = 0; batchIndex < getWriterBatchCount(count); batchIndex++) {
+            List<SimpleEntityNotNull> batch = new ArrayList<>(CONCURRENT_WRITE_BATCH_SIZE);
+            for (int i = 0; i < CONCURRENT_WRITE_BATCH_SIZE; i++) {
+                batch.add(createSimpleEntityNotNull(
+                        createWriterValues(batchIndex * CONCURRENT_WRITE_BATCH_SIZE + i)));
+            }
+            writerBatches.add(batch);
+        }
+
+        runReadersAndWriter(readerCount, new ConcurrentDriver.WorkerFactory() {
+            @Override
+            public ConcurrentDriver.Worker createWorker(final int threadIndex) {
+                if (threadIndex == 0) {
+                    return new ConcurrentDriver.Worker() {
+                        private List<SimpleEntityNotNull> batch;
+
+                        @Override
+                        public void execute(int operationIndex) {
+                            // insert a batch with new ids, then update it
+                            if (operationIndex % 2 == 0) {
+                                int batchIndex = operationIndex / 2;
+                                batch = writerBatches.get(batchIndex % writerBatches.size());
+                                long firstId = (long) batchIndex * CONCURRENT_WRITE_BATCH_SIZE;
+                                for (int i = 0; i < batch.size(); i++) {
+                                    batch.get(i).setId(firstId + i);
+                                }
+                                simpleEntityNotNullDao.insert(batch);
+                            } else {
+                                simpleEntityNotNullDao.update(batch);
+                            }
+                        }
+
+                        @Override
+                        public void close() {
+                        }
+                    };
+                }
+                return new ConcurrentDriver.Worker() {
+                    // the shared blackhole is not thread-safe
+                    private final Blackhole blackhole = new Blackhole();
+
+                    @Override
+                    public void execute(int operationIndex) {
+                        // readers take turns through the query indices
+                        int index = (operationIndex * readerCount + threadIndex - 1)
+                                % randomIndices.length;
+                        List<IndexedStringEntity> result = indexedStringEntityDao
+                                .withIndexedString(fixedRandomStrings.get(randomIndices[index]));
+                        for (int j = 0, resultSize = result.size(); j < resultSize; j++) {
+                            IndexedStringEntity entity = result.get(j);
+                            blackhole.consume(entity.getId());
+                            blackhole.consume(entity.getIndexedString());
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        });
+
+        indexedStringEntityDao.deleteAll();
+        deleteAll();
+    }
+
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        List<SimpleEntityNotNull> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                batch.add(createSimpleEntityNotNull(createWriterValues(id)));
+            }
+            simpleEntityNotNullDao.insert(batch);
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities =
+                        simpleEntityNotNullDao.getPage(pageSize, page * pageSize);
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                List<SimpleEntityNotNull> entities =
+                        simpleEntityNotNullDao.getPageAfter(lastId, pageSize);
+                for (int i = 0; i < entities.size(); i++) {
+                    consume(blackhole, entities.get(i));
+                }
+                if (!entities.isEmpty()) {
+                    lastId = entities.get(entities.size() - 1).getId();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
         }
+
+        deleteAll();
+    }
+
+    private static SimpleEntityNotNull createSimpleEntityNotNull(EntityValues values) {
         SimpleEntityNotNull entity = new SimpleEntityNotNull();
-        entity.setId(key);
-        entity.setSimpleBoolean(true);
-        entity.setSimpleByte(Byte.MAX_VALUE);
-        entity.setSimpleShort(Short.MAX_VALUE);
-        entity.setSimpleInt(Integer.MAX_VALUE);
-        entity.setSimpleLong(Long.MAX_VALUE);
-        entity.setSimpleFloat(Float.MAX_VALUE);
-        entity.setSimpleDouble(Double.MAX_VALUE);
-        entity.setSimpleString("greenrobot greenDAO");
-        byte[] bytes = {42, -17, 23, 0, 127, -128};
-        entity.setSimpleByteArray(bytes);
+        entity.setId(values.id);
+        entity.setSimpleBoolean(values.simpleBoolean);
+        entity.setSimpleByte(values.simpleByte);
+        entity.setSimpleShort(values.simpleShort);
+        entity.setSimpleInt(values.simpleInt);
+        entity.setSimpleLong(values.simpleLong);
+        entity.setSimpleFloat(values.simpleFloat);
+        entity.setSimpleDouble(values.simpleDouble);
+        entity.setSimpleString(values.simpleString);
+        entity.setSimpleByteArray(values.simpleByteArray);
         return entity;
     }
 
+    @Override
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        List<ParentEntity> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            ParentEntity parent = new ParentEntity();
+            parent.setId(i);
+            parent.setName(createValues(i).simpleString);
+            parents.add(parent);
+        }
+        List<ChildEntity> children = new ArrayList<>(parentCount * childrenPerParent);
+        for (int i = 0; i < parentCount * childrenPerParent; i++) {
+            EntityValues values = createValues(i);
+            ChildEntity child = new ChildEntity();
+            child.setId(i);
+            child.setParentId(i / childrenPerParent);
+            child.setName(values.simpleString);
+            child.setValue(values.simpleInt);
+            children.add(child);
+        }
+        relationDao.insertParents(parents);
+        relationDao.insertChildren(children);
+
+        Blackhole blackhole = getBlackhole();
+        startClock();
+        // @Relation loads the children of all parents with a second query
+        List<ParentWithChildren> parentsWithChildren = relationDao.getParentsWithChildren();
+        for (int i = 0; i < parentsWithChildren.size(); i++) {
+            ParentWithChildren parentWithChildren = parentsWithChildren.get(i);
+            blackhole.consume(parentWithChildren.parent.getName());
+            List<ChildEntity> parentChildren = parentWithChildren.children;
+            for (int j = 0; j < parentChildren.size(); j++) {
+                consumeChild(blackhole, parentChildren.get(j));
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_JOIN);
+
+        startClock();
+        List<ParentEntity> loadedParents = relationDao.getParents();
+        for (int i = 0; i < loadedParents.size(); i++) {
+            ParentEntity parent = loadedParents.get(i);
+            blackhole.consume(parent.getName());
+            List<ChildEntity> parentChildren = relationDao.getChildren(parent.getId());
+            for (int j = 0; j < parentChildren.size(); j++) {
+                consumeChild(blackhole, parentChildren.get(j));
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_LAZY);
+
+        startClock();
+        List<ChildEntity> loadedChildren = relationDao.getChildren();
+        for (int i = 0; i < loadedChildren.size(); i++) {
+            ChildEntity child = loadedChildren.get(i);
+            consumeChild(blackhole, child);
+            blackhole.consume(relationDao.getParent(child.getParentId()).getName());
+        }
+        stopClock(Benchmark.Type.RELATION_TO_ONE);
+
+        relationDao.deleteChildren();
+        relationDao.deleteParents();
+    }
+
+    private static void consumeChild(Blackhole blackhole, ChildEntity child) {
+        blackhole.consume(child.getId());
+        blackhole.consume(child.getName());
+        blackhole.consume(child.getValue());
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll() {
         simpleEntityNotNullDao.deleteAll();
     }
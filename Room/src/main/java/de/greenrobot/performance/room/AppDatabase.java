@@ -3,11 +3,14 @@ package de.greenrobot.performance.room;
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.RoomDatabase;
 
-@Database(entities = {IndexedStringEntity.class, SimpleEntityNotNull.class}, version = 1)
+@Database(entities = {IndexedStringEntity.class, SimpleEntityNotNull.class, ParentEntity.class,
+        ChildEntity.class}, version = 1)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract IndexedStringEntityDao indexedStringEntityDao();
 
     public abstract SimpleEntityNotNullDao simpleEntityNotNullDao();
 
+    public abstract RelationDao relationDao();
+
 }
@@ -0,0 +1,56 @@
+package de.greenrobot.performance.room;
+
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * Entity referencing a {@link ParentEntity}; Room has no to-one relations, so the parent is
+ * queried by its id.
+ */
+@Entity(foreignKeys = @ForeignKey(entity = ParentEntity.class, parentColumns = "id",
+        childColumns = "parentId"), indices = {@Index("parentId")})
+public class ChildEntity {
+
+    @PrimaryKey
+    private long id;
+
+    private long parentId;
+
+    private String name;
+
+    private int value;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(long parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,32 @@
+package de.greenrobot.performance.room;
+
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * Parent of {@link ChildEntity}s, see {@link ParentWithChildren}.
+ */
+@Entity
+public class ParentEntity {
+
+    @PrimaryKey
+    private long id;
+
+    private String name;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,20 @@
+package de.greenrobot.performance.room;
+
+import android.arch.persistence.room.Embedded;
+import android.arch.persistence.room.Relation;
+
+import java.util.List;
+
+/**
+ * A parent with all its children, Room loads the children of all parents of a query with one
+ * additional query.
+ */
+public class ParentWithChildren {
+
+    @Embedded
+    public ParentEntity parent;
+
+    @Relation(parentColumn = "id", entityColumn = "parentId")
+    public List<ChildEntity> children;
+
+}
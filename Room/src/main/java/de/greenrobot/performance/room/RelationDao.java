@@ -0,0 +1,39 @@
+package de.greenrobot.performance.room;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface RelationDao {
+
+    @Insert
+    void insertParents(List<ParentEntity> parents);
+
+    @Insert
+    void insertChildren(List<ChildEntity> children);
+
+    @Query("SELECT * FROM ParentEntity")
+    List<ParentWithChildren> getParentsWithChildren();
+
+    @Query("SELECT * FROM ParentEntity")
+    List<ParentEntity> getParents();
+
+    @Query("SELECT * FROM ParentEntity WHERE id = :id")
+    ParentEntity getParent(long id);
+
+    @Query("SELECT * FROM ChildEntity")
+    List<ChildEntity> getChildren();
+
+    @Query("SELECT * FROM ChildEntity WHERE parentId = :parentId")
+    List<ChildEntity> getChildren(long parentId);
+
+    @Query("DELETE FROM ChildEntity")
+    void deleteChildren();
+
+    @Query("DELETE FROM ParentEntity")
+    void deleteParents();
+
+}
@@ -25,6 +25,14 @@ public interface SimpleEntityNotNullDao {
     @Query("SELECT * FROM SimpleEntityNotNull")
     List<SimpleEntityNotNull> getAll();
 
+    /** Skips the rows before the page, so gets slower the higher the offset. */
+    @Query("SELECT * FROM SimpleEntityNotNull ORDER BY id LIMIT :limit OFFSET :offset")
+    List<SimpleEntityNotNull> getPage(int limit, int offset);
+
+    /** Seeks the page using the primary key (keyset pagination). */
+    @Query("SELECT * FROM SimpleEntityNotNull WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<SimpleEntityNotNull> getPageAfter(long afterId, int limit);
+
     @Query("DELETE FROM SimpleEntityNotNull")
     void deleteAll();
 
@@ -0,0 +1,20 @@
+package de.greenrobot.performance.room;
+
+import android.content.Context;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Runs {@link PerfTestRoom} on the JVM using the SQLite of Robolectric, see
+ * gradle/host-tests.gradle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HostPerfTestRoom extends PerfTestRoom {
+
+    @Override
+    protected Context getTargetContext() {
+        return RuntimeEnvironment.application;
+    }
+}
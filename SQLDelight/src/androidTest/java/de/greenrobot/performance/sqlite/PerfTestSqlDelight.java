@@ -10,7 +10,10 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 import de.greenrobot.performance.sqlite.IndexedStringEntityModel.InsertRow;
 import de.greenrobot.performance.sqlite.SimpleEntityNotNullModel.UpdateRow;
 
@@ -35,15 +38,15 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
         SQLiteDatabase database = dbHelper.getWritableDatabase();
         log("Set up database.");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(database, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(SQLiteDatabase database, int count) {
         // create strings
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         InsertRow insert = new InsertRow(database);
         log("Built entities.");
 
@@ -51,7 +54,7 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
         database.beginTransaction();
         try {
             for (int i = 0; i < count; i++) {
-                insert.bind((long) i, fixedRandomStrings[i]);
+                insert.bind((long) i, fixedRandomStrings.get(i));
                 insert.program.executeInsert();
             }
             database.setTransactionSuccessful();
@@ -61,14 +64,17 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             SqlDelightStatement query = IndexedStringEntity.FACTORY
-                    .with_string(fixedRandomStrings[nextIndex]);
+                    .with_string(fixedRandomStrings.get(nextIndex));
             Cursor cursor = database.rawQuery(query.statement, query.args);
             // do NO null checks and count checks, should throw to indicate something is incorrect
             cursor.moveToFirst();
@@ -78,6 +84,7 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
             IndexedStringEntity entity = IndexedStringEntity.MAPPER.map(cursor);
 
             cursor.close();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -100,13 +107,14 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createSimpleEntityNotNull((long) i));
+            list.add(createSimpleEntityNotNull(createValues(i)));
         }
 
         SimpleEntityNotNullModel.InsertRow insert = new SimpleEntityNotNull.InsertRow(database);
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
             SimpleEntityNotNull entity = list.get(i);
+            long operationStart = System.nanoTime();
             insert.bind(
                     entity._id(),
                     entity.simple_boolean(),
@@ -120,13 +128,16 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
                     entity.simple_byte_array()
             );
             insert.program.executeInsert();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         UpdateRow update = new UpdateRow(database);
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
             SimpleEntityNotNull entity = list.get(i);
+            long operationStart = System.nanoTime();
             update.bind(
                     entity.simple_boolean(),
                     entity.simple_byte(),
@@ -140,6 +151,7 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
                     entity._id()
             );
             update.program.executeUpdateDelete();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
@@ -150,7 +162,7 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createSimpleEntityNotNull((long) i));
+            list.add(createSimpleEntityNotNull(createValues(i)));
         }
 
         SimpleEntityNotNullModel.InsertRow insert = new SimpleEntityNotNull.InsertRow(database);
@@ -216,19 +228,20 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
         cursor.close();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            entity._id();
-            entity.simple_boolean();
-            entity.simple_byte();
-            entity.simple_short();
-            entity.simple_int();
-            entity.simple_long();
-            entity.simple_float();
-            entity.simple_double();
-            entity.simple_string();
-            entity.simple_byte_array();
+            blackhole.consume(entity._id());
+            blackhole.consume(entity.simple_boolean());
+            blackhole.consume(entity.simple_byte());
+            blackhole.consume(entity.simple_short());
+            blackhole.consume(entity.simple_int());
+            blackhole.consume(entity.simple_long());
+            blackhole.consume(entity.simple_float());
+            blackhole.consume(entity.simple_double());
+            blackhole.consume(entity.simple_string());
+            blackhole.consume(entity.simple_byte_array());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -237,23 +250,112 @@ public class PerfTestSqlDelight extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        SimpleEntityNotNullModel.InsertRow insert = new SimpleEntityNotNull.InsertRow(database);
+        int batchSize = getBatchSize();
+        for (int first = 0; first < count; first += batchSize) {
+            database.beginTransaction();
+            try {
+                for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                    SimpleEntityNotNull entity =
+                            createSimpleEntityNotNull(createWriterValues(id));
+                    insert.bind(
+                            entity._id(),
+                            entity.simple_boolean(),
+                            entity.simple_byte(),
+                            entity.simple_short(),
+                            entity.simple_int(),
+                            entity.simple_long(),
+                            entity.simple_float(),
+                            entity.simple_double(),
+                            entity.simple_string(),
+                            entity.simple_byte_array()
+                    );
+                    insert.program.executeInsert();
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                SqlDelightStatement query = SimpleEntityNotNull.FACTORY
+                        .select_page(pageSize, (long) page * pageSize);
+                Cursor cursor = database.rawQuery(query.statement, query.args);
+                try {
+                    while (cursor.moveToNext()) {
+                        consume(blackhole, SimpleEntityNotNull.MAPPER.map(cursor));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                SqlDelightStatement query = SimpleEntityNotNull.FACTORY
+                        .select_page_after(lastId, pageSize);
+                Cursor cursor = database.rawQuery(query.statement, query.args);
+                try {
+                    while (cursor.moveToNext()) {
+                        SimpleEntityNotNull entity = SimpleEntityNotNull.MAPPER.map(cursor);
+                        consume(blackhole, entity);
+                        lastId = entity._id();
+                    }
+                } finally {
+                    cursor.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity._id());
+        blackhole.consume(entity.simple_boolean());
+        blackhole.consume(entity.simple_byte());
+        blackhole.consume(entity.simple_short());
+        blackhole.consume(entity.simple_int());
+        blackhole.consume(entity.simple_long());
+        blackhole.consume(entity.simple_float());
+        blackhole.consume(entity.simple_double());
+        blackhole.consume(entity.simple_string());
+        blackhole.consume(entity.simple_byte_array());
+    }
+
     private void deleteAll(SQLiteDatabase database) {
         database.delete(SimpleEntityNotNull.TABLE_NAME, null, null);
     }
 
-    private SimpleEntityNotNull createSimpleEntityNotNull(long id) {
-        byte[] bytes = {42, -17, 23, 0, 127, -128};
+    private SimpleEntityNotNull createSimpleEntityNotNull(EntityValues values) {
         return SimpleEntityNotNull.FACTORY.creator.create(
-                id,
-                true,
-                Byte.MAX_VALUE,
-                Short.MAX_VALUE,
-                Integer.MAX_VALUE,
-                Long.MAX_VALUE,
-                Float.MAX_VALUE,
-                Double.MAX_VALUE,
-                "greenrobot greenDAO",
-                bytes
+                values.id,
+                values.simpleBoolean,
+                values.simpleByte,
+                values.simpleShort,
+                values.simpleInt,
+                values.simpleLong,
+                values.simpleFloat,
+                values.simpleDouble,
+                values.simpleString,
+                values.simpleByteArray
         );
     }
 
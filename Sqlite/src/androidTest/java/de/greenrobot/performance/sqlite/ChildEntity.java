@@ -0,0 +1,18 @@
+package de.greenrobot.performance.sqlite;
+
+/**
+ * Entity with a to-one relation to {@link ParentEntity}.
+ */
+public class ChildEntity {
+
+    public long _id;
+
+    public long parentId;
+
+    public String name;
+
+    public int value;
+
+    public ParentEntity parent;
+
+}
@@ -0,0 +1,16 @@
+package de.greenrobot.performance.sqlite;
+
+import java.util.List;
+
+/**
+ * Entity with a to-many relation to {@link ChildEntity}.
+ */
+public class ParentEntity {
+
+    public long _id;
+
+    public String name;
+
+    public List<ChildEntity> children;
+
+}
@@ -11,7 +11,14 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.ConcurrentDriver;
+import de.greenrobot.performance.CursorWindowCounter;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.OpenLoopDriver;
+import de.greenrobot.performance.PageLatencies;
+import de.greenrobot.performance.SqliteConfiguration;
 
 /**
  * https://bitbucket.org/qbusict/cupboard/wiki/GettingStarted
@@ -31,25 +38,21 @@ public class PerfTestSqlite extends BasePerfTestCase {
 
     @Override
     protected void doIndexedStringEntityQueries() throws Exception {
-        // set up database
-        DbHelper dbHelper = new DbHelper(getTargetContext(), DATABASE_NAME, DATABASE_VERSION);
-        SQLiteDatabase database = dbHelper.getWritableDatabase();
-        log("Set up database.");
-
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        // database was set up by onRunSetup()
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(database, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(SQLiteDatabase database, int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity._id = (long) i;
-            entity.indexedString = fixedRandomStrings[i];
+            entity.indexedString = fixedRandomStrings.get(i);
             entities.add(entity);
         }
         log("Built entities.");
@@ -74,15 +77,18 @@ public class PerfTestSqlite extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             Cursor query = database.query(DbHelper.Tables.INDEXED_ENTITY,
                     IndexedQuery.PROJECTION, DbHelper.IndexedEntityColumns.INDEXED_STRING + "=?",
-                    new String[] { fixedRandomStrings[nextIndex] }, null, null, null, null);
+                    new String[] { fixedRandomStrings.get(nextIndex) }, null, null, null, null);
             // do NO null checks and count checks, should throw to indicate something is incorrect
             query.moveToFirst();
 
@@ -92,6 +98,7 @@ public class PerfTestSqlite extends BasePerfTestCase {
             entity.indexedString = query.getString(1);
 
             query.close();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -100,53 +107,114 @@ public class PerfTestSqlite extends BasePerfTestCase {
         log("Deleted all entities.");
     }
 
+    @Override
+    protected List<String> getConfigurations() {
+        return SqliteConfiguration.getMatrix(getArgument(ARG_JOURNAL_MODES),
+                getArgument(ARG_SYNCHRONOUS_MODES));
+    }
+
     @Override
     protected void onRunSetup() throws Exception {
         super.onRunSetup();
 
-        // set up database
+        // set up database, again for each configuration
+        if (database != null) {
+            database.close();
+        }
         DbHelper dbHelper = new DbHelper(getTargetContext(), DATABASE_NAME, DATABASE_VERSION);
         database = dbHelper.getWritableDatabase();
+        applyConfiguration(database);
+        log("Set up database.");
+    }
+
+    private SqliteConfiguration getSqliteConfiguration() {
+        String configuration = getConfiguration();
+        return configuration != null ? SqliteConfiguration.parse(configuration) : null;
+    }
+
+    private void applyConfiguration(SQLiteDatabase database) {
+        SqliteConfiguration configuration = getSqliteConfiguration();
+        if (configuration == null) {
+            return;
+        }
+        String journalMode = configuration.getJournalMode();
+        if (journalMode != null) {
+            // the framework manages WAL itself (e.g. opens connections for concurrent reads)
+            if (configuration.isWal()) {
+                database.enableWriteAheadLogging();
+            } else {
+                database.disableWriteAheadLogging();
+                queryPragma(database, configuration.getJournalModePragma());
+            }
+            String actual = queryPragma(database, "PRAGMA journal_mode");
+            if (!journalMode.equalsIgnoreCase(actual)) {
+                throw new RuntimeException("Could not set journal mode " + journalMode
+                        + ", is " + actual);
+            }
+        }
+        if (configuration.getSynchronous() != null) {
+            // after the journal mode, changing it resets the framework's synchronous setting
+            database.execSQL(configuration.getSynchronousPragma());
+            String actual = queryPragma(database, "PRAGMA synchronous");
+            if (!String.valueOf(configuration.getSynchronousValue()).equals(actual)) {
+                throw new RuntimeException("Could not set synchronous "
+                        + configuration.getSynchronous() + ", is " + actual);
+            }
+        }
+        log("Database configuration " + configuration + ".");
+    }
+
+    private static String queryPragma(SQLiteDatabase database, String pragma) {
+        Cursor cursor = database.rawQuery(pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
     }
 
     @Override
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
         ContentValues values = new ContentValues();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
             SimpleEntityNotNull entity = list.get(i);
+            long operationStart = System.nanoTime();
             values.put(DbHelper.SimpleEntityColumns._ID, entity.getId());
             buildContentValues(values, entity);
             database.insert(DbHelper.Tables.SIMPLE_ENTITY, null, values);
             values.clear();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
             SimpleEntityNotNull entity = list.get(i);
+            long operationStart = System.nanoTime();
             buildContentValues(values, entity);
             database.update(DbHelper.Tables.SIMPLE_ENTITY, values,
                     DbHelper.SimpleEntityColumns._ID + "=" + entity.getId(),
                     null);
             values.clear();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll(database);
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
@@ -189,35 +257,15 @@ public class PerfTestSqlite extends BasePerfTestCase {
         Cursor query = database.query(DbHelper.Tables.SIMPLE_ENTITY, SimpleQuery.PROJECTION, null,
                 null, null, null, null, null);
         while (query.moveToNext()) {
-            SimpleEntityNotNull entity = new SimpleEntityNotNull();
-            entity.setId(query.getLong(0));
-            entity.setSimpleBoolean(query.getInt(1) == 1);
-            entity.setSimpleByte((byte) query.getInt(2));
-            entity.setSimpleShort(query.getShort(3));
-            entity.setSimpleInt(query.getInt(4));
-            entity.setSimpleLong(query.getLong(5));
-            entity.setSimpleFloat(query.getFloat(6));
-            entity.setSimpleDouble(query.getDouble(7));
-            entity.setSimpleString(query.getString(8));
-            entity.setSimpleByteArray(query.getBlob(9));
-            reloaded.add(entity);
+            reloaded.add(readEntity(query));
         }
         query.close();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
-            SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            consume(blackhole, reloaded.get(i));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -226,6 +274,481 @@ public class PerfTestSqlite extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doOpenLoopRun() throws Exception {
+        final int count = getBatchSize();
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < count; i++) {
+                insert(database, values, SimpleEntityNotNullHelper.createEntity(createValues(i)));
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // one writer (SQLite allows only one anyway), readers share the other threads
+        final int readerCount = Math.max(1, getThreadCount() - 1);
+        OpenLoopDriver driver = createOpenLoopDriver();
+        final List<SimpleEntityNotNull> inserts = new ArrayList<>();
+        for (int i = 0; i < driver.getScheduledOperations(getWriteRate()); i++) {
+            inserts.add(SimpleEntityNotNullHelper.createEntity(createValues(count + i)));
+        }
+        final int[] readIndices = createQueryIndices(count, count - 1);
+
+        driver.addStream(Benchmark.Type.OPEN_LOOP_WRITE.getMetric(), getWriteRate(), 1,
+                new ConcurrentDriver.WorkerFactory() {
+                    @Override
+                    public ConcurrentDriver.Worker createWorker(int threadIndex) {
+                        return new ConcurrentDriver.Worker() {
+                            private final ContentValues values = new ContentValues();
+
+                            @Override
+                            public void execute(int operationIndex) {
+                                insert(database, values, inserts.get(operationIndex));
+                            }
+
+                            @Override
+                            public void close() {
+                            }
+                        };
+                    }
+                });
+        driver.addStream(Benchmark.Type.OPEN_LOOP_READ.getMetric(), getReadRate(), readerCount,
+                new ConcurrentDriver.WorkerFactory() {
+                    @Override
+                    public ConcurrentDriver.Worker createWorker(final int threadIndex) {
+                        return new ConcurrentDriver.Worker() {
+                            // the shared blackhole is not thread-safe
+                            private final Blackhole blackhole = new Blackhole();
+                            private final String[] selectionArgs = new String[1];
+
+                            @Override
+                            public void execute(int operationIndex) {
+                                int index = (operationIndex * readerCount + threadIndex)
+                                        % readIndices.length;
+                                selectionArgs[0] = Long.toString(readIndices[index]);
+                                Cursor query = database.query(DbHelper.Tables.SIMPLE_ENTITY,
+                                        SimpleQuery.PROJECTION,
+                                        DbHelper.SimpleEntityColumns._ID + "=?", selectionArgs,
+                                        null, null, null);
+                                try {
+                                    while (query.moveToNext()) {
+                                        consume(blackhole, readEntity(query));
+                                    }
+                                } finally {
+                                    query.close();
+                                }
+                            }
+
+                            @Override
+                            public void close() {
+                            }
+                        };
+                    }
+                });
+        runOpenLoop(driver);
+
+        deleteAll(database);
+    }
+
+    @Override
+    protected void doConcurrentReadWriteRun(final int readerCount) throws Exception {
+        // readers do not wait for the writer to commit, unless another journal mode is configured
+        SqliteConfiguration configuration = getSqliteConfiguration();
+        if (configuration == null || configuration.getJournalMode() == null) {
+            database.enableWriteAheadLogging();
+        }
+
+        int count = getBatchSize();
+        final DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < count; i++) {
+                values.put(DbHelper.IndexedEntityColumns._ID, i);
+                values.put(DbHelper.IndexedEntityColumns.INDEXED_STRING, fixedRandomStrings.get(i));
+                database.insert(DbHelper.Tables.INDEXED_ENTITY, null, values);
+                values.clear();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        final int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode before starting the threads, readers then only read the decoded strings
+        fixedRandomStrings.prefetch(randomIndices);
+        // build the writer's entities now, while measuring it only sets new ids
+        final List<List<SimpleEntityNotNull>> writerBatches = new ArrayList<>();
+        for (int batchIndex = 0; batchIndex < getWriterBatchCount(count); batchIndex++) {
+            List<SimpleEntityNotNull> batch = new ArrayList<>(CONCURRENT_WRITE_BATCH_SIZE);
+            for (int i = 0; i < CONCURRENT_WRITE_BATCH_SIZE; i++) {
+                batch.add(SimpleEntityNotNullHelper.createEntity(
+                        createWriterValues(batchIndex * CONCURRENT_WRITE_BATCH_SIZE + i)));
+            }
+            writerBatches.add(batch);
+        }
+
+        runReadersAndWriter(readerCount, new ConcurrentDriver.WorkerFactory() {
+            @Override
+            public ConcurrentDriver.Worker createWorker(final int threadIndex) {
+                if (threadIndex == 0) {
+                    return new ConcurrentDriver.Worker() {
+                        private final ContentValues values = new ContentValues();
+                        private List<SimpleEntityNotNull> batch;
+
+                        @Override
+                        public void execute(int operationIndex) {
+                            // insert a batch with new ids, then update it
+                            if (operationIndex % 2 == 0) {
+                                int batchIndex = operationIndex / 2;
+                                batch = writerBatches.get(batchIndex % writerBatches.size());
+                                long firstId = (long) batchIndex * CONCURRENT_WRITE_BATCH_SIZE;
+                                for (int i = 0; i < batch.size(); i++) {
+                                    batch.get(i).setId(firstId + i);
+                                }
+                            }
+                            database.beginTransaction();
+                            try {
+                                for (int i = 0; i < batch.size(); i++) {
+                                    SimpleEntityNotNull entity = batch.get(i);
+                                    if (operationIndex % 2 == 0) {
+                                        insert(database, values, entity);
+                                    } else {
+                                        buildContentValues(values, entity);
+                                        database.update(DbHelper.Tables.SIMPLE_ENTITY, values,
+                                                DbHelper.SimpleEntityColumns._ID + "="
+                                                        + entity.getId(), null);
+                                        values.clear();
+                                    }
+                                }
+                                database.setTransactionSuccessful();
+                            } finally {
+                                database.endTransaction();
+                            }
+                        }
+
+                        @Override
+                        public void close() {
+                        }
+                    };
+                }
+                return new ConcurrentDriver.Worker() {
+                    // the shared blackhole is not thread-safe
+                    private final Blackhole blackhole = new Blackhole();
+                    private final String[] selectionArgs = new String[1];
+
+                    @Override
+                    public void execute(int operationIndex) {
+                        // readers take turns through the query indices
+                        int index = (operationIndex * readerCount + threadIndex - 1)
+                                % randomIndices.length;
+                        selectionArgs[0] = fixedRandomStrings.get(randomIndices[index]);
+                        Cursor query = database.query(DbHelper.Tables.INDEXED_ENTITY,
+                                IndexedQuery.PROJECTION,
+                                DbHelper.IndexedEntityColumns.INDEXED_STRING + "=?",
+                                selectionArgs, null, null, null, null);
+                        try {
+                            query.moveToFirst();
+                            IndexedStringEntity entity = new IndexedStringEntity();
+                            entity._id = query.getLong(0);
+                            entity.indexedString = query.getString(1);
+                            blackhole.consume(entity._id);
+                            blackhole.consume(entity.indexedString);
+                        } finally {
+                            query.close();
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        });
+
+        database.delete(DbHelper.Tables.INDEXED_ENTITY, null, null);
+        deleteAll(database);
+    }
+
+    @Override
+    protected void doLargeTableStreaming(int count) throws Exception {
+        insertWriterEntities(count);
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            startStreamingClock();
+            Cursor query = database.query(DbHelper.Tables.SIMPLE_ENTITY, SimpleQuery.PROJECTION,
+                    null, null, null, null, null, null);
+            CursorWindowCounter windowCounter = new CursorWindowCounter(query);
+            int rows = 0;
+            try {
+                // read entities one at a time, none is kept
+                while (query.moveToNext()) {
+                    windowCounter.onMove();
+                    consume(blackhole, readEntity(query));
+                    rows++;
+                }
+            } finally {
+                query.close();
+            }
+            stopStreamingClock(rows, windowCounter.getFills());
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        insertWriterEntities(count);
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < SimpleQuery.PROJECTION.length; i++) {
+            select.append(i > 0 ? "," : "").append(SimpleQuery.PROJECTION[i]);
+        }
+        select.append(" FROM ").append(DbHelper.Tables.SIMPLE_ENTITY);
+        String offsetSql = select + " ORDER BY " + DbHelper.SimpleEntityColumns._ID
+                + " LIMIT ? OFFSET ?";
+        String keysetSql = select + " WHERE " + DbHelper.SimpleEntityColumns._ID + ">? ORDER BY "
+                + DbHelper.SimpleEntityColumns._ID + " LIMIT ?";
+        String limit = String.valueOf(pageSize);
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                Cursor query = database.rawQuery(offsetSql,
+                        new String[] { limit, String.valueOf(page * pageSize) });
+                try {
+                    while (query.moveToNext()) {
+                        consume(blackhole, readEntity(query));
+                    }
+                } finally {
+                    query.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                Cursor query = database.rawQuery(keysetSql,
+                        new String[] { String.valueOf(lastId), limit });
+                try {
+                    while (query.moveToNext()) {
+                        SimpleEntityNotNull entity = readEntity(query);
+                        consume(blackhole, entity);
+                        lastId = entity.getId();
+                    }
+                } finally {
+                    query.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    @Override
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < parentCount; i++) {
+                values.put(DbHelper.ParentColumns._ID, i);
+                values.put(DbHelper.ParentColumns.NAME, createValues(i).simpleString);
+                database.insert(DbHelper.Tables.PARENT_ENTITY, null, values);
+                values.clear();
+            }
+            for (int i = 0; i < parentCount * childrenPerParent; i++) {
+                EntityValues childValues = createValues(i);
+                values.put(DbHelper.ChildColumns._ID, i);
+                values.put(DbHelper.ChildColumns.PARENT_ID, i / childrenPerParent);
+                values.put(DbHelper.ChildColumns.NAME, childValues.simpleString);
+                values.put(DbHelper.ChildColumns.VALUE, childValues.simpleInt);
+                database.insert(DbHelper.Tables.CHILD_ENTITY, null, values);
+                values.clear();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        Blackhole blackhole = getBlackhole();
+        startClock();
+        List<ParentEntity> parents = new ArrayList<>(parentCount);
+        // parent columns are repeated for each of its children
+        Cursor query = database.rawQuery(RelationQuery.JOIN, null);
+        try {
+            ParentEntity parent = null;
+            while (query.moveToNext()) {
+                long parentId = query.getLong(0);
+                if (parent == null || parent._id != parentId) {
+                    parent = new ParentEntity();
+                    parent._id = parentId;
+                    parent.name = query.getString(1);
+                    parent.children = new ArrayList<>(childrenPerParent);
+                    parents.add(parent);
+                }
+                parent.children.add(readChild(query, 2));
+            }
+        } finally {
+            query.close();
+        }
+        consumeParents(blackhole, parents);
+        stopClock(Benchmark.Type.RELATION_JOIN);
+
+        startClock();
+        parents = queryParents(null, null);
+        String[] selectionArgs = new String[1];
+        for (int i = 0; i < parents.size(); i++) {
+            ParentEntity parent = parents.get(i);
+            selectionArgs[0] = String.valueOf(parent._id);
+            parent.children = queryChildren(DbHelper.ChildColumns.PARENT_ID + "=?",
+                    selectionArgs);
+        }
+        consumeParents(blackhole, parents);
+        stopClock(Benchmark.Type.RELATION_LAZY);
+
+        startClock();
+        List<ChildEntity> children = queryChildren(null, null);
+        for (int i = 0; i < children.size(); i++) {
+            ChildEntity child = children.get(i);
+            selectionArgs[0] = String.valueOf(child.parentId);
+            child.parent = queryParents(DbHelper.ParentColumns._ID + "=?", selectionArgs).get(0);
+            consumeChild(blackhole, child);
+            blackhole.consume(child.parent.name);
+        }
+        stopClock(Benchmark.Type.RELATION_TO_ONE);
+
+        database.delete(DbHelper.Tables.CHILD_ENTITY, null, null);
+        database.delete(DbHelper.Tables.PARENT_ENTITY, null, null);
+    }
+
+    private List<ParentEntity> queryParents(String selection, String[] selectionArgs) {
+        List<ParentEntity> parents = new ArrayList<>();
+        Cursor query = database.query(DbHelper.Tables.PARENT_ENTITY,
+                RelationQuery.PARENT_PROJECTION, selection, selectionArgs, null, null, null);
+        try {
+            while (query.moveToNext()) {
+                ParentEntity parent = new ParentEntity();
+                parent._id = query.getLong(0);
+                parent.name = query.getString(1);
+                parents.add(parent);
+            }
+        } finally {
+            query.close();
+        }
+        return parents;
+    }
+
+    private List<ChildEntity> queryChildren(String selection, String[] selectionArgs) {
+        List<ChildEntity> children = new ArrayList<>();
+        Cursor query = database.query(DbHelper.Tables.CHILD_ENTITY,
+                RelationQuery.CHILD_PROJECTION, selection, selectionArgs, null, null, null);
+        try {
+            while (query.moveToNext()) {
+                children.add(readChild(query, 0));
+            }
+        } finally {
+            query.close();
+        }
+        return children;
+    }
+
+    /** Reads the columns of {@link RelationQuery#CHILD_PROJECTION} starting at the index. */
+    private static ChildEntity readChild(Cursor query, int firstColumn) {
+        ChildEntity child = new ChildEntity();
+        child._id = query.getLong(firstColumn);
+        child.parentId = query.getLong(firstColumn + 1);
+        child.name = query.getString(firstColumn + 2);
+        child.value = query.getInt(firstColumn + 3);
+        return child;
+    }
+
+    private static void consumeParents(Blackhole blackhole, List<ParentEntity> parents) {
+        for (int i = 0; i < parents.size(); i++) {
+            ParentEntity parent = parents.get(i);
+            blackhole.consume(parent.name);
+            for (int j = 0; j < parent.children.size(); j++) {
+                consumeChild(blackhole, parent.children.get(j));
+            }
+        }
+    }
+
+    private static void consumeChild(Blackhole blackhole, ChildEntity child) {
+        blackhole.consume(child._id);
+        blackhole.consume(child.name);
+        blackhole.consume(child.value);
+    }
+
+    /**
+     * Inserts entities with ids from 0 to count - 1 in transactions of {@link #getBatchSize()}.
+     */
+    private void insertWriterEntities(int count) {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        ContentValues values = new ContentValues();
+        for (int first = 0; first < count; first += batchSize) {
+            database.beginTransaction();
+            try {
+                for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                    insert(database, values,
+                            SimpleEntityNotNullHelper.createEntity(createWriterValues(id)));
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+    }
+
+    private void insert(SQLiteDatabase database, ContentValues values,
+            SimpleEntityNotNull entity) {
+        values.put(DbHelper.SimpleEntityColumns._ID, entity.getId());
+        buildContentValues(values, entity);
+        database.insert(DbHelper.Tables.SIMPLE_ENTITY, null, values);
+        values.clear();
+    }
+
+    private static SimpleEntityNotNull readEntity(Cursor query) {
+        SimpleEntityNotNull entity = new SimpleEntityNotNull();
+        entity.setId(query.getLong(0));
+        entity.setSimpleBoolean(query.getInt(1) == 1);
+        entity.setSimpleByte((byte) query.getInt(2));
+        entity.setSimpleShort(query.getShort(3));
+        entity.setSimpleInt(query.getInt(4));
+        entity.setSimpleLong(query.getLong(5));
+        entity.setSimpleFloat(query.getFloat(6));
+        entity.setSimpleDouble(query.getDouble(7));
+        entity.setSimpleString(query.getString(8));
+        entity.setSimpleByteArray(query.getBlob(9));
+        return entity;
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll(SQLiteDatabase database) {
         database.delete(DbHelper.Tables.SIMPLE_ENTITY, null, null);
     }
@@ -249,6 +772,27 @@ public class PerfTestSqlite extends BasePerfTestCase {
         };
     }
 
+    private interface RelationQuery {
+        String[] PARENT_PROJECTION = new String[] {
+                DbHelper.ParentColumns._ID, // 0
+                DbHelper.ParentColumns.NAME
+        };
+        String[] CHILD_PROJECTION = new String[] {
+                DbHelper.ChildColumns._ID, // 0
+                DbHelper.ChildColumns.PARENT_ID,
+                DbHelper.ChildColumns.NAME, // 2
+                DbHelper.ChildColumns.VALUE
+        };
+        /** Parent columns followed by {@link #CHILD_PROJECTION}, ordered by parent. */
+        String JOIN = "SELECT P." + DbHelper.ParentColumns._ID
+                + ", P." + DbHelper.ParentColumns.NAME
+                + ", C." + DbHelper.ChildColumns._ID + ", C." + DbHelper.ChildColumns.PARENT_ID
+                + ", C." + DbHelper.ChildColumns.NAME + ", C." + DbHelper.ChildColumns.VALUE
+                + " FROM " + DbHelper.Tables.PARENT_ENTITY + " P JOIN "
+                + DbHelper.Tables.CHILD_ENTITY + " C ON C." + DbHelper.ChildColumns.PARENT_ID
+                + "=P." + DbHelper.ParentColumns._ID + " ORDER BY P." + DbHelper.ParentColumns._ID;
+    }
+
     private interface SimpleQuery {
         String[] PROJECTION = new String[] {
                 DbHelper.SimpleEntityColumns._ID, // 0
@@ -269,6 +813,8 @@ public class PerfTestSqlite extends BasePerfTestCase {
         public interface Tables {
             String SIMPLE_ENTITY = "SIMPLE_ENTITY_NOT_NULL";
             String INDEXED_ENTITY = "INDEXED_STRING_ENTITY";
+            String PARENT_ENTITY = "PARENT_ENTITY";
+            String CHILD_ENTITY = "CHILD_ENTITY";
         }
 
         public interface SimpleEntityColumns {
@@ -289,6 +835,18 @@ public class PerfTestSqlite extends BasePerfTestCase {
             String INDEXED_STRING = "INDEXED_STRING";
         }
 
+        public interface ParentColumns {
+            String _ID = "_id";
+            String NAME = "NAME";
+        }
+
+        public interface ChildColumns {
+            String _ID = "_id";
+            String PARENT_ID = "PARENT_ID";
+            String NAME = "NAME";
+            String VALUE = "VALUE";
+        }
+
         private static final String CREATE_SIMPLE_ENTITY_TABLE =
                 "CREATE TABLE " + Tables.SIMPLE_ENTITY
                         + " ("
@@ -315,6 +873,27 @@ public class PerfTestSqlite extends BasePerfTestCase {
                 "CREATE INDEX indexed_string ON " + Tables.INDEXED_ENTITY + "("
                         + IndexedEntityColumns.INDEXED_STRING + ")";
 
+        private static final String CREATE_PARENT_ENTITY_TABLE =
+                "CREATE TABLE " + Tables.PARENT_ENTITY
+                        + " ("
+                        + ParentColumns._ID + " INTEGER PRIMARY KEY NOT NULL ," // 0
+                        + ParentColumns.NAME + " TEXT NOT NULL " // 1
+                        + ")";
+
+        private static final String CREATE_CHILD_ENTITY_TABLE =
+                "CREATE TABLE " + Tables.CHILD_ENTITY
+                        + " ("
+                        + ChildColumns._ID + " INTEGER PRIMARY KEY NOT NULL ," // 0
+                        + ChildColumns.PARENT_ID + " INTEGER NOT NULL REFERENCES "
+                        + Tables.PARENT_ENTITY + "(" + ParentColumns._ID + ")," // 1
+                        + ChildColumns.NAME + " TEXT NOT NULL ," // 2
+                        + ChildColumns.VALUE + " INTEGER NOT NULL " // 3
+                        + ")";
+
+        private static final String CREATE_INDEX_ON_PARENT_ID =
+                "CREATE INDEX child_parent_id ON " + Tables.CHILD_ENTITY + "("
+                        + ChildColumns.PARENT_ID + ")";
+
         public DbHelper(Context context, String name, int version) {
             super(context, name, null, version);
         }
@@ -324,12 +903,17 @@ public class PerfTestSqlite extends BasePerfTestCase {
             db.execSQL(CREATE_SIMPLE_ENTITY_TABLE);
             db.execSQL(CREATE_INDEXED_STRING_ENTITY_TABLE);
             db.execSQL(CREATE_INDEX_ON_STRING);
+            db.execSQL(CREATE_PARENT_ENTITY_TABLE);
+            db.execSQL(CREATE_CHILD_ENTITY_TABLE);
+            db.execSQL(CREATE_INDEX_ON_PARENT_ID);
         }
 
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
             db.execSQL("DROP TABLE IF EXISTS " + Tables.SIMPLE_ENTITY);
             db.execSQL("DROP TABLE IF EXISTS " + Tables.INDEXED_ENTITY);
+            db.execSQL("DROP TABLE IF EXISTS " + Tables.CHILD_ENTITY);
+            db.execSQL("DROP TABLE IF EXISTS " + Tables.PARENT_ENTITY);
             onCreate(db);
         }
     }
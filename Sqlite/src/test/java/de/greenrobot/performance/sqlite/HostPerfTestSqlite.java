@@ -0,0 +1,20 @@
+package de.greenrobot.performance.sqlite;
+
+import android.content.Context;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Runs {@link PerfTestSqlite} on the JVM using the SQLite of Robolectric, see
+ * gradle/host-tests.gradle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HostPerfTestSqlite extends PerfTestSqlite {
+
+    @Override
+    protected Context getTargetContext() {
+        return RuntimeEnvironment.application;
+    }
+}
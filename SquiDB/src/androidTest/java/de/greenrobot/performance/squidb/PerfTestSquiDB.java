@@ -8,7 +8,10 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 
 /**
  * https://github.com/yahoo/squidb/wiki
@@ -30,21 +33,21 @@ public class PerfTestSquiDB extends BasePerfTestCase {
         MySquidDatabase database = new MySquidDatabase(getTargetContext());
         log("Set up database.");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(database, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(MySquidDatabase database, int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             // start with id 1 as 0 is treated as NO_ID
             entity.setId((long) i + 1);
-            entity.setIndexedString(fixedRandomStrings[i]);
+            entity.setIndexedString(fixedRandomStrings.get(i));
             entities.add(entity);
         }
         log("Built entities.");
@@ -62,15 +65,19 @@ public class PerfTestSquiDB extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
+            long operationStart = System.nanoTime();
             //noinspection unused
             IndexedStringEntity indexedStringEntity = database.fetchByCriterion(
                     IndexedStringEntity.class,
-                    IndexedStringEntity.INDEXED_STRING.eq(fixedRandomStrings[nextIndex]));
+                    IndexedStringEntity.INDEXED_STRING.eq(fixedRandomStrings.get(nextIndex)));
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -92,23 +99,28 @@ public class PerfTestSquiDB extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createEntity((long) i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             database.persistWithId(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         // re-set values to set entity as modified
         for (int i = 0; i < list.size(); i++) {
-            updateEntity(list.get(i));
+            updateEntity(list.get(i), createValues(i));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             database.persist(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
@@ -119,7 +131,7 @@ public class PerfTestSquiDB extends BasePerfTestCase {
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createEntity((long) i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
@@ -136,7 +148,7 @@ public class PerfTestSquiDB extends BasePerfTestCase {
 
         // re-set values to set entity as modified
         for (int i = 0; i < list.size(); i++) {
-            updateEntity(list.get(i));
+            updateEntity(list.get(i), createValues(i));
         }
 
         startClock();
@@ -164,19 +176,20 @@ public class PerfTestSquiDB extends BasePerfTestCase {
         query.close();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            long id = entity.getId();
-            Boolean simpleBoolean = entity.isSimpleBoolean();
-            byte simpleByte = entity.getSimpleByte()[0];
-            Integer simpleShort = entity.getSimpleShort();
-            Integer simpleInt = entity.getSimpleInt();
-            Long simpleLong = entity.getSimpleLong();
-            Double simpleFloat = entity.getSimpleFloat();
-            Double simpleDouble = entity.getSimpleDouble();
-            String simpleString = entity.getSimpleString();
-            byte[] simpleByteArray = entity.getSimpleByteArray();
+            blackhole.consume(entity.getId());
+            blackhole.consume(entity.isSimpleBoolean());
+            blackhole.consume(entity.getSimpleByte()[0]);
+            blackhole.consume(entity.getSimpleShort());
+            blackhole.consume(entity.getSimpleInt());
+            blackhole.consume(entity.getSimpleLong());
+            blackhole.consume(entity.getSimpleFloat());
+            blackhole.consume(entity.getSimpleDouble());
+            blackhole.consume(entity.getSimpleString());
+            blackhole.consume(entity.getSimpleByteArray());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -185,37 +198,109 @@ public class PerfTestSquiDB extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        for (int first = 0; first < count; first += batchSize) {
+            database.beginTransaction();
+            try {
+                for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                    database.persistWithId(createEntity(createWriterValues(id)));
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                SquidCursor<SimpleEntityNotNull> query = database.query(SimpleEntityNotNull.class,
+                        Query.select()
+                                .orderBy(SimpleEntityNotNull.ID.asc())
+                                .limit(pageSize, page * pageSize));
+                try {
+                    while (query.moveToNext()) {
+                        SimpleEntityNotNull entity = new SimpleEntityNotNull();
+                        entity.readPropertiesFromCursor(query);
+                        consume(blackhole, entity);
+                    }
+                } finally {
+                    query.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            // ids start with 1
+            long lastId = 0;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                SquidCursor<SimpleEntityNotNull> query = database.query(SimpleEntityNotNull.class,
+                        Query.select()
+                                .where(SimpleEntityNotNull.ID.gt(lastId))
+                                .orderBy(SimpleEntityNotNull.ID.asc())
+                                .limit(pageSize));
+                try {
+                    while (query.moveToNext()) {
+                        SimpleEntityNotNull entity = new SimpleEntityNotNull();
+                        entity.readPropertiesFromCursor(query);
+                        consume(blackhole, entity);
+                        lastId = entity.getId();
+                    }
+                } finally {
+                    query.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.isSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte()[0]);
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll(MySquidDatabase database) {
         database.deleteAll(SimpleEntityNotNull.class);
     }
 
-    protected static SimpleEntityNotNull createEntity(long id) {
+    protected static SimpleEntityNotNull createEntity(EntityValues values) {
         SimpleEntityNotNull entity = new SimpleEntityNotNull();
         // start with id 1 as 0 is treated as NO_ID
-        entity.setId(id + 1);
-        entity.setIsSimpleBoolean(true);
-        entity.setSimpleByte(new byte[] { Byte.MAX_VALUE });
-        entity.setSimpleShort((int) Short.MAX_VALUE);
-        entity.setSimpleInt(Integer.MAX_VALUE);
-        entity.setSimpleLong(Long.MAX_VALUE);
-        entity.setSimpleFloat((double) Float.MAX_VALUE);
-        entity.setSimpleDouble(Double.MAX_VALUE);
-        entity.setSimpleString("greenrobot greenDAO");
-        byte[] bytes = { 42, -17, 23, 0, 127, -128 };
-        entity.setSimpleByteArray(bytes);
+        entity.setId(values.id + 1);
+        updateEntity(entity, values);
         return entity;
     }
 
-    protected static void updateEntity(SimpleEntityNotNull entity) {
-        entity.setIsSimpleBoolean(true);
-        entity.setSimpleByte(new byte[] { Byte.MAX_VALUE });
-        entity.setSimpleShort((int) Short.MAX_VALUE);
-        entity.setSimpleInt(Integer.MAX_VALUE);
-        entity.setSimpleLong(Long.MAX_VALUE);
-        entity.setSimpleFloat((double) Float.MAX_VALUE);
-        entity.setSimpleDouble(Double.MAX_VALUE);
-        entity.setSimpleString("greenrobot greenDAO");
-        byte[] bytes = { 42, -17, 23, 0, 127, -128 };
-        entity.setSimpleByteArray(bytes);
+    protected static void updateEntity(SimpleEntityNotNull entity, EntityValues values) {
+        entity.setIsSimpleBoolean(values.simpleBoolean);
+        entity.setSimpleByte(new byte[] { values.simpleByte });
+        entity.setSimpleShort((int) values.simpleShort);
+        entity.setSimpleInt(values.simpleInt);
+        entity.setSimpleLong(values.simpleLong);
+        entity.setSimpleFloat((double) values.simpleFloat);
+        entity.setSimpleDouble(values.simpleDouble);
+        entity.setSimpleString(values.simpleString);
+        entity.setSimpleByteArray(values.simpleByteArray);
     }
 }
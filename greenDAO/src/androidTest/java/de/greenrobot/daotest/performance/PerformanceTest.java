@@ -17,15 +17,37 @@
  */
 package de.greenrobot.daotest.performance;
 
+import android.database.sqlite.SQLiteDatabase;
+
 import org.greenrobot.greendao.AbstractDao;
+import org.greenrobot.greendao.Property;
+import org.greenrobot.greendao.query.CloseableListIterator;
+import org.greenrobot.greendao.query.Query;
 import org.greenrobot.greendao.test.AbstractDaoTest;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import de.greenrobot.daotest.ChildEntity;
+import de.greenrobot.daotest.ChildEntityDao;
+import de.greenrobot.daotest.DaoMaster;
+import de.greenrobot.daotest.DaoSession;
+import de.greenrobot.daotest.ParentEntity;
+import de.greenrobot.daotest.ParentEntityDao;
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.ConcurrentDriver;
+import de.greenrobot.performance.CursorWindowCounter;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValueGenerator;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.MemorySampler;
+import de.greenrobot.performance.PageLatencies;
+import de.greenrobot.performance.ParallelGenerator;
+import de.greenrobot.performance.StringGenerator;
 import de.greenrobot.performance.Benchmark.Type;
 import de.greenrobot.performance.common.BuildConfig;
 
@@ -39,7 +61,11 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
         extends AbstractDaoTest<D, T, K> {
 
     private static final int RUNS = BasePerfTestCase.RUNS;
+    private static final int WRITE_BATCH_SIZE = BasePerfTestCase.CONCURRENT_WRITE_BATCH_SIZE;
     private Benchmark benchmark;
+    private EntityValueGenerator valueGenerator;
+    private ParallelGenerator parallelGenerator;
+    private DatasetCache.Values preparedValues;
 
     public PerformanceTest(Class<D> daoClass) {
         super(daoClass, false);
@@ -55,6 +81,14 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
 
     protected abstract String getLogTag();
 
+    @Override
+    protected void tearDown() throws Exception {
+        if (parallelGenerator != null) {
+            parallelGenerator.shutdown();
+        }
+        super.tearDown();
+    }
+
     public void testOneByOneCrud() throws Exception {
         //noinspection PointlessBooleanExpression
         if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
@@ -62,11 +96,13 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
             return;
         }
 
-        setUpBenchmark("1by1");
+        setUpBenchmark("1by1", getOneByOneCount());
 
         log("--------One-by-one CRUD: Start");
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        int run = 0;
+        while (benchmark.isWarmingUp() || benchmark.getMeasuredRuns() < RUNS) {
+            run++;
+            log("----Run " + run + (benchmark.isWarmingUp() ? " (warm up)" : ""));
             clearIdentityScopeIfAny();
             oneByOneCrudRun(getOneByOneCount());
 
@@ -83,11 +119,13 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
             return;
         }
 
-        setUpBenchmark("batch");
+        setUpBenchmark("batch", getBatchSize());
 
         log("--------Batch CRUD: Start");
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        int run = 0;
+        while (benchmark.isWarmingUp() || benchmark.getMeasuredRuns() < RUNS) {
+            run++;
+            log("----Run " + run + (benchmark.isWarmingUp() ? " (warm up)" : ""));
             clearIdentityScopeIfAny();
             batchCrudRun(getBatchSize());
 
@@ -97,23 +135,187 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
         log("--------Batch CRUD: End");
     }
 
-    private void setUpBenchmark(String runName) {
-        // TODO ut: can not use ext. storage root directory as M+ requires runtime permission
-        File outputFile = new File(getContext().getExternalFilesDir(null),
+    /**
+     * Runs with 1, 2, 4, ... reader threads, see {@link BasePerfTestCase#getReaderCounts()}.
+     */
+    public void testConcurrentReadWrite() throws Exception {
+        //noinspection PointlessBooleanExpression
+        if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
+            log("Performance tests are disabled.");
+            return;
+        }
+
+        for (int readerCount : BasePerfTestCase.getReaderCounts()) {
+            setUpBenchmark("concurrent-readers" + readerCount, 0);
+
+            String title = "Concurrent Reads and Writes (readers " + readerCount + ")";
+            log("--------" + title + ": Start");
+            int run = 0;
+            while (benchmark.isWarmingUp() || benchmark.getMeasuredRuns() < RUNS) {
+                run++;
+                log("----Run " + run + (benchmark.isWarmingUp() ? " (warm up)" : ""));
+                clearIdentityScopeIfAny();
+                concurrentReadWriteRun(readerCount);
+
+                benchmark.commit();
+            }
+            benchmark.logResults();
+            log("--------" + title + ": End");
+        }
+    }
+
+    /**
+     * Inserts {@link BasePerfTestCase#DEFAULT_LARGE_COUNT} entities (or the argument
+     * "largeCount"), then iterates them with a lazy list iterator, see {@link
+     * BasePerfTestCase#stopStreaming(Benchmark, MemorySampler, int, int)}.
+     */
+    public void testLargeTableStreaming() throws Exception {
+        //noinspection PointlessBooleanExpression
+        if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
+            log("Performance tests are disabled.");
+            return;
+        }
+
+        setUpBenchmark("large", 0);
+        int count = getIntArgument(BasePerfTestCase.ARG_LARGE_COUNT,
+                BasePerfTestCase.DEFAULT_LARGE_COUNT);
+
+        log("--------Large Table Streaming: Start");
+        insertEntities(count);
+
+        int run = 0;
+        while (benchmark.isWarmingUp() || benchmark.getMeasuredRuns() < RUNS) {
+            run++;
+            log("----Run " + run + (benchmark.isWarmingUp() ? " (warm up)" : ""));
+            clearIdentityScopeIfAny();
+            largeTableStreamingRun();
+
+            benchmark.commit();
+        }
+        benchmark.logResults();
+        dao.deleteAll();
+        log("--------Large Table Streaming: End");
+    }
+
+    /**
+     * Inserts {@link BasePerfTestCase#DEFAULT_PAGING_COUNT} entities (or the argument
+     * "pagingCount"), then reads them in pages of {@link BasePerfTestCase#DEFAULT_PAGE_SIZE} (or
+     * "pageSize") using offsets and using keys, see {@link #pagingRun(int, int)}.
+     */
+    public void testPaging() throws Exception {
+        //noinspection PointlessBooleanExpression
+        if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
+            log("Performance tests are disabled.");
+            return;
+        }
+
+        setUpBenchmark("paging", 0);
+        int count = getIntArgument(BasePerfTestCase.ARG_PAGING_COUNT,
+                BasePerfTestCase.DEFAULT_PAGING_COUNT);
+        int pageSize = getIntArgument(BasePerfTestCase.ARG_PAGE_SIZE,
+                BasePerfTestCase.DEFAULT_PAGE_SIZE);
+
+        log("--------Paging: Start");
+        insertEntities(count);
+
+        int run = 0;
+        while (benchmark.isWarmingUp() || benchmark.getMeasuredRuns() < RUNS) {
+            run++;
+            log("----Run " + run + (benchmark.isWarmingUp() ? " (warm up)" : ""));
+            clearIdentityScopeIfAny();
+            pagingRun(count, pageSize);
+
+            benchmark.commit();
+        }
+        benchmark.logResults();
+        dao.deleteAll();
+        log("--------Paging: End");
+    }
+
+    /**
+     * Reads parents with {@link BasePerfTestCase#RELATION_CHILDREN_PER_PARENT} children each,
+     * independent of the entity under test, see {@link #relationsRun(DaoSession, int, int)}.
+     */
+    public void testRelations() throws Exception {
+        //noinspection PointlessBooleanExpression
+        if (!BuildConfig.RUN_PERFORMANCE_TESTS) {
+            log("Performance tests are disabled.");
+            return;
+        }
+
+        setUpBenchmark("relations", getBatchSize());
+        ParentEntityDao.createTable(db, false);
+        ChildEntityDao.createTable(db, false);
+        DaoSession session = new DaoMaster(db).newSession();
+        int childrenPerParent = BasePerfTestCase.RELATION_CHILDREN_PER_PARENT;
+
+        log("--------Relations: Start");
+        int run = 0;
+        while (benchmark.isWarmingUp() || benchmark.getMeasuredRuns() < RUNS) {
+            run++;
+            log("----Run " + run + (benchmark.isWarmingUp() ? " (warm up)" : ""));
+            relationsRun(session, Math.max(1, getBatchSize() / childrenPerParent),
+                    childrenPerParent);
+
+            benchmark.commit();
+        }
+        benchmark.logResults();
+        log("--------Relations: End");
+    }
+
+    /**
+     * Inserts count new entities in transactions of {@link #getBatchSize()}.
+     */
+    private void insertEntities(int count) {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        List<T> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int i = first; i < Math.min(first + batchSize, count); i++) {
+                batch.add(createEntity(createWriterValues(i)));
+            }
+            dao.insertInTx(batch);
+        }
+        clearIdentityScopeIfAny();
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+    }
+
+    private void setUpBenchmark(String runName, int operationsPerPhase) {
+        File outputFile = new File(BasePerfTestCase.getOutputDirectory(getContext()),
                 String.format("%s-%s.tsv", getLogTag(), runName));
         benchmark = new Benchmark(outputFile, getLogTag());
-        benchmark.addFixedColumnDevice().warmUpRuns(2);
+        benchmark.addFixedColumnDevice().operationsPerPhase(operationsPerPhase)
+                .addFixedColumn("values", getValueGenerator().toString())
+                .warmUpUntilSteady(BasePerfTestCase.WARM_UP_WINDOW,
+                        BasePerfTestCase.WARM_UP_MAX_VARIATION, BasePerfTestCase.MAX_WARM_UP_RUNS);
+        if (Boolean.parseBoolean(
+                BasePerfTestCase.getArgument(BasePerfTestCase.ARG_ALLOCATION_COUNTING))) {
+            benchmark.enableAllocationCounting();
+        }
+    }
+
+    /**
+     * Returns the instrumentation argument (or system property "perf.&lt;key&gt;") as int, see
+     * {@link BasePerfTestCase#getArgument(String)}.
+     */
+    private static int getIntArgument(String key, int defaultValue) {
+        String value = BasePerfTestCase.getArgument(key);
+        return value != null ? Integer.parseInt(value) : defaultValue;
     }
 
     private void oneByOneCrudRun(int count) {
         List<T> list = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            list.add(createEntity());
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
         for (int i = 0; i < count; i++) {
+            long operationStart = System.nanoTime();
             dao.insert(list.get(i));
+            benchmark.record(Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Type.ONE_BY_ONE_CREATE);
 
@@ -122,19 +324,25 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
         }
         startClock();
         for (int i = 0; i < count; i++) {
+            long operationStart = System.nanoTime();
             dao.update(list.get(i));
+            benchmark.record(Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Type.ONE_BY_ONE_UPDATE);
 
         startClock();
         for (int i = 0; i < count; i++) {
+            long operationStart = System.nanoTime();
             dao.refresh(list.get(i));
+            benchmark.record(Type.ONE_BY_ONE_REFRESH, System.nanoTime() - operationStart);
         }
         stopClock(Type.ONE_BY_ONE_REFRESH);
 
         startClock();
         for (int i = 0; i < count; i++) {
+            long operationStart = System.nanoTime();
             dao.delete(list.get(i));
+            benchmark.record(Type.ONE_BY_ONE_DELETE, System.nanoTime() - operationStart);
         }
         stopClock(Type.ONE_BY_ONE_DELETE);
     }
@@ -149,7 +357,7 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
     private void batchCrudRun(int count) {
         List<T> list = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            list.add(createEntity());
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
@@ -174,6 +382,236 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
         stopClock(Type.BATCH_DELETE);
     }
 
+    /**
+     * Readers load entities by primary key (there is no indexed string entity in this schema)
+     * while a writer inserts and updates batches of new entities in the same table.
+     */
+    private void concurrentReadWriteRun(final int readerCount) {
+        // readers do not wait for the writer to commit
+        ((SQLiteDatabase) db.getRawDatabase()).enableWriteAheadLogging();
+
+        int count = getBatchSize();
+        List<T> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(createEntity(createValues(i)));
+        }
+        dao.insertInTx(list);
+        final List<K> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(dao.getKey(list.get(i)));
+        }
+        final int[] randomIndices = StringGenerator.getFixedRandomIndices(
+                BasePerfTestCase.DEFAULT_QUERY_COUNT, count - 1);
+        final long firstWriterId = count;
+        // build the writer's entities now, while measuring it only sets new ids
+        final List<List<T>> writerBatches = new ArrayList<>();
+        int writerBatchCount = BasePerfTestCase.getWriterBatchCount(count);
+        for (int batchIndex = 0; batchIndex < writerBatchCount; batchIndex++) {
+            List<T> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+            for (int i = 0; i < WRITE_BATCH_SIZE; i++) {
+                batch.add(createEntity(createWriterValues(
+                        firstWriterId + batchIndex * WRITE_BATCH_SIZE + i)));
+            }
+            writerBatches.add(batch);
+        }
+
+        BasePerfTestCase.runReadersAndWriter(benchmark, readerCount,
+                BasePerfTestCase.getConcurrentMillis(), new ConcurrentDriver.WorkerFactory() {
+                    @Override
+                    public ConcurrentDriver.Worker createWorker(final int threadIndex) {
+                        if (threadIndex == 0) {
+                            return new ConcurrentDriver.Worker() {
+                                private List<T> batch;
+
+                                @Override
+                                public void execute(int operationIndex) {
+                                    // insert a batch with new ids, then update it
+                                    if (operationIndex % 2 == 0) {
+                                        int batchIndex = operationIndex / 2;
+                                        batch = writerBatches.get(
+                                                batchIndex % writerBatches.size());
+                                        long firstId = firstWriterId
+                                                + (long) batchIndex * WRITE_BATCH_SIZE;
+                                        for (int i = 0; i < batch.size(); i++) {
+                                            setId(batch.get(i), firstId + i);
+                                        }
+                                        dao.insertInTx(batch);
+                                    } else {
+                                        for (int i = 0; i < batch.size(); i++) {
+                                            changeForUpdate(batch.get(i));
+                                        }
+                                        dao.updateInTx(batch);
+                                    }
+                                }
+
+                                @Override
+                                public void close() {
+                                }
+                            };
+                        }
+                        return new ConcurrentDriver.Worker() {
+                            // the shared blackhole is not thread-safe
+                            private final Blackhole blackhole = new Blackhole();
+
+                            @Override
+                            public void execute(int operationIndex) {
+                                // readers take turns through the query indices
+                                int index = (operationIndex * readerCount + threadIndex - 1)
+                                        % randomIndices.length;
+                                consume(blackhole, dao.load(keys.get(randomIndices[index])));
+                            }
+
+                            @Override
+                            public void close() {
+                            }
+                        };
+                    }
+                });
+
+        dao.deleteAll();
+    }
+
+    /**
+     * Loads each entity from the cursor only when the iterator gets to it and does not cache it
+     * (an identity scope only references it weakly). The cursor of the lazy list is not exposed,
+     * so cursor window fills are not reported.
+     */
+    private void largeTableStreamingRun() {
+        Blackhole blackhole = getBlackhole();
+        MemorySampler sampler = BasePerfTestCase.startStreaming(benchmark);
+        int rows = 0;
+        CloseableListIterator<T> iterator = dao.queryBuilder().build().listIterator();
+        try {
+            while (iterator.hasNext()) {
+                consume(blackhole, iterator.next());
+                rows++;
+            }
+        } finally {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not close lazy list", e);
+            }
+        }
+        BasePerfTestCase.stopStreaming(benchmark, sampler, rows,
+                CursorWindowCounter.UNSUPPORTED);
+    }
+
+    /**
+     * Builds each query once and only changes the offset or the key parameter per page, as
+     * greenDAO queries are meant to be reused.
+     */
+    private void pagingRun(int count, int pageSize) {
+        Blackhole blackhole = getBlackhole();
+        Property pk = dao.getPkProperty();
+        Query<T> offsetQuery = dao.queryBuilder().orderAsc(pk).limit(pageSize).offset(0).build();
+        PageLatencies pages = BasePerfTestCase.startPaging(benchmark,
+                PageLatencies.getPageCount(count, pageSize));
+        for (int page = 0; page < pages.getPageCount(); page++) {
+            long start = System.nanoTime();
+            offsetQuery.setOffset(page * pageSize);
+            List<T> entities = offsetQuery.list();
+            for (int i = 0; i < entities.size(); i++) {
+                consume(blackhole, entities.get(i));
+            }
+            pages.record(page, System.nanoTime() - start);
+        }
+        BasePerfTestCase.stopPaging(benchmark, Type.PAGING_OFFSET, pages);
+
+        Query<T> keysetQuery = dao.queryBuilder().where(pk.gt(-1L)).orderAsc(pk)
+                .limit(pageSize).build();
+        pages = BasePerfTestCase.startPaging(benchmark, pages.getPageCount());
+        for (int page = 0; page < pages.getPageCount(); page++) {
+            long start = System.nanoTime();
+            List<T> entities = keysetQuery.list();
+            for (int i = 0; i < entities.size(); i++) {
+                consume(blackhole, entities.get(i));
+            }
+            if (!entities.isEmpty()) {
+                keysetQuery.setParameter(0, dao.getKey(entities.get(entities.size() - 1)));
+            }
+            pages.record(page, System.nanoTime() - start);
+        }
+        BasePerfTestCase.stopPaging(benchmark, Type.PAGING_KEYSET, pages);
+    }
+
+    /**
+     * The eager phase loads the children with their parents using the LEFT JOIN of the generated
+     * queryDeep; greenDAO has no eager to-many loading. The session is cleared before each phase,
+     * but within a phase the identity scope and the cached relations are used as in an app.
+     */
+    private void relationsRun(DaoSession session, int parentCount, int childrenPerParent) {
+        ParentEntityDao parentDao = session.getParentEntityDao();
+        ChildEntityDao childDao = session.getChildEntityDao();
+        List<ParentEntity> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            ParentEntity parent = new ParentEntity();
+            parent.setId((long) i);
+            parent.setName(createValues(i).simpleString);
+            parents.add(parent);
+        }
+        List<ChildEntity> children = new ArrayList<>(parentCount * childrenPerParent);
+        for (int i = 0; i < parentCount * childrenPerParent; i++) {
+            EntityValues values = createValues(i);
+            ChildEntity child = new ChildEntity();
+            child.setId((long) i);
+            child.setParentId(i / childrenPerParent);
+            child.setName(values.simpleString);
+            child.setValue(values.simpleInt);
+            children.add(child);
+        }
+        parentDao.insertInTx(parents);
+        childDao.insertInTx(children);
+
+        Blackhole blackhole = getBlackhole();
+        session.clear();
+        startClock();
+        List<ChildEntity> joined = childDao.queryDeep("");
+        for (int i = 0; i < joined.size(); i++) {
+            ChildEntity child = joined.get(i);
+            consumeChild(blackhole, child);
+            blackhole.consume(child.getParent().getName());
+        }
+        stopClock(Type.RELATION_JOIN);
+
+        session.clear();
+        startClock();
+        List<ParentEntity> loadedParents = parentDao.loadAll();
+        for (int i = 0; i < loadedParents.size(); i++) {
+            ParentEntity parent = loadedParents.get(i);
+            blackhole.consume(parent.getName());
+            List<ChildEntity> loadedChildren = parent.getChildren();
+            for (int j = 0; j < loadedChildren.size(); j++) {
+                consumeChild(blackhole, loadedChildren.get(j));
+            }
+        }
+        stopClock(Type.RELATION_LAZY);
+
+        session.clear();
+        startClock();
+        List<ChildEntity> loadedChildren = childDao.loadAll();
+        for (int i = 0; i < loadedChildren.size(); i++) {
+            ChildEntity child = loadedChildren.get(i);
+            consumeChild(blackhole, child);
+            blackhole.consume(child.getParent().getName());
+        }
+        stopClock(Type.RELATION_TO_ONE);
+
+        childDao.deleteAll();
+        parentDao.deleteAll();
+        session.clear();
+    }
+
+    private static void consumeChild(Blackhole blackhole, ChildEntity child) {
+        blackhole.consume(child.getId());
+        blackhole.consume(child.getName());
+        blackhole.consume(child.getValue());
+    }
+
+    protected Blackhole getBlackhole() {
+        return benchmark.getBlackhole();
+    }
+
     protected void startClock() {
         benchmark.start();
     }
@@ -182,14 +620,63 @@ public abstract class PerformanceTest<D extends AbstractDao<T, K>, T, K>
         benchmark.stop(type);
     }
 
-    protected abstract T createEntity();
+    /** Creates the entity under test with the given values (including the id). */
+    protected abstract T createEntity(EntityValues values);
+
+    /** Changes the id of an entity, e.g. to insert it again as a new entity. */
+    protected abstract void setId(T entity, long id);
+
+    protected EntityValueGenerator getValueGenerator() {
+        if (valueGenerator == null) {
+            valueGenerator = BasePerfTestCase.createValueGenerator();
+        }
+        return valueGenerator;
+    }
 
     /**
-     * Access every property of the entity under test and record execution time with {@link
-     * #startClock} and {@link #stopClock}.
+     * Returns the values of the entity with the given id. Values of the ids up to the batch size
+     * are prepared in parallel on first use (or read from the {@link DatasetCache}), so each run
+     * writes the same data, see {@link BasePerfTestCase#createValues(long)}.
+     */
+    protected EntityValues createValues(long id) {
+        int count = Math.max(getBatchSize(), getOneByOneCount());
+        if (preparedValues == null) {
+            if (parallelGenerator == null) {
+                parallelGenerator = BasePerfTestCase.createParallelGenerator();
+            }
+            preparedValues = BasePerfTestCase.prepareValues(getValueGenerator(), count,
+                    BasePerfTestCase.createDatasetCache(getContext(), parallelGenerator),
+                    parallelGenerator);
+        }
+        if (id >= 0 && id < preparedValues.size()) {
+            return preparedValues.get((int) id);
+        }
+        return getValueGenerator().create(id);
+    }
+
+    /**
+     * Returns the values of an entity written by the concurrent writer or inserted for the large
+     * table and paging scenarios: the ids keep growing, the values repeat every batch size
+     * entities, see {@link BasePerfTestCase#createWriterValues(long)}.
+     */
+    protected EntityValues createWriterValues(long id) {
+        EntityValues values = createValues(id % getBatchSize());
+        return new EntityValues(id, values.simpleBoolean, values.simpleByte, values.simpleShort,
+                values.simpleInt, values.simpleLong, values.simpleFloat, values.simpleDouble,
+                values.simpleString, values.simpleByteArray);
+    }
+
+    /**
+     * Access every property of the entity under test, feeding them into {@link #getBlackhole()},
+     * and record execution time with {@link #startClock} and {@link #stopClock}.
      */
     protected abstract void accessAll(List<T> list);
 
+    /**
+     * Feeds every property of the entity into the blackhole.
+     */
+    protected abstract void consume(Blackhole blackhole, T entity);
+
     /**
      * Convenience method to create a debug log message.
      */
@@ -22,11 +22,11 @@ import java.util.List;
 import de.greenrobot.daotest.SimpleEntityNotNull;
 import de.greenrobot.daotest.SimpleEntityNotNullDao;
 import de.greenrobot.performance.Benchmark;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.EntityValues;
 
 public class PerformanceTestNotNull extends PerformanceTest<SimpleEntityNotNullDao, SimpleEntityNotNull, Long> {
 
-    static long sequence;
-
     public PerformanceTestNotNull() {
         super(SimpleEntityNotNullDao.class);
     }
@@ -37,27 +37,37 @@ public class PerformanceTestNotNull extends PerformanceTest<SimpleEntityNotNullD
     }
 
     @Override
-    protected SimpleEntityNotNull createEntity() {
-        return SimpleEntityNotNullHelper.createEntity(sequence++);
+    protected SimpleEntityNotNull createEntity(EntityValues values) {
+        return SimpleEntityNotNullHelper.createEntity(values);
+    }
+
+    @Override
+    protected void setId(SimpleEntityNotNull entity, long id) {
+        entity.setId(id);
     }
 
     @Override
     protected void accessAll(List<SimpleEntityNotNull> list) {
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < list.size(); i++) {
-            SimpleEntityNotNull entity = list.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            consume(blackhole, list.get(i));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
     }
 
+    @Override
+    protected void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
 }
@@ -0,0 +1,146 @@
+package de.greenrobot.daotest;
+
+import org.greenrobot.greendao.DaoException;
+import org.greenrobot.greendao.annotation.*;
+
+/**
+ * Entity mapped to table "CHILD_ENTITY", with a to-one relation to {@link ParentEntity}.
+ * <p/>
+ * Contains the code the greenDAO plugin generates for relations; kept so the build does not
+ * rewrite this file.
+ */
+@Entity
+@Keep
+public class ChildEntity {
+
+    @Id
+    private Long id;
+    @Index
+    private long parentId;
+    private String name;
+    private int value;
+
+    @ToOne(joinProperty = "parentId")
+    private ParentEntity parent;
+
+    private transient Long parent__resolvedKey;
+
+    /** Used to resolve relations */
+    private transient DaoSession daoSession;
+
+    /** Used for active entity operations. */
+    private transient ChildEntityDao myDao;
+
+    public ChildEntity() {
+    }
+
+    public ChildEntity(Long id, long parentId, String name, int value) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.value = value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(long parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    /** To-one relationship, resolved on first access. */
+    public ParentEntity getParent() {
+        long __key = this.parentId;
+        if (parent__resolvedKey == null || !parent__resolvedKey.equals(__key)) {
+            final DaoSession daoSession = this.daoSession;
+            if (daoSession == null) {
+                throw new DaoException("Entity is detached from DAO context");
+            }
+            ParentEntityDao targetDao = daoSession.getParentEntityDao();
+            ParentEntity parentNew = targetDao.load(__key);
+            synchronized (this) {
+                parent = parentNew;
+                parent__resolvedKey = __key;
+            }
+        }
+        return parent;
+    }
+
+    /** called by internal mechanisms, do not call yourself. */
+    public void setParent(@NotNull ParentEntity parent) {
+        if (parent == null) {
+            throw new DaoException("To-one property 'parentId' has not-null constraint; "
+                    + "cannot set to-one to null");
+        }
+        synchronized (this) {
+            this.parent = parent;
+            parentId = parent.getId();
+            parent__resolvedKey = parentId;
+        }
+    }
+
+    /**
+     * Convenient call for {@link org.greenrobot.greendao.AbstractDao#delete(Object)}.
+     * Entity must attached to an entity context.
+     */
+    public void delete() {
+        if (myDao == null) {
+            throw new DaoException("Entity is detached from DAO context");
+        }
+        myDao.delete(this);
+    }
+
+    /**
+     * Convenient call for {@link org.greenrobot.greendao.AbstractDao#refresh(Object)}.
+     * Entity must attached to an entity context.
+     */
+    public void refresh() {
+        if (myDao == null) {
+            throw new DaoException("Entity is detached from DAO context");
+        }
+        myDao.refresh(this);
+    }
+
+    /**
+     * Convenient call for {@link org.greenrobot.greendao.AbstractDao#update(Object)}.
+     * Entity must attached to an entity context.
+     */
+    public void update() {
+        if (myDao == null) {
+            throw new DaoException("Entity is detached from DAO context");
+        }
+        myDao.update(this);
+    }
+
+    /** called by internal mechanisms, do not call yourself. */
+    public void __setDaoSession(DaoSession daoSession) {
+        this.daoSession = daoSession;
+        myDao = daoSession != null ? daoSession.getChildEntityDao() : null;
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.greenrobot.daotest;
+
+import org.greenrobot.greendao.DaoException;
+import org.greenrobot.greendao.annotation.*;
+
+import java.util.List;
+
+/**
+ * Entity mapped to table "PARENT_ENTITY", with a lazy to-many relation to {@link ChildEntity}.
+ * <p/>
+ * Contains the code the greenDAO plugin generates for relations; kept so the build does not
+ * rewrite this file.
+ */
+@Entity
+@Keep
+public class ParentEntity {
+
+    @Id
+    private Long id;
+    private String name;
+
+    @ToMany(referencedJoinProperty = "parentId")
+    private List<ChildEntity> children;
+
+    /** Used to resolve relations */
+    private transient DaoSession daoSession;
+
+    /** Used for active entity operations. */
+    private transient ParentEntityDao myDao;
+
+    public ParentEntity() {
+    }
+
+    public ParentEntity(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * To-many relationship, resolved on first access (and after reset).
+     * Changes to to-many relations are not persisted, make changes to the target entity.
+     */
+    public List<ChildEntity> getChildren() {
+        if (children == null) {
+            final DaoSession daoSession = this.daoSession;
+            if (daoSession == null) {
+                throw new DaoException("Entity is detached from DAO context");
+            }
+            ChildEntityDao targetDao = daoSession.getChildEntityDao();
+            List<ChildEntity> childrenNew = targetDao._queryParentEntity_Children(id);
+            synchronized (this) {
+                if (children == null) {
+                    children = childrenNew;
+                }
+            }
+        }
+        return children;
+    }
+
+    /** Resets a to-many relationship, making the next get call to query for a fresh result. */
+    public synchronized void resetChildren() {
+        children = null;
+    }
+
+    /**
+     * Convenient call for {@link org.greenrobot.greendao.AbstractDao#delete(Object)}.
+     * Entity must attached to an entity context.
+     */
+    public void delete() {
+        if (myDao == null) {
+            throw new DaoException("Entity is detached from DAO context");
+        }
+        myDao.delete(this);
+    }
+
+    /**
+     * Convenient call for {@link org.greenrobot.greendao.AbstractDao#refresh(Object)}.
+     * Entity must attached to an entity context.
+     */
+    public void refresh() {
+        if (myDao == null) {
+            throw new DaoException("Entity is detached from DAO context");
+        }
+        myDao.refresh(this);
+    }
+
+    /**
+     * Convenient call for {@link org.greenrobot.greendao.AbstractDao#update(Object)}.
+     * Entity must attached to an entity context.
+     */
+    public void update() {
+        if (myDao == null) {
+            throw new DaoException("Entity is detached from DAO context");
+        }
+        myDao.update(this);
+    }
+
+    /** called by internal mechanisms, do not call yourself. */
+    public void __setDaoSession(DaoSession daoSession) {
+        this.daoSession = daoSession;
+        myDao = daoSession != null ? daoSession.getParentEntityDao() : null;
+    }
+
+}
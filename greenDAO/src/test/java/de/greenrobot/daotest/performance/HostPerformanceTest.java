@@ -0,0 +1,60 @@
+package de.greenrobot.daotest.performance;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Runs the JUnit 3 {@link PerformanceTest}s on the JVM using the SQLite of Robolectric, see
+ * gradle/host-tests.gradle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HostPerformanceTest {
+
+    @Test
+    public void testNotNullOneByOneCrud() throws Throwable {
+        run(new PerformanceTestNotNull(), "testOneByOneCrud");
+    }
+
+    @Test
+    public void testNotNullBatchCrud() throws Throwable {
+        run(new PerformanceTestNotNull(), "testBatchCrud");
+    }
+
+    @Test
+    public void testNotNullConcurrentReadWrite() throws Throwable {
+        run(new PerformanceTestNotNull(), "testConcurrentReadWrite");
+    }
+
+    @Test
+    public void testNotNullLargeTableStreaming() throws Throwable {
+        run(new PerformanceTestNotNull(), "testLargeTableStreaming");
+    }
+
+    @Test
+    public void testNotNullPaging() throws Throwable {
+        run(new PerformanceTestNotNull(), "testPaging");
+    }
+
+    @Test
+    public void testNotNullRelations() throws Throwable {
+        run(new PerformanceTestNotNull(), "testRelations");
+    }
+
+    @Test
+    public void testNotNullIdentityScopeOneByOneCrud() throws Throwable {
+        run(new PerformanceTestNotNullIdentityScope(), "testOneByOneCrud");
+    }
+
+    @Test
+    public void testNotNullIdentityScopeBatchCrud() throws Throwable {
+        run(new PerformanceTestNotNullIdentityScope(), "testBatchCrud");
+    }
+
+    private static void run(PerformanceTest<?, ?, ?> test, String method) throws Throwable {
+        test.setContext(RuntimeEnvironment.application);
+        test.setName(method);
+        test.runBare();
+    }
+}
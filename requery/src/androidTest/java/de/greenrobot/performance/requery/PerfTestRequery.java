@@ -5,11 +5,16 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.ConcurrentDriver;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.EntityValues;
+import de.greenrobot.performance.PageLatencies;
 import io.requery.BlockingEntityStore;
 import io.requery.android.sqlite.DatabaseSource;
 import io.requery.cache.EmptyEntityCache;
 import io.requery.query.Result;
+import io.requery.query.Tuple;
 import io.requery.sql.Configuration;
 import io.requery.sql.ConfigurationBuilder;
 import io.requery.sql.EntityDataStore;
@@ -20,6 +25,7 @@ import io.requery.sql.EntityDataStore;
 public class PerfTestRequery extends BasePerfTestCase {
 
     private static final int DATABASE_VERSION = 1;
+    private DatabaseSource source;
     private BlockingEntityStore<Object> database;
 
     @Override
@@ -30,8 +36,7 @@ public class PerfTestRequery extends BasePerfTestCase {
     }
 
     private void setupDatabase() {
-        DatabaseSource source = new DatabaseSource(getTargetContext(), Models.DEFAULT,
-                DATABASE_VERSION);
+        source = new DatabaseSource(getTargetContext(), Models.DEFAULT, DATABASE_VERSION);
         Configuration configuration = new ConfigurationBuilder(source,
                 Models.DEFAULT).setEntityCache(new EmptyEntityCache()).build();
         database = new EntityDataStore<>(configuration).toBlocking();
@@ -43,20 +48,20 @@ public class PerfTestRequery extends BasePerfTestCase {
         setupDatabase();
         log("Set up database.");
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(database, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(BlockingEntityStore<Object> database, int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity.setId((long) i);
-            entity.setIndexedString(fixedRandomStrings[i]);
+            entity.setIndexedString(fixedRandomStrings.get(i));
             entities.add(entity);
         }
         log("Built entities.");
@@ -66,22 +71,26 @@ public class PerfTestRequery extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             Result<IndexedStringEntity> results = database.select(
                     IndexedStringEntity.class)
                     .where(IndexedStringEntity.INDEXED_STRING.eq(
-                            fixedRandomStrings[nextIndex]))
+                            fixedRandomStrings.get(nextIndex)))
                     .get();
 
             //noinspection unused
             IndexedStringEntity indexedStringEntity = results.first();
 
             results.close();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -103,21 +112,26 @@ public class PerfTestRequery extends BasePerfTestCase {
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createEntity((long) i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
+            long operationStart = System.nanoTime();
             database.insert(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         // requery detects changes, so modify all entities before updating them
         modifyEntities(list);
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
+            long operationStart = System.nanoTime();
             database.update(list.get(i));
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
@@ -128,7 +142,7 @@ public class PerfTestRequery extends BasePerfTestCase {
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(createEntity((long) i));
+            list.add(createEntity(createValues(i)));
         }
 
         startClock();
@@ -148,19 +162,10 @@ public class PerfTestRequery extends BasePerfTestCase {
         results.close();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
-            SimpleEntityNotNull entity = reloaded.get(i);
-            long id = entity.getId();
-            boolean simpleBoolean = entity.isSimpleBoolean();
-            byte simpleByte = entity.getSimpleByte();
-            short simpleShort = entity.getSimpleShort();
-            int simpleInt = entity.getSimpleInt();
-            Long simpleLong = entity.getSimpleLong();
-            float simpleFloat = entity.getSimpleFloat();
-            double simpleDouble = entity.getSimpleDouble();
-            String simpleString = entity.getSimpleString();
-            byte[] simpleByteArray = entity.getSimpleByteArray();
+            consume(blackhole, reloaded.get(i));
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -169,38 +174,282 @@ public class PerfTestRequery extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doConcurrentReadWriteRun(final int readerCount) throws Exception {
+        // readers do not wait for the writer to commit
+        source.setWriteAheadLoggingEnabled(true);
+
+        int count = getBatchSize();
+        final DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
+        List<IndexedStringEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            IndexedStringEntity entity = new IndexedStringEntity();
+            entity.setId((long) i);
+            entity.setIndexedString(fixedRandomStrings.get(i));
+            entities.add(entity);
+        }
+        database.insert(entities);
+        final int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode before starting the threads, readers then only read the decoded strings
+        fixedRandomStrings.prefetch(randomIndices);
+        // inserted entities are attached to the data store and can not be inserted again with new
+        // ids, so only their values are prepared
+        final List<EntityValues> writerValues = new ArrayList<>();
+        for (int i = 0; i < getWriterBatchCount(count) * CONCURRENT_WRITE_BATCH_SIZE; i++) {
+            writerValues.add(createWriterValues(i));
+        }
+
+        runReadersAndWriter(readerCount, new ConcurrentDriver.WorkerFactory() {
+            @Override
+            public ConcurrentDriver.Worker createWorker(final int threadIndex) {
+                if (threadIndex == 0) {
+                    return new ConcurrentDriver.Worker() {
+                        private final List<SimpleEntityNotNull> batch = new ArrayList<>();
+                        private int firstValue;
+
+                        @Override
+                        public void execute(int operationIndex) {
+                            // insert a batch, then update it
+                            if (operationIndex % 2 == 0) {
+                                batch.clear();
+                                long firstId = operationIndex / 2 * CONCURRENT_WRITE_BATCH_SIZE;
+                                firstValue = (int) (firstId % writerValues.size());
+                                for (int i = 0; i < CONCURRENT_WRITE_BATCH_SIZE; i++) {
+                                    SimpleEntityNotNull entity = new SimpleEntityNotNull();
+                                    entity.setId(firstId + i);
+                                    setValues(entity, writerValues.get(firstValue + i));
+                                    batch.add(entity);
+                                }
+                                database.insert(batch);
+                            } else {
+                                // requery detects changes, so modify entities before updating
+                                for (int i = 0; i < batch.size(); i++) {
+                                    setValues(batch.get(i), writerValues.get(firstValue + i));
+                                }
+                                database.update(batch);
+                            }
+                        }
+
+                        @Override
+                        public void close() {
+                        }
+                    };
+                }
+                return new ConcurrentDriver.Worker() {
+                    // the shared blackhole is not thread-safe
+                    private final Blackhole blackhole = new Blackhole();
+
+                    @Override
+                    public void execute(int operationIndex) {
+                        // readers take turns through the query indices
+                        int index = (operationIndex * readerCount + threadIndex - 1)
+                                % randomIndices.length;
+                        Result<IndexedStringEntity> results = database.select(
+                                IndexedStringEntity.class)
+                                .where(IndexedStringEntity.INDEXED_STRING.eq(
+                                        fixedRandomStrings.get(randomIndices[index])))
+                                .get();
+
+                        IndexedStringEntity indexedStringEntity = results.first();
+                        blackhole.consume(indexedStringEntity.getId());
+                        blackhole.consume(indexedStringEntity.getIndexedString());
+
+                        results.close();
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        });
+
+        database.delete(IndexedStringEntity.class).get().value();
+        deleteAll(database);
+    }
+
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        List<SimpleEntityNotNull> batch = new ArrayList<>(batchSize);
+        for (int first = 0; first < count; first += batchSize) {
+            batch.clear();
+            for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                batch.add(createEntity(createWriterValues(id)));
+            }
+            database.insert(batch);
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                Result<SimpleEntityNotNull> results = database.select(SimpleEntityNotNull.class)
+                        .orderBy(SimpleEntityNotNull.ID.asc())
+                        .limit(pageSize).offset(page * pageSize)
+                        .get();
+                try {
+                    for (SimpleEntityNotNull entity : results) {
+                        consume(blackhole, entity);
+                    }
+                } finally {
+                    results.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                Result<SimpleEntityNotNull> results = database.select(SimpleEntityNotNull.class)
+                        .where(SimpleEntityNotNull.ID.greaterThan(lastId))
+                        .orderBy(SimpleEntityNotNull.ID.asc())
+                        .limit(pageSize)
+                        .get();
+                try {
+                    for (SimpleEntityNotNull entity : results) {
+                        consume(blackhole, entity);
+                        lastId = entity.getId();
+                    }
+                } finally {
+                    results.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    /**
+     * requery resolves relations when they are accessed (no entity cache is used), so
+     * {@link Benchmark.Type#RELATION_JOIN} selects the columns of parents and children with a join
+     * of the query DSL and reads the tuples.
+     */
+    @Override
+    protected void doRelationsRun(int parentCount, int childrenPerParent) throws Exception {
+        List<ParentEntity> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            ParentEntity parent = new ParentEntity();
+            parent.setId(i);
+            parent.setName(createValues(i).simpleString);
+            parents.add(parent);
+        }
+        database.insert(parents);
+        List<ChildEntity> children = new ArrayList<>(parentCount * childrenPerParent);
+        for (int i = 0; i < parentCount * childrenPerParent; i++) {
+            EntityValues values = createValues(i);
+            ChildEntity child = new ChildEntity();
+            child.setId(i);
+            child.setName(values.simpleString);
+            child.setValue(values.simpleInt);
+            child.setParent(parents.get(i / childrenPerParent));
+            children.add(child);
+        }
+        database.insert(children);
+
+        Blackhole blackhole = getBlackhole();
+        startClock();
+        Result<Tuple> joined = database.select(ParentEntity.ID, ParentEntity.NAME,
+                ChildEntity.ID, ChildEntity.NAME, ChildEntity.VALUE)
+                .from(ParentEntity.class)
+                .join(ChildEntity.class).on(ChildEntity.PARENT_ID.eq(ParentEntity.ID))
+                .get();
+        try {
+            long lastParentId = -1;
+            for (Tuple tuple : joined) {
+                long parentId = tuple.<Long>get(0);
+                if (parentId != lastParentId) {
+                    blackhole.consume(tuple.<String>get(1));
+                    lastParentId = parentId;
+                }
+                blackhole.consume(tuple.<Long>get(2));
+                blackhole.consume(tuple.<String>get(3));
+                blackhole.consume(tuple.<Integer>get(4));
+            }
+        } finally {
+            joined.close();
+        }
+        stopClock(Benchmark.Type.RELATION_JOIN);
+
+        startClock();
+        List<ParentEntity> loadedParents = database.select(ParentEntity.class).get().toList();
+        for (int i = 0; i < loadedParents.size(); i++) {
+            ParentEntity parent = loadedParents.get(i);
+            blackhole.consume(parent.getName());
+            List<ChildEntity> loadedChildren = parent.getChildren();
+            for (int j = 0; j < loadedChildren.size(); j++) {
+                consumeChild(blackhole, loadedChildren.get(j));
+            }
+        }
+        stopClock(Benchmark.Type.RELATION_LAZY);
+
+        startClock();
+        List<ChildEntity> loadedChildren = database.select(ChildEntity.class).get().toList();
+        for (int i = 0; i < loadedChildren.size(); i++) {
+            ChildEntity child = loadedChildren.get(i);
+            consumeChild(blackhole, child);
+            blackhole.consume(child.getParent().getName());
+        }
+        stopClock(Benchmark.Type.RELATION_TO_ONE);
+
+        database.delete(ChildEntity.class).get().value();
+        database.delete(ParentEntity.class).get().value();
+    }
+
+    private static void consumeChild(Blackhole blackhole, ChildEntity child) {
+        blackhole.consume(child.getId());
+        blackhole.consume(child.getName());
+        blackhole.consume(child.getValue());
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.isSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll(BlockingEntityStore<Object> database) {
         database.delete(SimpleEntityNotNull.class).get().value();
     }
 
-    protected static SimpleEntityNotNull createEntity(long id) {
+    protected static SimpleEntityNotNull createEntity(EntityValues values) {
         SimpleEntityNotNull entity = new SimpleEntityNotNull();
-        entity.setId(id);
-        entity.setSimpleBoolean(true);
-        entity.setSimpleByte(Byte.MAX_VALUE);
-        entity.setSimpleShort(Short.MAX_VALUE);
-        entity.setSimpleInt(Integer.MAX_VALUE);
-        entity.setSimpleLong(Long.MAX_VALUE);
-        entity.setSimpleFloat(Float.MAX_VALUE);
-        entity.setSimpleDouble(Double.MAX_VALUE);
-        entity.setSimpleString("greenrobot greenDAO");
-        byte[] bytes = {42, -17, 23, 0, 127, -128};
-        entity.setSimpleByteArray(bytes);
+        entity.setId(values.id);
+        setValues(entity, values);
         return entity;
     }
 
-    protected static void modifyEntities(List<SimpleEntityNotNull> entities) {
-        for (SimpleEntityNotNull entity : entities) {
-            entity.setSimpleBoolean(true);
-            entity.setSimpleByte(Byte.MAX_VALUE);
-            entity.setSimpleShort(Short.MAX_VALUE);
-            entity.setSimpleInt(Integer.MAX_VALUE);
-            entity.setSimpleLong(Long.MAX_VALUE);
-            entity.setSimpleFloat(Float.MAX_VALUE);
-            entity.setSimpleDouble(Double.MAX_VALUE);
-            entity.setSimpleString("greenrobot greenDAO");
-            byte[] bytes = {42, -17, 23, 0, 127, -128};
-            entity.setSimpleByteArray(bytes);
+    protected void modifyEntities(List<SimpleEntityNotNull> entities) {
+        for (int i = 0; i < entities.size(); i++) {
+            setValues(entities.get(i), createValues(i));
         }
     }
+
+    private static void setValues(SimpleEntityNotNull entity, EntityValues values) {
+        entity.setSimpleBoolean(values.simpleBoolean);
+        entity.setSimpleByte(values.simpleByte);
+        entity.setSimpleShort(values.simpleShort);
+        entity.setSimpleInt(values.simpleInt);
+        entity.setSimpleLong(values.simpleLong);
+        entity.setSimpleFloat(values.simpleFloat);
+        entity.setSimpleDouble(values.simpleDouble);
+        entity.setSimpleString(values.simpleString);
+        entity.setSimpleByteArray(values.simpleByteArray);
+    }
 }
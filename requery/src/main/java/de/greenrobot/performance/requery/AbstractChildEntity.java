@@ -0,0 +1,25 @@
+package de.greenrobot.performance.requery;
+
+import io.requery.Entity;
+import io.requery.ForeignKey;
+import io.requery.Index;
+import io.requery.Key;
+import io.requery.ManyToOne;
+
+/**
+ * Entity with a to-one relation to {@link ParentEntity}.
+ */
+@Entity
+public abstract class AbstractChildEntity {
+
+    @Key
+    public long _id;
+    public String name;
+    public int value;
+
+    @Index(value = "child_parent_index")
+    @ForeignKey
+    @ManyToOne
+    public ParentEntity parent;
+
+}
@@ -0,0 +1,22 @@
+package de.greenrobot.performance.requery;
+
+import java.util.List;
+
+import io.requery.Entity;
+import io.requery.Key;
+import io.requery.OneToMany;
+
+/**
+ * Entity with a to-many relation to {@link ChildEntity}.
+ */
+@Entity
+public abstract class AbstractParentEntity {
+
+    @Key
+    public long _id;
+    public String name;
+
+    @OneToMany(mappedBy = "parent")
+    public List<ChildEntity> children;
+
+}
@@ -12,7 +12,10 @@ import java.util.List;
 
 import de.greenrobot.performance.BasePerfTestCase;
 import de.greenrobot.performance.Benchmark;
-import de.greenrobot.performance.StringGenerator;
+import de.greenrobot.performance.Blackhole;
+import de.greenrobot.performance.DatasetCache;
+import de.greenrobot.performance.PageLatencies;
+import de.greenrobot.performance.SqliteConfiguration;
 
 /**
  * https://bitbucket.org/qbusict/cupboard/wiki/GettingStarted
@@ -32,27 +35,32 @@ public class PerfTestSqlite extends BasePerfTestCase {
         super.tearDown();
     }
 
+    /**
+     * This class has the same name as the test of the Sqlite module, use a tag of its own so
+     * results written to the same directory do not end up in the same files.
+     */
     @Override
-    protected void doIndexedStringEntityQueries() throws Exception {
-        // set up database
-        DbHelper dbHelper = new DbHelper(getTargetContext(), DATABASE_NAME, DATABASE_VERSION);
-        SQLiteDatabase database = dbHelper.getWritableDatabase(DATABASE_PASSWORD);
-        log("Set up database.");
+    protected String getLogTag() {
+        return "PerfTestSqlcipher";
+    }
 
-        for (int i = 0; i < RUNS; i++) {
-            log("----Run " + (i + 1) + " of " + RUNS);
+    @Override
+    protected void doIndexedStringEntityQueries() throws Exception {
+        // database was set up by onRunSetup()
+        while (startNextRun()) {
             indexedStringEntityQueriesRun(database, getBatchSize());
+            commitRun();
         }
     }
 
     private void indexedStringEntityQueriesRun(SQLiteDatabase database, int count) {
         // create entities
         List<IndexedStringEntity> entities = new ArrayList<>(count);
-        String[] fixedRandomStrings = StringGenerator.createFixedRandomStrings(count);
+        DatasetCache.Strings fixedRandomStrings = getFixedRandomStrings(count);
         for (int i = 0; i < count; i++) {
             IndexedStringEntity entity = new IndexedStringEntity();
             entity._id = (long) i;
-            entity.indexedString = fixedRandomStrings[i];
+            entity.indexedString = fixedRandomStrings.get(i);
             entities.add(entity);
         }
         log("Built entities.");
@@ -77,15 +85,18 @@ public class PerfTestSqlite extends BasePerfTestCase {
         log("Inserted entities.");
 
         // query for entities by indexed string at random
-        int[] randomIndices = StringGenerator.getFixedRandomIndices(getQueryCount(), count - 1);
+        int[] randomIndices = createQueryIndices(getQueryCount(), count - 1);
+        // decode the strings to query now, not while measuring
+        fixedRandomStrings.prefetch(randomIndices);
 
         startClock();
-        for (int i = 0; i < getQueryCount(); i++) {
+        for (int i = 0; hasNextOperation(i, getQueryCount()); i++) {
             int nextIndex = randomIndices[i];
 
+            long operationStart = System.nanoTime();
             Cursor query = database.query(DbHelper.Tables.INDEXED_ENTITY,
                     IndexedQuery.PROJECTION, DbHelper.IndexedEntityColumns.INDEXED_STRING + "=?",
-                    new String[]{fixedRandomStrings[nextIndex]}, null, null, null, null);
+                    new String[]{fixedRandomStrings.get(nextIndex)}, null, null, null, null);
             // do NO null checks and count checks, should throw to indicate something is incorrect
             query.moveToFirst();
 
@@ -95,6 +106,7 @@ public class PerfTestSqlite extends BasePerfTestCase {
             entity.indexedString = query.getString(1);
 
             query.close();
+            recordOperation(Benchmark.Type.QUERY_INDEXED, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.QUERY_INDEXED);
 
@@ -103,54 +115,104 @@ public class PerfTestSqlite extends BasePerfTestCase {
         log("Deleted all entities.");
     }
 
+    @Override
+    protected List<String> getConfigurations() {
+        return SqliteConfiguration.getMatrix(getArgument(ARG_JOURNAL_MODES),
+                getArgument(ARG_SYNCHRONOUS_MODES));
+    }
+
     @Override
     protected void onRunSetup() throws Exception {
         super.onRunSetup();
 
-        // set up database
+        // set up database, again for each configuration
+        if (database != null) {
+            database.close();
+        }
         SQLiteDatabase.loadLibs(getTargetContext());
         DbHelper dbHelper = new DbHelper(getTargetContext(), DATABASE_NAME, DATABASE_VERSION);
         database = dbHelper.getWritableDatabase(DATABASE_PASSWORD);
+        applyConfiguration(database);
+        log("Set up database.");
+    }
+
+    private void applyConfiguration(SQLiteDatabase database) {
+        String name = getConfiguration();
+        if (name == null) {
+            return;
+        }
+        SqliteConfiguration configuration = SqliteConfiguration.parse(name);
+        String journalMode = configuration.getJournalMode();
+        if (journalMode != null) {
+            // SQLCipher uses a single connection, so also WAL is set using the PRAGMA
+            String actual = queryPragma(database, configuration.getJournalModePragma());
+            if (!journalMode.equalsIgnoreCase(actual)) {
+                throw new RuntimeException("Could not set journal mode " + journalMode
+                        + ", is " + actual);
+            }
+        }
+        if (configuration.getSynchronous() != null) {
+            database.execSQL(configuration.getSynchronousPragma());
+            String actual = queryPragma(database, "PRAGMA synchronous");
+            if (!String.valueOf(configuration.getSynchronousValue()).equals(actual)) {
+                throw new RuntimeException("Could not set synchronous "
+                        + configuration.getSynchronous() + ", is " + actual);
+            }
+        }
+        log("Database configuration " + configuration + ".");
+    }
+
+    private static String queryPragma(SQLiteDatabase database, String pragma) {
+        Cursor cursor = database.rawQuery(pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
     }
 
     @Override
     protected void doOneByOneCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
         ContentValues values = new ContentValues();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, count); i++) {
             SimpleEntityNotNull entity = list.get(i);
+            long operationStart = System.nanoTime();
             values.put(DbHelper.SimpleEntityColumns._ID, entity.getId());
             buildContentValues(values, entity);
             database.insert(DbHelper.Tables.SIMPLE_ENTITY, null, values);
             values.clear();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_CREATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_CREATE);
+        int created = getOperationCount();
 
         startClock();
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; hasNextOperation(i, created); i++) {
             SimpleEntityNotNull entity = list.get(i);
+            long operationStart = System.nanoTime();
             buildContentValues(values, entity);
             database.update(DbHelper.Tables.SIMPLE_ENTITY, values,
                     DbHelper.SimpleEntityColumns._ID + "=" + entity.getId(),
                     null);
             values.clear();
+            recordOperation(Benchmark.Type.ONE_BY_ONE_UPDATE, System.nanoTime() - operationStart);
         }
         stopClock(Benchmark.Type.ONE_BY_ONE_UPDATE);
 
         deleteAll(database);
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     @Override
     protected void doBatchCrudRun(int count) throws Exception {
         final List<SimpleEntityNotNull> list = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            list.add(SimpleEntityNotNullHelper.createEntity((long) i));
+            list.add(SimpleEntityNotNullHelper.createEntity(createValues(i)));
         }
 
         startClock();
@@ -209,19 +271,20 @@ public class PerfTestSqlite extends BasePerfTestCase {
         query.close();
         stopClock(Benchmark.Type.BATCH_READ);
 
+        Blackhole blackhole = getBlackhole();
         startClock();
         for (int i = 0; i < reloaded.size(); i++) {
             SimpleEntityNotNull entity = reloaded.get(i);
-            entity.getId();
-            entity.getSimpleBoolean();
-            entity.getSimpleByte();
-            entity.getSimpleShort();
-            entity.getSimpleInt();
-            entity.getSimpleLong();
-            entity.getSimpleFloat();
-            entity.getSimpleDouble();
-            entity.getSimpleString();
-            entity.getSimpleByteArray();
+            blackhole.consume(entity.getId());
+            blackhole.consume(entity.getSimpleBoolean());
+            blackhole.consume(entity.getSimpleByte());
+            blackhole.consume(entity.getSimpleShort());
+            blackhole.consume(entity.getSimpleInt());
+            blackhole.consume(entity.getSimpleLong());
+            blackhole.consume(entity.getSimpleFloat());
+            blackhole.consume(entity.getSimpleDouble());
+            blackhole.consume(entity.getSimpleString());
+            blackhole.consume(entity.getSimpleByteArray());
         }
         stopClock(Benchmark.Type.BATCH_ACCESS);
 
@@ -230,6 +293,118 @@ public class PerfTestSqlite extends BasePerfTestCase {
         stopClock(Benchmark.Type.BATCH_DELETE);
     }
 
+    @Override
+    protected void doPaging(int count, int pageSize) throws Exception {
+        insertWriterEntities(count);
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < SimpleQuery.PROJECTION.length; i++) {
+            select.append(i > 0 ? "," : "").append(SimpleQuery.PROJECTION[i]);
+        }
+        select.append(" FROM ").append(DbHelper.Tables.SIMPLE_ENTITY);
+        String offsetSql = select + " ORDER BY " + DbHelper.SimpleEntityColumns._ID
+                + " LIMIT ? OFFSET ?";
+        String keysetSql = select + " WHERE " + DbHelper.SimpleEntityColumns._ID + ">? ORDER BY "
+                + DbHelper.SimpleEntityColumns._ID + " LIMIT ?";
+        String limit = String.valueOf(pageSize);
+
+        while (startNextRun()) {
+            Blackhole blackhole = getBlackhole();
+            PageLatencies pages = startPagingClock(count);
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                Cursor query = database.rawQuery(offsetSql,
+                        new String[]{limit, String.valueOf(page * pageSize)});
+                try {
+                    while (query.moveToNext()) {
+                        consume(blackhole, readEntity(query));
+                    }
+                } finally {
+                    query.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_OFFSET, pages);
+
+            pages = startPagingClock(count);
+            long lastId = -1;
+            for (int page = 0; page < pages.getPageCount(); page++) {
+                long start = System.nanoTime();
+                Cursor query = database.rawQuery(keysetSql,
+                        new String[]{String.valueOf(lastId), limit});
+                try {
+                    while (query.moveToNext()) {
+                        SimpleEntityNotNull entity = readEntity(query);
+                        consume(blackhole, entity);
+                        lastId = entity.getId();
+                    }
+                } finally {
+                    query.close();
+                }
+                pages.record(page, System.nanoTime() - start);
+            }
+            stopPagingClock(Benchmark.Type.PAGING_KEYSET, pages);
+            commitRun();
+        }
+
+        deleteAll(database);
+    }
+
+    /**
+     * Inserts entities with ids from 0 to count - 1 in transactions of {@link #getBatchSize()}.
+     */
+    private void insertWriterEntities(int count) {
+        long insertStart = System.currentTimeMillis();
+        int batchSize = getBatchSize();
+        ContentValues values = new ContentValues();
+        for (int first = 0; first < count; first += batchSize) {
+            database.beginTransaction();
+            try {
+                for (int id = first; id < Math.min(first + batchSize, count); id++) {
+                    SimpleEntityNotNull entity =
+                            SimpleEntityNotNullHelper.createEntity(createWriterValues(id));
+                    values.put(DbHelper.SimpleEntityColumns._ID, entity.getId());
+                    buildContentValues(values, entity);
+                    database.insert(DbHelper.Tables.SIMPLE_ENTITY, null, values);
+                    values.clear();
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+        log("Inserted " + count + " entities in "
+                + (System.currentTimeMillis() - insertStart) + " ms");
+    }
+
+    private static SimpleEntityNotNull readEntity(Cursor query) {
+        SimpleEntityNotNull entity = new SimpleEntityNotNull();
+        entity.setId(query.getLong(0));
+        entity.setSimpleBoolean(query.getInt(1) == 1);
+        entity.setSimpleByte((byte) query.getInt(2));
+        entity.setSimpleShort(query.getShort(3));
+        entity.setSimpleInt(query.getInt(4));
+        entity.setSimpleLong(query.getLong(5));
+        entity.setSimpleFloat(query.getFloat(6));
+        entity.setSimpleDouble(query.getDouble(7));
+        entity.setSimpleString(query.getString(8));
+        entity.setSimpleByteArray(query.getBlob(9));
+        return entity;
+    }
+
+    private static void consume(Blackhole blackhole, SimpleEntityNotNull entity) {
+        blackhole.consume(entity.getId());
+        blackhole.consume(entity.getSimpleBoolean());
+        blackhole.consume(entity.getSimpleByte());
+        blackhole.consume(entity.getSimpleShort());
+        blackhole.consume(entity.getSimpleInt());
+        blackhole.consume(entity.getSimpleLong());
+        blackhole.consume(entity.getSimpleFloat());
+        blackhole.consume(entity.getSimpleDouble());
+        blackhole.consume(entity.getSimpleString());
+        blackhole.consume(entity.getSimpleByteArray());
+    }
+
     private void deleteAll(SQLiteDatabase database) {
         database.delete(DbHelper.Tables.SIMPLE_ENTITY, null, emptyWhereArgs);
     }